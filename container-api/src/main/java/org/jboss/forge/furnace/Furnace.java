@@ -71,6 +71,24 @@ public interface Furnace extends AutoCloseable
     */
    public Furnace setServerMode(boolean server);
 
+   /**
+    * Returns the {@link ThreadingMode} used to start addons. Defaults to {@link ThreadingMode#PLATFORM}.
+    */
+   default ThreadingMode getThreadingMode()
+   {
+      return ThreadingMode.PLATFORM;
+   }
+
+   /**
+    * Set the {@link ThreadingMode} used to start addons. Falls back to {@link ThreadingMode#PLATFORM} if the requested
+    * mode is not supported by the current Java runtime or by this {@link Furnace} implementation, which is the default.
+    * This method must not be called once {@link Furnace} is started.
+    */
+   default Furnace setThreadingMode(ThreadingMode mode)
+   {
+      return this;
+   }
+
    /**
     * Get the central {@link AddonRegistry} for this {@link Furnace} instance. Contains {@link Addon} registration and
     * service information. If specific {@link AddonRepository} instances are supplied, return an registry that functions
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jboss.forge.furnace;
+
+/**
+ * The kind of {@link Thread} used by {@link Furnace} to start addons and to deliver asynchronous events. Addons are
+ * always stopped on the thread that stops them, whatever the mode.
+ */
+public enum ThreadingMode
+{
+   /**
+    * Addons are started on a pool of platform threads that keeps as many threads as there are available processors.
+    */
+   PLATFORM,
+
+   /**
+    * Each addon is started on its own virtual thread. Requires a Java runtime that supports virtual threads; otherwise
+    * {@link #PLATFORM} is used.
+    */
+   VIRTUAL;
+
+   public boolean isVirtual()
+   {
+      return this == VIRTUAL;
+   }
+}
@@ -7,6 +7,7 @@
 package org.jboss.forge.furnace.addons;
 
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Future;
 
 import org.jboss.forge.furnace.event.EventManager;
@@ -63,4 +64,27 @@ public interface Addon
     * {@link AddonStatus#isFailed()}
     */
    public Future<Void> getFuture();
+
+   /**
+    * Return a {@link CompletionStage} that is completed with this {@link Addon} once it has
+    * {@link AddonStatus#isStarted()}, or completed exceptionally if it {@link AddonStatus#isFailed()} or is stopped
+    * before it could start.
+    * <p>
+    * The default implementation checks {@link #getStatus()} periodically, and cannot tell whether this {@link Addon}
+    * was stopped before it could start.
+    */
+   public default CompletionStage<Addon> whenStarted()
+   {
+      return AddonStatusWatch.watch(this, true);
+   }
+
+   /**
+    * Return a {@link CompletionStage} that is completed with this {@link Addon} once it has been stopped.
+    * <p>
+    * The default implementation checks {@link #getStatus()} periodically.
+    */
+   public default CompletionStage<Addon> whenStopped()
+   {
+      return AddonStatusWatch.watch(this, false);
+   }
 }
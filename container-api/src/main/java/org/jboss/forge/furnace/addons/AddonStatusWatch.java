@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.addons;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.jboss.forge.furnace.exception.ContainerException;
+
+/**
+ * Backs the default {@link Addon#whenStarted()} and {@link Addon#whenStopped()} methods of {@link Addon}
+ * implementations that do not signal their status changes, by checking {@link Addon#getStatus()} every 10 ms on a
+ * daemon thread.
+ */
+final class AddonStatusWatch
+{
+   private AddonStatusWatch()
+   {
+   }
+
+   /**
+    * Return a {@link CompletionStage} that is completed with the given {@link Addon} once its status is started (or
+    * stopped, if <code>started</code> is <code>false</code>.)
+    */
+   static CompletionStage<Addon> watch(final Addon addon, final boolean started)
+   {
+      final CompletableFuture<Addon> result = new CompletableFuture<>();
+      if (addon.getStatus().isStarted() == started)
+      {
+         complete(addon, started, result);
+         return result;
+      }
+
+      Thread thread = new Thread("Furnace Addon Status Watch [" + addon.getId() + "]")
+      {
+         @Override
+         public void run()
+         {
+            try
+            {
+               while (addon.getStatus().isStarted() != started)
+               {
+                  Thread.sleep(10);
+               }
+               complete(addon, started, result);
+            }
+            catch (Throwable t)
+            {
+               result.completeExceptionally(t);
+            }
+         }
+      };
+      thread.setDaemon(true);
+      thread.start();
+      return result;
+   }
+
+   private static void complete(Addon addon, boolean started, CompletableFuture<Addon> result)
+   {
+      if (started && addon.getStatus().isFailed())
+         result.completeExceptionally(new ContainerException("Addon [" + addon + "] failed to start."));
+      else
+         result.complete(addon);
+   }
+}
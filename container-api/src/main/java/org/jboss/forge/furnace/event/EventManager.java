@@ -7,6 +7,8 @@
 package org.jboss.forge.furnace.event;
 
 import java.lang.annotation.Annotation;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Responsible for handling event propagation.
@@ -21,4 +23,36 @@ public interface EventManager
     * @throws EventException if exceptions are encountered during event processing.
     */
    public void fireEvent(Object event, Annotation... qualifiers) throws EventException;
+
+   /**
+    * Fire an event and notify observers within the enclosing addon without waiting for them. The returned
+    * {@link CompletionStage} completes once every observer was notified, or completes exceptionally with the
+    * {@link EventException} encountered during event processing.
+    * <p>
+    * The default implementation notifies observers synchronously before returning.
+    */
+   public default CompletionStage<Void> fireEventAsync(Object event, Annotation... qualifiers)
+   {
+      CompletableFuture<Void> result = new CompletableFuture<>();
+      try
+      {
+         fireEvent(event, qualifiers);
+         result.complete(null);
+      }
+      catch (RuntimeException e)
+      {
+         result.completeExceptionally(e);
+      }
+      return result;
+   }
+
+   /**
+    * Return <code>false</code> if no observer within the enclosing addon can be notified of events of the given type,
+    * in which case such events need not be fired at this {@link EventManager}. Implementations that cannot tell
+    * return <code>true</code>, which is also the default.
+    */
+   public default boolean observes(Class<?> eventType)
+   {
+      return true;
+   }
 }
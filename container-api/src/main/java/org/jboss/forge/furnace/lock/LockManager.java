@@ -24,4 +24,16 @@ public interface LockManager
     * the result, if any.
     */
    <T> T performLocked(LockMode mode, Callable<T> task);
+
+   /**
+    * Perform the given read-only {@link Callable} task and return its result, if any. Implementations may run the task
+    * without acquiring a {@link Lock}, and run it again under a {@link LockMode#READ} lock if a writer interfered, so
+    * the task must be free of side effects and must tolerate observing inconsistent state on the first attempt.
+    * <p>
+    * The default implementation is equivalent to {@link #performLocked(LockMode, Callable)} with {@link LockMode#READ}.
+    */
+   default <T> T performOptimisticRead(Callable<T> task)
+   {
+      return performLocked(LockMode.READ, task);
+   }
 }
@@ -6,6 +6,8 @@
  */
 package org.jboss.forge.furnace.util;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -18,13 +20,27 @@ import org.jboss.forge.furnace.exception.ContainerException;
 public class Addons
 {
 
+   /**
+    * Waits until the specified {@link Addon} has started or failed to start. If it is stopped first, waits for its
+    * next start.
+    */
    public static void waitUntilStarted(Addon addon)
    {
       try
       {
          while (!addon.getStatus().isStarted())
          {
-            Thread.sleep(10);
+            try
+            {
+               addon.whenStarted().toCompletableFuture().get();
+            }
+            catch (ExecutionException e)
+            {
+               /*
+                * Failed or stopped before it could start. The status tells which, once it is settled.
+                */
+               Thread.sleep(10);
+            }
          }
       }
       catch (Exception e)
@@ -39,10 +55,8 @@ public class Addons
       {
          try
          {
-            while (addon.getStatus().isStarted())
-            {
-               Thread.sleep(10);
-            }
+            if (addon.getStatus().isStarted())
+               addon.whenStopped().toCompletableFuture().get();
          }
          catch (Exception e)
          {
@@ -51,57 +65,67 @@ public class Addons
       }
    }
 
+   /**
+    * Waits until the specified {@link Addon} has started or failed to start. If it is stopped first, waits for its
+    * next start.
+    */
    public static void waitUntilStarted(Addon addon, int quantity, TimeUnit unit) throws TimeoutException
    {
-      long start = System.currentTimeMillis();
-      long threshold = start + TimeUnit.MILLISECONDS.convert(quantity, unit);
+      long threshold = System.currentTimeMillis() + TimeUnit.MILLISECONDS.convert(quantity, unit);
       while (!addon.getStatus().isStarted())
       {
-         if (System.currentTimeMillis() > threshold)
+         long remaining = threshold - System.currentTimeMillis();
+         try
          {
-            throw new TimeoutException("Timeout expired waiting for [" + addon + "] to start.");
+            if (remaining < 0)
+               throw new TimeoutException();
+            addon.whenStarted().toCompletableFuture().get(remaining, TimeUnit.MILLISECONDS);
          }
-
-         try
+         catch (TimeoutException e)
          {
-            Thread.sleep(10);
+            throw new TimeoutException("Timeout expired waiting for [" + addon + "] to start.");
          }
-         catch (RuntimeException re)
+         catch (ExecutionException e)
          {
-            throw re;
+            /*
+             * Failed or stopped before it could start. The status tells which, once it is settled.
+             */
+            sleep(addon);
          }
-         catch (Exception e)
+         catch (InterruptedException e)
          {
             throw new ContainerException("Addon [" + addon + "] was not started.", e);
          }
       }
    }
 
+   private static void sleep(Addon addon)
+   {
+      try
+      {
+         Thread.sleep(10);
+      }
+      catch (InterruptedException e)
+      {
+         throw new ContainerException("Addon [" + addon + "] was not started.", e);
+      }
+   }
+
    public static void waitUntilStopped(Addon addon, int quantity, TimeUnit unit) throws TimeoutException
    {
-      if (addon != null)
+      if (addon != null && addon.getStatus().isStarted())
       {
-         long start = System.currentTimeMillis();
-         long threshold = start + TimeUnit.MILLISECONDS.convert(quantity, unit);
-         while (addon.getStatus().isStarted())
+         try
          {
-            if (System.currentTimeMillis() > threshold)
-            {
-               throw new TimeoutException("Timeout expired waiting for [" + addon + "] to stop.");
-            }
-
-            try
-            {
-               Thread.sleep(10);
-            }
-            catch (RuntimeException re)
-            {
-               throw re;
-            }
-            catch (Exception e)
-            {
-               throw new ContainerException("Addon [" + addon + "] was not stopped.", e);
-            }
+            addon.whenStopped().toCompletableFuture().get(quantity, unit);
+         }
+         catch (TimeoutException e)
+         {
+            throw new TimeoutException("Timeout expired waiting for [" + addon + "] to stop.");
+         }
+         catch (InterruptedException | ExecutionException e)
+         {
+            throw new ContainerException("Addon [" + addon + "] was not stopped.", e);
          }
       }
    }
@@ -115,6 +139,7 @@ public class Addons
       {
          long start = System.currentTimeMillis();
          long threshold = start + TimeUnit.MILLISECONDS.convert(quantity, unit);
+         CompletableFuture<Addon> started = addon.whenStarted().toCompletableFuture();
          while (!addon.getStatus().isStarted() && !addon.getStatus().isMissing())
          {
             if (System.currentTimeMillis() > threshold)
@@ -124,7 +149,22 @@ public class Addons
 
             try
             {
-               Thread.sleep(10);
+               /*
+                * Returns as soon as the addon has started. Becoming MISSING is not signalled, so check periodically.
+                */
+               started.get(10, TimeUnit.MILLISECONDS);
+            }
+            catch (TimeoutException e)
+            {
+               continue;
+            }
+            catch (ExecutionException e)
+            {
+               /*
+                * Failed or stopped before it could start. In the latter case, wait for the next start.
+                */
+               sleep(addon);
+               started = addon.whenStarted().toCompletableFuture();
             }
             catch (RuntimeException re)
             {
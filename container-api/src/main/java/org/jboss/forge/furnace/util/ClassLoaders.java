@@ -24,18 +24,31 @@ public class ClassLoaders
    private static final Logger log = Logger.getLogger(ClassLoaders.class.getName());
 
    /**
-    * Execute the given {@link Callable} in the {@link ClassLoader} provided. Return the result, if any.
+    * Execute the given {@link Callable} in the {@link ClassLoader} provided. Return the result, if any. If the
+    * {@link ClassLoader} is already the {@link Thread#getContextClassLoader()}, the task is called directly.
     */
    public static <T> T executeIn(ClassLoader loader, Callable<T> task) throws Exception
    {
       if (task == null)
          return null;
 
+      ClassLoader original = SecurityActions.getContextClassLoader();
+      if (original == loader)
+      {
+         try
+         {
+            return task.call();
+         }
+         finally
+         {
+            restoreContextClassLoader(original);
+         }
+      }
+
       if (log.isLoggable(Level.FINE))
       {
          log.fine("ClassLoader [" + loader + "] task began.");
       }
-      ClassLoader original = SecurityActions.getContextClassLoader();
       try
       {
          SecurityActions.setContextClassLoader(loader);
@@ -52,18 +65,32 @@ public class ClassLoaders
    }
 
    /**
-    * Execute the given {@link Runnable} in the {@link ClassLoader} provided. Return the result, if any.
+    * Execute the given {@link Runnable} in the {@link ClassLoader} provided. Return the result, if any. If the
+    * {@link ClassLoader} is already the {@link Thread#getContextClassLoader()}, the task is run directly.
     */
    public static void executeIn(ClassLoader loader, Runnable task) throws Exception
    {
       if (task == null)
          return;
 
+      ClassLoader original = SecurityActions.getContextClassLoader();
+      if (original == loader)
+      {
+         try
+         {
+            task.run();
+         }
+         finally
+         {
+            restoreContextClassLoader(original);
+         }
+         return;
+      }
+
       if (log.isLoggable(Level.FINE))
       {
          log.fine("ClassLoader [" + loader + "] task began.");
       }
-      ClassLoader original = SecurityActions.getContextClassLoader();
       try
       {
          SecurityActions.setContextClassLoader(loader);
@@ -79,6 +106,25 @@ public class ClassLoaders
       }
    }
 
+   /**
+    * Reset the {@link Thread#getContextClassLoader()} to the given {@link ClassLoader}, if a task run in it directly
+    * (see {@link #isContextClassLoader(ClassLoader)}) changed it. Does not touch the thread otherwise.
+    */
+   public static void restoreContextClassLoader(ClassLoader original)
+   {
+      if (SecurityActions.getContextClassLoader() != original)
+         SecurityActions.setContextClassLoader(original);
+   }
+
+   /**
+    * Return <code>true</code> if the given {@link ClassLoader} is the {@link Thread#getContextClassLoader()} of the
+    * current thread, in which case code can run in it without going through {@link #executeIn(ClassLoader, Callable)}.
+    */
+   public static boolean isContextClassLoader(ClassLoader loader)
+   {
+      return SecurityActions.getContextClassLoader() == loader;
+   }
+
    /**
     * Execute the given {@link Callable} by creating an {@link URLClassLoader} from the given {@link URL} array.
     * <p/>
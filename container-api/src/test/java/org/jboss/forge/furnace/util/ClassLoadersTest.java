@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.util;
+
+import java.util.concurrent.Callable;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClassLoadersTest
+{
+   @Test
+   public void testExecuteInSwitchesAndRestoresContextClassLoader() throws Exception
+   {
+      final ClassLoader original = Thread.currentThread().getContextClassLoader();
+      final ClassLoader loader = new ClassLoader(original)
+      {
+      };
+
+      ClassLoader result = ClassLoaders.executeIn(loader, new Callable<ClassLoader>()
+      {
+         @Override
+         public ClassLoader call() throws Exception
+         {
+            Assert.assertTrue(ClassLoaders.isContextClassLoader(loader));
+            return ClassLoaders.executeIn(loader, new Callable<ClassLoader>()
+            {
+               @Override
+               public ClassLoader call() throws Exception
+               {
+                  return Thread.currentThread().getContextClassLoader();
+               }
+            });
+         }
+      });
+
+      Assert.assertSame(loader, result);
+      Assert.assertSame(original, Thread.currentThread().getContextClassLoader());
+      Assert.assertFalse(ClassLoaders.isContextClassLoader(loader));
+   }
+
+   @Test
+   public void testExecuteInSameLoaderRestoresContextClassLoader() throws Exception
+   {
+      final ClassLoader original = Thread.currentThread().getContextClassLoader();
+      final ClassLoader other = new ClassLoader(original)
+      {
+      };
+
+      ClassLoaders.executeIn(original, new Callable<Void>()
+      {
+         @Override
+         public Void call() throws Exception
+         {
+            Thread.currentThread().setContextClassLoader(other);
+            return null;
+         }
+      });
+      Assert.assertSame(original, Thread.currentThread().getContextClassLoader());
+
+      ClassLoaders.executeIn(original, new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            Thread.currentThread().setContextClassLoader(other);
+         }
+      });
+      Assert.assertSame(original, Thread.currentThread().getContextClassLoader());
+
+      try
+      {
+         ClassLoaders.executeIn(original, new Callable<Void>()
+         {
+            @Override
+            public Void call() throws Exception
+            {
+               Thread.currentThread().setContextClassLoader(other);
+               throw new IllegalStateException("expected");
+            }
+         });
+         Assert.fail("Should have thrown an IllegalStateException");
+      }
+      catch (IllegalStateException e)
+      {
+         Assert.assertSame(original, Thread.currentThread().getContextClassLoader());
+      }
+   }
+}
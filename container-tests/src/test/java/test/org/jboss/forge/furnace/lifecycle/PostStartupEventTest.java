@@ -7,6 +7,8 @@
 
 package test.org.jboss.forge.furnace.lifecycle;
 
+import java.util.concurrent.TimeUnit;
+
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
 import org.jboss.forge.arquillian.archive.AddonArchive;
@@ -52,4 +54,14 @@ public class PostStartupEventTest
       RecordingEventManager manager = registry.getServices(RecordingEventManager.class).get();
       Assert.assertEquals(2, manager.getPostStartupCount());
    }
+
+   @Test
+   public void testEventFiredAsynchronouslyIsObserved() throws Exception
+   {
+      Furnace furnace = LocalServices.getFurnace(getClass().getClassLoader());
+      AddonRegistry registry = furnace.getAddonRegistry();
+      registry.getEventManager().fireEventAsync("async").toCompletableFuture().get(10, TimeUnit.SECONDS);
+      RecordingEventManager manager = registry.getServices(RecordingEventManager.class).get();
+      Assert.assertTrue(manager.getEvents().contains("async"));
+   }
 }
@@ -16,26 +16,34 @@ import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import org.jboss.forge.furnace.ContainerStatus;
 import org.jboss.forge.furnace.Furnace;
+import org.jboss.forge.furnace.ThreadingMode;
 import org.jboss.forge.furnace.addons.AddonCompatibilityStrategy;
 import org.jboss.forge.furnace.addons.AddonRegistry;
 import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.exception.ContainerException;
 import org.jboss.forge.furnace.impl.addons.AddonLifecycleManager;
 import org.jboss.forge.furnace.impl.addons.AddonRegistryImpl;
 import org.jboss.forge.furnace.impl.addons.AddonRepositoryImpl;
+import org.jboss.forge.furnace.impl.addons.ChangeSignal;
 import org.jboss.forge.furnace.impl.addons.DirtyCheckableRepository;
 import org.jboss.forge.furnace.impl.addons.DirtyChecker;
 import org.jboss.forge.furnace.impl.addons.ImmutableAddonRepository;
 import org.jboss.forge.furnace.impl.addons.VersionDirtyChecker;
 import org.jboss.forge.furnace.impl.lock.LockManagerImpl;
+import org.jboss.forge.furnace.impl.lock.StampedLockManager;
+import org.jboss.forge.furnace.impl.util.VirtualThreads;
 import org.jboss.forge.furnace.lock.LockManager;
 import org.jboss.forge.furnace.lock.LockMode;
 import org.jboss.forge.furnace.repositories.AddonRepository;
@@ -61,24 +69,43 @@ public class FurnaceImpl implements Furnace
    public static final String FURNACE_LOGGING_LEAK_CLASSLOADERS_PROPERTY = "furnace.logging.leak";
    public static final String FURNACE_DEBUG_PROPERTY = "furnace.debug";
    public static final String TEST_MODE_PROPERTY = "furnace.test.mode";
+   public static final String FURNACE_THREADING_MODE_PROPERTY = "furnace.threading.mode";
+   public static final String FURNACE_LOCK_MANAGER_PROPERTY = "furnace.lock.manager";
+
+   private static final String LOCK_MANAGER_FAIR = "fair";
+   private static final String LOCK_MANAGER_NONFAIR = "nonfair";
+   private static final String LOCK_MANAGER_STAMPED = "stamped";
 
    private static Logger logger = Logger.getLogger(FurnaceImpl.class.getName());
 
+   /**
+    * How often repositories whose {@link DirtyChecker} cannot signal changes are checked, in milliseconds.
+    */
+   private static final long POLL_INTERVAL = 100;
+
    private volatile boolean alive = false;
    private volatile ContainerStatus status = ContainerStatus.STOPPED;
 
-   private final ExecutorService executor = Executors.newSingleThreadExecutor();
+   private volatile CompletableFuture<Furnace> started = new CompletableFuture<>();
 
    private boolean serverMode = true;
+   private ThreadingMode threadingMode = ThreadingMode.PLATFORM;
    private AddonLifecycleManager manager;
    private final List<ContainerLifecycleListener> registeredListeners = new ArrayList<>();
    private final List<ListenerRegistration<ContainerLifecycleListener>> loadedListenerRegistrations = new ArrayList<>();
 
    private ClassLoader loader;
 
-   private final Set<RepositoryEntry> repositories = new HashSet<>();
+   private final Set<RepositoryEntry> repositories = new CopyOnWriteArraySet<>();
 
-   private final LockManager lock = new LockManagerImpl();
+   private final LockManager lock = createLockManager();
+
+   private final ChangeSignal changeSignal = new ChangeSignal();
+
+   /**
+    * <code>true</code> if any registered repository must be polled for changes.
+    */
+   private volatile boolean pollingRequired = false;
 
    private String[] args;
 
@@ -128,6 +155,21 @@ public class FurnaceImpl implements Furnace
          }
       }
 
+      String threadingModeValue = System.getProperty(FURNACE_THREADING_MODE_PROPERTY);
+      if (!Strings.isNullOrEmpty(threadingModeValue))
+      {
+         try
+         {
+            setThreadingMode(ThreadingMode.valueOf(threadingModeValue.toUpperCase()));
+         }
+         catch (IllegalArgumentException e)
+         {
+            logger.warning("'" + threadingModeValue + "' is not a valid value for the '"
+                     + FURNACE_THREADING_MODE_PROPERTY + "' property. Possible values are: "
+                     + Arrays.toString(ThreadingMode.values()) + ". Assuming default value.");
+         }
+      }
+
       if (!Boolean.getBoolean(FURNACE_LOGGING_LEAK_CLASSLOADERS_PROPERTY))
       {
          /*
@@ -173,28 +215,27 @@ public class FurnaceImpl implements Furnace
    @Override
    public Future<Furnace> startAsync(final ClassLoader loader)
    {
-      return executor.submit(new Callable<Furnace>()
+      CompletableFuture<Furnace> result = started;
+      Thread thread = new Thread()
       {
          @Override
-         public Furnace call() throws Exception
+         public void run()
          {
-            Thread thread = new Thread()
-            {
-               @Override
-               public void run()
-               {
-                  Thread.currentThread().setName("Furnace Container " + FurnaceImpl.this);
-                  FurnaceImpl.this.start(loader);
-               }
-            };
-            thread.start();
-
-            while (!ContainerStatus.STARTED.equals(getStatus()))
-               Thread.sleep(25);
-
-            return FurnaceImpl.this;
+            Thread.currentThread().setName("Furnace Container " + FurnaceImpl.this);
+            FurnaceImpl.this.start(loader);
          }
-      });
+      };
+      thread.start();
+      return result;
+   }
+
+   /**
+    * Return a {@link CompletionStage} that is completed once this {@link Furnace} instance has reached
+    * {@link ContainerStatus#STARTED}, or completed exceptionally if it stops before reaching it.
+    */
+   public CompletionStage<Furnace> whenStarted()
+   {
+      return started.thenApply(Function.identity());
    }
 
    @Override
@@ -225,47 +266,53 @@ public class FurnaceImpl implements Furnace
          getAddonRegistry();
          do
          {
-            lock.performLocked(LockMode.WRITE, new Callable<Void>()
+            if (!started.isDone() || isAnyRepositoryDirty())
             {
-               @Override
-               public Void call() throws Exception
+               lock.performLocked(LockMode.WRITE, new Callable<Void>()
                {
-                  boolean dirty = false;
-                  if (!getLifecycleManager().isStartingAddons())
+                  @Override
+                  public Void call() throws Exception
                   {
-                     for (RepositoryEntry entry : repositories)
+                     Set<AddonRepository> dirty = new HashSet<>();
+                     if (!getLifecycleManager().isStartingAddons())
                      {
-                        DirtyChecker dirtyChecker = entry.getDirtyChecker();
-                        if (dirtyChecker.isDirty())
+                        for (RepositoryEntry entry : repositories)
                         {
-                           logger.log(Level.FINE, "Detected changes in repository [" + entry.getRepository() + "].");
-                           dirty = true;
+                           DirtyChecker dirtyChecker = entry.getDirtyChecker();
+                           if (dirtyChecker.isDirty())
+                           {
+                              logger.log(Level.FINE,
+                                       "Detected changes in repository [" + entry.getRepository() + "].");
+                              dirty.add(entry.getRepository());
+                           }
+                           dirtyChecker.resetDirtyStatus();
+                        }
+
+                        if (!dirty.isEmpty())
+                        {
+                           reloadConfiguration(dirty);
                         }
-                        dirtyChecker.resetDirtyStatus();
                      }
 
-                     if (dirty)
+                     status = ContainerStatus.STARTED;
+                     if (!firedAfterStart)
                      {
-                        reloadConfiguration();
+                        fireAfterContainerStartedEvent();
+                        firedAfterStart = true;
                      }
+                     if (!getLifecycleManager().isStartingAddons())
+                        started.complete(FurnaceImpl.this);
+                     return null;
                   }
-
-                  status = ContainerStatus.STARTED;
-                  if (!firedAfterStart)
-                  {
-                     fireAfterContainerStartedEvent();
-                     firedAfterStart = true;
-                  }
-                  return null;
-               }
-            });
-            Thread.sleep(100);
+               });
+            }
+            awaitChange();
          }
          while (isAlive() && serverMode);
 
          while (isAlive() && getLifecycleManager().isStartingAddons())
          {
-            Thread.sleep(100);
+            awaitChange();
          }
       }
       catch (Exception e)
@@ -287,6 +334,7 @@ public class FurnaceImpl implements Furnace
    public Furnace stop()
    {
       alive = false;
+      changeSignal.signal();
       return this;
    }
 
@@ -317,6 +365,26 @@ public class FurnaceImpl implements Furnace
       return this;
    }
 
+   @Override
+   public ThreadingMode getThreadingMode()
+   {
+      return threadingMode;
+   }
+
+   @Override
+   public Furnace setThreadingMode(ThreadingMode mode)
+   {
+      Assert.notNull(mode, "Threading mode must not be null.");
+      assertNotAlive();
+      if (mode.isVirtual() && !VirtualThreads.isSupported())
+      {
+         logger.warning("Virtual threads are not supported by this Java runtime - using platform threads instead.");
+         mode = ThreadingMode.PLATFORM;
+      }
+      this.threadingMode = mode;
+      return this;
+   }
+
    @Override
    public AddonRegistry getAddonRegistry(final AddonRepository... repositories)
    {
@@ -337,12 +405,12 @@ public class FurnaceImpl implements Furnace
                   if (repositories == null || repositories.length == 0)
                   {
                      String name = "ROOT" + "_" + UUID.randomUUID().toString();
-                     registry = new AddonRegistryImpl(lock, getLifecycleManager(), getRepositories(), name);
+                     registry = new AddonRegistryImpl(getLifecycleManager(), getRepositories(), name);
                   }
                   else
                   {
                      String name = String.valueOf(registryCount++ + "_" + UUID.randomUUID().toString());
-                     registry = new AddonRegistryImpl(lock, getLifecycleManager(), Arrays.asList(repositories), name);
+                     registry = new AddonRegistryImpl(getLifecycleManager(), Arrays.asList(repositories), name);
                   }
                   getLifecycleManager().addView(registry);
                   getLifecycleManager().forceUpdate();
@@ -433,6 +501,12 @@ public class FurnaceImpl implements Furnace
          }
       }
 
+      if (!dirtyChecker.setChangeListener(changeSignal::signal))
+      {
+         pollingRequired = true;
+         changeSignal.signal();
+      }
+
       lock.performLocked(LockMode.WRITE, new Callable<Void>()
       {
          @Override
@@ -470,7 +544,7 @@ public class FurnaceImpl implements Furnace
    @Override
    public ContainerStatus getStatus()
    {
-      return lock.performLocked(LockMode.READ, new Callable<ContainerStatus>()
+      return lock.performOptimisticRead(new Callable<ContainerStatus>()
       {
          @Override
          public ContainerStatus call() throws Exception
@@ -478,7 +552,8 @@ public class FurnaceImpl implements Furnace
             if (!isAlive())
                return ContainerStatus.STOPPED;
 
-            boolean startingAddons = getLifecycleManager().isStartingAddons();
+            AddonLifecycleManager lifecycleManager = manager;
+            boolean startingAddons = lifecycleManager != null && lifecycleManager.isStartingAddons();
             return startingAddons ? ContainerStatus.STARTING : status;
          }
       });
@@ -494,6 +569,15 @@ public class FurnaceImpl implements Furnace
       return getLifecycleManager();
    }
 
+   /**
+    * Returns the {@link ChangeSignal} used to wake up the container thread when a repository changed or an addon
+    * finished starting.
+    */
+   public ChangeSignal getChangeSignal()
+   {
+      return changeSignal;
+   }
+
    @Override
    public String toString()
    {
@@ -518,7 +602,7 @@ public class FurnaceImpl implements Furnace
             public Void call() throws Exception
             {
                FurnaceImpl.this.addonCompatibilityStrategy = strategy;
-               reloadConfiguration();
+               reloadConfiguration(Collections.<AddonRepository> emptySet());
                return null;
             }
          });
@@ -538,6 +622,23 @@ public class FurnaceImpl implements Furnace
    /*
     * Internal methods.
     */
+   private static LockManager createLockManager()
+   {
+      String value = System.getProperty(FURNACE_LOCK_MANAGER_PROPERTY);
+      if (Strings.isNullOrEmpty(value) || LOCK_MANAGER_FAIR.equalsIgnoreCase(value))
+         return new LockManagerImpl(true);
+      else if (LOCK_MANAGER_NONFAIR.equalsIgnoreCase(value))
+         return new LockManagerImpl(false);
+      else if (LOCK_MANAGER_STAMPED.equalsIgnoreCase(value))
+         return new StampedLockManager();
+
+      logger.warning("'" + value + "' is not a valid value for the '" + FURNACE_LOCK_MANAGER_PROPERTY
+               + "' property. Possible values are: " + Arrays.asList(LOCK_MANAGER_FAIR, LOCK_MANAGER_NONFAIR,
+                        LOCK_MANAGER_STAMPED)
+               + ". Assuming default value.");
+      return new LockManagerImpl(true);
+   }
+
    private AddonLifecycleManager getLifecycleManager()
    {
       if (manager == null)
@@ -550,7 +651,31 @@ public class FurnaceImpl implements Furnace
       return alive;
    }
 
-   private void reloadConfiguration()
+   /**
+    * Block the container thread until something may need its attention. Repositories that cannot signal their changes
+    * are polled every {@link #POLL_INTERVAL} milliseconds.
+    */
+   private void awaitChange() throws InterruptedException
+   {
+      if (isAlive())
+         changeSignal.await(pollingRequired ? POLL_INTERVAL : 0, TimeUnit.MILLISECONDS);
+   }
+
+   /**
+    * Check the {@link DirtyChecker} of each repository without taking the container lock. The result is confirmed
+    * while holding the lock before any configuration is reloaded.
+    */
+   private boolean isAnyRepositoryDirty()
+   {
+      for (RepositoryEntry entry : repositories)
+      {
+         if (entry.getDirtyChecker().isDirty())
+            return true;
+      }
+      return false;
+   }
+
+   private void reloadConfiguration(Set<AddonRepository> dirty)
    {
       if (status.isStarted())
          status = ContainerStatus.RELOADING;
@@ -558,7 +683,7 @@ public class FurnaceImpl implements Furnace
       try
       {
          fireBeforeConfigurationScanEvent();
-         getLifecycleManager().forceUpdate();
+         getLifecycleManager().forceUpdate(dirty);
          fireAfterConfigurationScanEvent();
       }
       catch (Exception e)
@@ -592,8 +717,9 @@ public class FurnaceImpl implements Furnace
          }
       }
       repositories.clear();
-      executor.shutdownNow();
       firedAfterStart = false;
+      started.completeExceptionally(new ContainerException("Furnace was stopped before it was started."));
+      started = new CompletableFuture<>();
    }
 
    private void fireBeforeConfigurationScanEvent()
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.util.Assert;
+import org.jboss.forge.furnace.util.Callables;
+
+/**
+ * Caches values derived from the files of a deployed {@link AddonId} (such as the parsed <code>addon.xml</code>). Each
+ * value is stamped with the modification time and size of the file it was read from and is re-read once either of
+ * them changes, or once the {@link AddonId} is explicitly invalidated.
+ */
+class AddonDescriptorCache<T>
+{
+   private final Map<AddonId, Entry<T>> map = new ConcurrentHashMap<>();
+
+   /**
+    * Get the cached value for the given {@link AddonId}, computing it with the given {@link Callable} if the source
+    * {@link File} was modified since the value was cached.
+    */
+   public T get(AddonId addon, File source, Callable<T> reader)
+   {
+      Assert.notNull(addon, "Addon must not be null.");
+      Assert.notNull(source, "Source file must not be null.");
+
+      FileStamp stamp = FileStamp.of(source);
+      Entry<T> entry = map.get(addon);
+      if (entry == null || stamp == null || !stamp.equals(entry.stamp))
+      {
+         T value = Callables.call(reader);
+         if (stamp != null)
+            map.put(addon, new Entry<T>(stamp, value));
+         else
+            map.remove(addon);
+         return value;
+      }
+      return entry.value;
+   }
+
+   /**
+    * Record a value that is known to have been derived from the source file when it had the given {@link FileStamp}.
+    */
+   public void put(AddonId addon, FileStamp stamp, T value)
+   {
+      Assert.notNull(addon, "Addon must not be null.");
+      Assert.notNull(stamp, "File stamp must not be null.");
+      map.put(addon, new Entry<T>(stamp, value));
+   }
+
+   public void invalidate(AddonId addon)
+   {
+      map.remove(addon);
+   }
+
+   public void dispose()
+   {
+      map.clear();
+   }
+
+   private static class Entry<T>
+   {
+      private final FileStamp stamp;
+      private final T value;
+
+      public Entry(FileStamp stamp, T value)
+      {
+         this.stamp = stamp;
+         this.value = value;
+      }
+   }
+}
@@ -7,13 +7,17 @@
 package org.jboss.forge.furnace.impl.addons;
 
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Future;
+import java.util.function.Function;
 
 import org.jboss.forge.furnace.addons.Addon;
 import org.jboss.forge.furnace.addons.AddonDependency;
 import org.jboss.forge.furnace.addons.AddonId;
 import org.jboss.forge.furnace.addons.AddonStatus;
 import org.jboss.forge.furnace.event.EventManager;
+import org.jboss.forge.furnace.exception.ContainerException;
 import org.jboss.forge.furnace.impl.util.ExceptionFuture;
 import org.jboss.forge.furnace.impl.util.NullFuture;
 import org.jboss.forge.furnace.repositories.AddonRepository;
@@ -28,6 +32,9 @@ public class AddonImpl implements Addon
    private final AddonId id;
    private AddonStateManager manager;
 
+   private volatile CompletableFuture<Addon> started = new CompletableFuture<>();
+   private volatile CompletableFuture<Addon> stopped = new CompletableFuture<>();
+
    public AddonImpl(AddonStateManager manager, AddonId id)
    {
       Assert.notNull(manager, "Manager must not be null.");
@@ -105,6 +112,66 @@ public class AddonImpl implements Addon
       return result;
    }
 
+   @Override
+   public CompletionStage<Addon> whenStarted()
+   {
+      return started.thenApply(Function.identity());
+   }
+
+   @Override
+   public CompletionStage<Addon> whenStopped()
+   {
+      return stopped.thenApply(Function.identity());
+   }
+
+   /**
+    * Prepare the readiness signals for a new start of this {@link Addon}. Signals of a previous run are replaced.
+    */
+   void starting()
+   {
+      if (started.isDone())
+         started = new CompletableFuture<>();
+      if (stopped.isDone())
+         stopped = new CompletableFuture<>();
+   }
+
+   /**
+    * Complete {@link #whenStarted()} according to the current {@link AddonStatus}.
+    */
+   void finishedStarting()
+   {
+      if (getStatus().isStarted())
+         started.complete(this);
+      else
+         started.completeExceptionally(new ContainerException("Addon [" + this + "] failed to start."));
+   }
+
+   /**
+    * Fail {@link #whenStarted()} if this {@link Addon} was stopped before it could start, and complete
+    * {@link #whenStopped()} once the given start task has stopped running. Later calls to {@link #whenStarted()} wait
+    * for the next start.
+    */
+   void finishedStopping(Future<Void> task)
+   {
+      started.completeExceptionally(new ContainerException("Addon [" + this + "] was stopped."));
+      started = new CompletableFuture<>();
+
+      final CompletableFuture<Addon> stopped = this.stopped;
+      if (task instanceof AddonStartTask)
+      {
+         ((AddonStartTask) task).whenFinished().thenRun(new Runnable()
+         {
+            @Override
+            public void run()
+            {
+               stopped.complete(AddonImpl.this);
+            }
+         });
+      }
+      else
+         stopped.complete(this);
+   }
+
    @Override
    public String toString()
    {
@@ -6,7 +6,10 @@
  */
 package org.jboss.forge.furnace.impl.addons;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -14,32 +17,42 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.jboss.forge.furnace.Furnace;
+import org.jboss.forge.furnace.ThreadingMode;
 import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonCompatibilityStrategy;
 import org.jboss.forge.furnace.addons.AddonFilter;
 import org.jboss.forge.furnace.addons.AddonId;
 import org.jboss.forge.furnace.addons.AddonRegistry;
 import org.jboss.forge.furnace.addons.AddonView;
 import org.jboss.forge.furnace.event.EventManager;
 import org.jboss.forge.furnace.impl.FurnaceImpl;
+import org.jboss.forge.furnace.impl.addons.ViewGraph.RepositoryState;
 import org.jboss.forge.furnace.impl.event.AddonViewEventManager;
-import org.jboss.forge.furnace.impl.graph.CompleteAddonGraph;
 import org.jboss.forge.furnace.impl.graph.MasterGraph;
 import org.jboss.forge.furnace.impl.graph.MasterGraphChangeHandler;
 import org.jboss.forge.furnace.impl.graph.OptimizedAddonGraph;
 import org.jboss.forge.furnace.impl.modules.AddonModuleLoader;
+import org.jboss.forge.furnace.impl.util.VirtualThreads;
 import org.jboss.forge.furnace.lock.LockManager;
 import org.jboss.forge.furnace.lock.LockMode;
 import org.jboss.forge.furnace.repositories.AddonRepository;
 import org.jboss.forge.furnace.util.AddonFilters;
 import org.jboss.forge.furnace.util.Assert;
 import org.jboss.forge.furnace.util.Callables;
-import org.jboss.forge.furnace.util.Sets;
 import org.jgrapht.Graph;
 
 /**
@@ -49,15 +62,27 @@ public class AddonLifecycleManager
 {
    private static final Logger logger = Logger.getLogger(AddonLifecycleManager.class.getName());
 
+   /**
+    * System property to override the maximum number of addons that are started concurrently. Defaults to the number
+    * of available processors.
+    */
+   public static final String FURNACE_STARTUP_THREADS_PROPERTY = "furnace.addons.startup.threads";
+
    private final LockManager lock;
    private final FurnaceImpl furnace;
    private final AddonLoader loader;
    private final AddonStateManager stateManager;
 
-   private final Map<AddonView, Set<Addon>> addonViews = new ConcurrentHashMap<>();
+   private final ConcurrentMap<AddonView, ConcurrentMap<AddonId, Addon>> addonViews = new ConcurrentHashMap<>();
    private final Map<AddonView, Long> views = new ConcurrentHashMap<AddonView, Long>();
+   private final ConcurrentMap<AddonView, AtomicReference<AddonViewSnapshot>> snapshots = new ConcurrentHashMap<>();
+   private final AtomicLong snapshotGeneration = new AtomicLong();
    private final AtomicInteger starting = new AtomicInteger(-1);
-   private final ExecutorService executor = Executors.newCachedThreadPool();
+   private final Map<AddonView, ViewGraph> viewGraphs = new HashMap<>();
+   private final Map<AddonRepository, RepositoryState> repositoryStates = new HashMap<>();
+   private AddonCompatibilityStrategy repositoryStatesStrategy;
+   private ExecutorService executor;
+   private ExecutorService eventExecutor;
 
    private final AddonModuleLoader moduleLoader;
 
@@ -80,9 +105,13 @@ public class AddonLifecycleManager
          view.dispose();
       }
       this.views.clear();
+      this.snapshots.clear();
+      this.viewGraphs.clear();
+      this.repositoryStates.clear();
       this.stateManager.dispose();
       this.loader.dispose();
       this.moduleLoader.dispose();
+      shutdownEventExecutor();
    }
 
    public long getVersion(AddonView view)
@@ -108,15 +137,11 @@ public class AddonLifecycleManager
          public Set<Addon> call() throws Exception
          {
             Set<Addon> result = new HashSet<Addon>();
-            for (Entry<AddonView, Set<Addon>> entry : addonViews.entrySet())
+            for (ConcurrentMap<AddonId, Addon> addons : addonViews.values())
             {
-               for (Addon addon : entry.getValue())
-               {
-                  if (addon.getId().equals(id) && stateManager.getViewsOf(addon).isEmpty())
-                  {
-                     result.add(addon);
-                  }
-               }
+               Addon addon = addons.get(id);
+               if (addon != null && stateManager.getViewsOf(addon).isEmpty())
+                  result.add(addon);
             }
             return result;
          }
@@ -124,42 +149,34 @@ public class AddonLifecycleManager
    }
 
    /**
-    * Requires a {@link LockMode#WRITE} lock.
+    * Return the {@link Addon} with the given {@link AddonId} in the given {@link AddonView}, registering it with the
+    * view if this is the first request for it. Addons already registered with the view are returned without locking.
     */
    public Addon getAddon(final AddonView view, final AddonId id)
    {
       Assert.notNull(view, "AddonView must not be null.");
       Assert.notNull(id, "AddonId must not be null.");
-      return lock.performLocked(LockMode.WRITE, new Callable<Addon>()
+
+      ConcurrentMap<AddonId, Addon> addons = _getAddonsForView(view);
+      Addon result = addons.get(id);
+      if (result == null)
       {
-         @Override
-         public Addon call() throws Exception
+         /*
+          * Resolved outside of the map, because both lookups may need the container lock, which must never be
+          * awaited while holding a lock of the map. A placeholder that loses the race is simply discarded.
+          */
+         Addon candidate = stateManager.getAddonForView(view, id);
+         if (candidate == null)
+            candidate = new AddonImpl(stateManager, id);
+
+         result = addons.putIfAbsent(id, candidate);
+         if (result == null)
          {
-            Addon result = null;
-
-            for (Addon addon : getAddons(view))
-            {
-               if (id.equals(addon.getId()))
-               {
-                  result = addon;
-                  break;
-               }
-            }
-
-            if (result == null)
-            {
-               result = stateManager.getAddonForView(view, id);
-               if (result == null)
-                  result = new AddonImpl(stateManager, id);
-
-               Set<Addon> addons = _getAddonsForView(view);
-               addons.add(result);
-            }
-
-            return result;
+            result = candidate;
+            publishSnapshot(view);
          }
-
-      });
+      }
+      return result;
    }
 
    public Set<Addon> getAddons(final AddonView view)
@@ -169,37 +186,95 @@ public class AddonLifecycleManager
 
    public Set<Addon> getAddons(final AddonView view, final AddonFilter filter)
    {
-      return lock.performLocked(LockMode.READ, new Callable<Set<Addon>>()
+      HashSet<Addon> result = new HashSet<Addon>();
+
+      for (Addon addon : getSnapshot(view).getAddons())
       {
-         @Override
-         public Set<Addon> call() throws Exception
-         {
-            HashSet<Addon> result = new HashSet<Addon>();
+         if (filter.accept(addon))
+            result.add(addon);
+      }
 
-            for (Addon addon : _getAddonsForView(view))
-            {
-               if (filter.accept(addon))
-                  result.add(addon);
-            }
+      return result;
+   }
 
-            return result;
+   /**
+    * Return the most recently published {@link AddonViewSnapshot} of the given {@link AddonView}. (Non-blocking.)
+    */
+   public AddonViewSnapshot getSnapshot(AddonView view)
+   {
+      AtomicReference<AddonViewSnapshot> reference = snapshots.get(view);
+      AddonViewSnapshot result = reference == null ? null : reference.get();
+      if (result == null)
+         result = publishSnapshot(view);
+      return result;
+   }
+
+   /**
+    * Capture and publish a new {@link AddonViewSnapshot} of the given {@link AddonView}. Snapshots may be captured
+    * concurrently; each is numbered before it reads any state, and is only published if no snapshot with a higher
+    * number was published first, so the published snapshot never goes back in time. Snapshots of views that were
+    * removed are captured, but not kept.
+    */
+   private AddonViewSnapshot publishSnapshot(AddonView view)
+   {
+      long generation = snapshotGeneration.incrementAndGet();
+
+      AtomicReference<AddonViewSnapshot> reference = snapshots.get(view);
+      if (reference == null)
+      {
+         reference = new AtomicReference<>();
+         if (views.containsKey(view))
+         {
+            AtomicReference<AddonViewSnapshot> existing = snapshots.putIfAbsent(view, reference);
+            if (existing != null)
+               reference = existing;
          }
+      }
 
-      });
+      AddonViewSnapshot update = AddonViewSnapshot.capture(lock, generation, _getAddonsForView(view).values(),
+               reference.get());
+
+      while (true)
+      {
+         AddonViewSnapshot current = reference.get();
+         if (current != null && current.getGeneration() > generation)
+            return current;
+         if (reference.compareAndSet(current, update))
+            return update;
+      }
    }
 
-   private Set<Addon> _getAddonsForView(final AddonView view)
+   /**
+    * Return the {@link Addon} instances registered with the given {@link AddonView}. A view that was removed, or never
+    * added, gets an empty map that is not kept.
+    */
+   private ConcurrentMap<AddonId, Addon> _getAddonsForView(final AddonView view)
    {
-      Set<Addon> addons = addonViews.get(view);
+      ConcurrentMap<AddonId, Addon> addons = addonViews.get(view);
       if (addons == null)
       {
-         addons = Sets.getConcurrentSet();
-         addonViews.put(view, addons);
+         addons = new ConcurrentHashMap<>();
+         if (views.containsKey(view))
+         {
+            ConcurrentMap<AddonId, Addon> existing = addonViews.putIfAbsent(view, addons);
+            if (existing != null)
+               addons = existing;
+         }
       }
       return addons;
    }
 
    public void forceUpdate()
+   {
+      forceUpdate(Collections.<AddonRepository> emptySet());
+   }
+
+   /**
+    * Like {@link #forceUpdate()}, but the given {@link AddonRepository} instances, whose {@link DirtyChecker} saw a
+    * change on disk, are inspected again. Other repositories are only inspected again if their
+    * {@link AddonRepository#getVersion()} or the {@link AddonCompatibilityStrategy} changed since the last update.
+    */
+   public void forceUpdate(final Set<AddonRepository> changedRepositories)
    {
       lock.performLocked(LockMode.WRITE, new Callable<Void>()
       {
@@ -207,39 +282,129 @@ public class AddonLifecycleManager
          @Override
          public Void call() throws Exception
          {
-            MasterGraph master = new MasterGraph();
+            Map<AddonRepository, RepositoryState> repositories = repositoryStates;
+            if (repositoryStatesStrategy != furnace.getAddonCompatibilityStrategy())
+            {
+               repositories.clear();
+               repositoryStatesStrategy = furnace.getAddonCompatibilityStrategy();
+            }
+            repositories.keySet().removeAll(changedRepositories);
+            Set<AddonRepository> used = new HashSet<>();
+            boolean rebuild = !viewGraphs.keySet().equals(views.keySet());
+            viewGraphs.keySet().retainAll(views.keySet());
 
+            Set<String> changed = new HashSet<>();
+            List<OptimizedAddonGraph> graphs = new ArrayList<>();
             for (AddonView view : views.keySet())
             {
                if (starting.get() == -1)
                   starting.set(0);
+               used.addAll(view.getRepositories());
 
-               OptimizedAddonGraph graph = new OptimizedAddonGraph(view,
-                        new CompleteAddonGraph(view.getRepositories()).getGraph());
-
-               master.merge(graph);
-
-               if (logger.isLoggable(Level.FINE))
+               ViewGraph viewGraph = viewGraphs.get(view);
+               if (viewGraph == null)
+               {
+                  viewGraph = ViewGraph.build(view, repositories);
+                  viewGraphs.put(view, viewGraph);
+                  rebuild = true;
+               }
+               else
                {
-                  String graphOutput = master.toString();
-                  logger.log(Level.FINE,
-                           "\n ------------ VIEW [" + view.getName() + " - " + view.hashCode() + "]------------ "
-                                    + (graphOutput.isEmpty() ? "EMPTY" : graphOutput)
-                                    + " ------------ END [" + view.getName() + " - " + view.hashCode()
-                                    + "]------------ ");
+                  changed.addAll(updateViewGraph(view, viewGraph, repositories));
                }
+               graphs.add(viewGraph.getGraph());
             }
+            repositories.keySet().retainAll(used);
 
             MasterGraph last = stateManager.getCurrentGraph();
-            stateManager.setCurrentGraph(master);
+            if (rebuild || !patchMasterGraph(last, changed, graphs))
+            {
+               MasterGraph master = new MasterGraph();
+               for (OptimizedAddonGraph graph : graphs)
+               {
+                  master.merge(graph);
 
-            new MasterGraphChangeHandler(AddonLifecycleManager.this, last, master).hotSwapChanges();
+                  if (logger.isLoggable(Level.FINE))
+                  {
+                     AddonView view = graph.getAddonView();
+                     String graphOutput = master.toString();
+                     logger.log(Level.FINE,
+                              "\n ------------ VIEW [" + view.getName() + " - " + view.hashCode() + "]------------ "
+                                       + (graphOutput.isEmpty() ? "EMPTY" : graphOutput)
+                                       + " ------------ END [" + view.getName() + " - " + view.hashCode()
+                                       + "]------------ ");
+                  }
+               }
 
+               stateManager.setCurrentGraph(master);
+               new MasterGraphChangeHandler(AddonLifecycleManager.this, last, master).hotSwapChanges();
+            }
+
+            for (AddonView view : views.keySet())
+            {
+               publishSnapshot(view);
+            }
             return null;
          }
       });
    }
 
+   /**
+    * Bring the graph of the given {@link AddonView} up to date, and return the names of the addons that changed. A
+    * graph that fails to update is dropped, so it is built from scratch next time. Requires a {@link LockMode#WRITE}
+    * lock.
+    */
+   private Set<String> updateViewGraph(AddonView view, ViewGraph viewGraph,
+            Map<AddonRepository, RepositoryState> repositories)
+   {
+      try
+      {
+         Set<String> changed = viewGraph.update(view, repositories);
+         if (!changed.isEmpty() && logger.isLoggable(Level.FINE))
+         {
+            logger.log(Level.FINE, "Updated graph of VIEW [" + view.getName() + " - " + view.hashCode()
+                     + "], changed: " + changed);
+         }
+         return changed;
+      }
+      catch (RuntimeException e)
+      {
+         viewGraphs.remove(view);
+         throw e;
+      }
+   }
+
+   /**
+    * Patch the given {@link MasterGraph} in place. Only the vertices of the changed addons, of the addons that have not
+    * started or failed, of everything depending on those, and of their dependencies are merged again, and only they
+    * go through the {@link MasterGraphChangeHandler}. Returns <code>false</code> if the graph has to be built from
+    * scratch instead. Requires a {@link LockMode#WRITE} lock.
+    */
+   private boolean patchMasterGraph(MasterGraph master, Set<String> changed, List<OptimizedAddonGraph> graphs)
+   {
+      Set<String> seeds = new HashSet<>(changed);
+      seeds.addAll(master.getNamesNotStarted());
+      if (seeds.isEmpty())
+         return true;
+
+      Set<String> names = master.getAffectedNames(seeds, graphs);
+      MasterGraph last = master.subgraph(names);
+      MasterGraph update = new MasterGraph();
+      for (OptimizedAddonGraph graph : graphs)
+      {
+         update.merge(graph.subgraph(names));
+      }
+
+      if (!master.replace(names, update))
+         return false;
+
+      if (logger.isLoggable(Level.FINE))
+         logger.log(Level.FINE, "Patched master graph, affected addons: " + names);
+
+      new MasterGraphChangeHandler(AddonLifecycleManager.this, last, update, master).hotSwapChanges();
+      return true;
+   }
+
    public void loadAddon(Addon addon)
    {
       try
@@ -260,9 +425,19 @@ public class AddonLifecycleManager
 
    private void incrementViewVersions(Addon addon)
    {
+      /*
+       * Snapshots are published first, so a reader that observes the new version also observes the new snapshot.
+       */
+      Set<AddonView> viewsOfAddon = stateManager.getViewsOf(addon);
+      for (Entry<AddonView, ConcurrentMap<AddonId, Addon>> entry : addonViews.entrySet())
+      {
+         if (viewsOfAddon.contains(entry.getKey()) || entry.getValue().containsValue(addon))
+            publishSnapshot(entry.getKey());
+      }
+
       for (Entry<AddonView, Long> entry : views.entrySet())
       {
-         if (stateManager.getViewsOf(addon).contains(entry.getKey()))
+         if (viewsOfAddon.contains(entry.getKey()))
          {
             entry.setValue(entry.getValue() + 1);
          }
@@ -276,16 +451,16 @@ public class AddonLifecycleManager
          @Override
          public Void call() throws Exception
          {
-            for (Entry<AddonView, Set<Addon>> entry : addonViews.entrySet())
+            for (ConcurrentMap<AddonId, Addon> addons : addonViews.values())
             {
-               for (Addon addon : entry.getValue())
+               for (Addon addon : addons.values())
                {
                   stopAddon(addon);
                }
             }
 
-            List<Runnable> waiting = executor.shutdownNow();
-            if (waiting != null && !waiting.isEmpty())
+            List<Runnable> waiting = shutdownStartupExecutor();
+            if (!waiting.isEmpty())
                logger.info("(" + waiting.size() + ") addons were aborted while loading due to forced shutdown.");
             starting.set(-1);
             return null;
@@ -297,6 +472,9 @@ public class AddonLifecycleManager
    {
       starting.decrementAndGet();
       incrementViewVersions(addon);
+      if (addon instanceof AddonImpl)
+         ((AddonImpl) addon).finishedStarting();
+      furnace.getChangeSignal().signal();
    }
 
    /**
@@ -313,7 +491,104 @@ public class AddonLifecycleManager
    public void startAddon(Addon addon)
    {
       Assert.notNull(addon, "Addon to start must not be null.");
-      Callables.call(new StartEnabledAddonCallable(furnace, this, stateManager, executor, starting, addon));
+      Callables.call(new StartEnabledAddonCallable(furnace, this, stateManager, getStartupExecutor(), starting,
+               addon));
+   }
+
+   /**
+    * Start the given {@link Addon} as soon as the given dependencies have started. Addons with a higher priority are
+    * given a thread first.
+    */
+   public void startAddon(Addon addon, Iterable<Addon> dependencies, int priority)
+   {
+      Assert.notNull(addon, "Addon to start must not be null.");
+      Assert.notNull(dependencies, "Addon dependencies must not be null.");
+      Callables.call(new StartEnabledAddonCallable(furnace, this, stateManager, getStartupExecutor(), starting,
+               addon, dependencies, priority));
+   }
+
+   /**
+    * The executors are created when first needed, once {@link Furnace} has started, so they follow the
+    * {@link ThreadingMode} it was configured with even if this manager was created earlier.
+    */
+   private synchronized ExecutorService getStartupExecutor()
+   {
+      if (executor == null)
+         executor = createStartupExecutor(furnace.getThreadingMode());
+      return executor;
+   }
+
+   private synchronized List<Runnable> shutdownStartupExecutor()
+   {
+      return executor == null ? Collections.<Runnable> emptyList() : executor.shutdownNow();
+   }
+
+   /**
+    * Addons are only submitted once their dependencies have started, so a pool bounded to the number of processors
+    * is enough to keep every core busy. An addon blocked waiting on another addon gets a compensating thread while it
+    * waits, see {@link AddonStartupExecutor}. With {@link ThreadingMode#VIRTUAL} every addon gets its own virtual
+    * thread instead.
+    */
+   private static ExecutorService createStartupExecutor(ThreadingMode mode)
+   {
+      if (mode.isVirtual())
+      {
+         return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                  VirtualThreads.newThreadFactory("furnace-addon-"));
+      }
+
+      int threads = Runtime.getRuntime().availableProcessors();
+      Integer override = Integer.getInteger(FURNACE_STARTUP_THREADS_PROPERTY);
+      if (override != null && override > 0)
+         threads = override;
+
+      return new AddonStartupExecutor(threads);
+   }
+
+   /**
+    * Events fired asynchronously are delivered by a pool of daemon threads, or on a virtual thread per addon with
+    * {@link ThreadingMode#VIRTUAL}. Each delivery blocks on a {@link LockMode#READ} lock while a {@link LockMode#WRITE}
+    * lock is held, so the pool grows as needed and idle threads are released.
+    */
+   private static ExecutorService createEventExecutor(ThreadingMode mode)
+   {
+      if (mode.isVirtual())
+      {
+         return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                  VirtualThreads.newThreadFactory("furnace-event-"));
+      }
+
+      final AtomicInteger counter = new AtomicInteger();
+      return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+               new ThreadFactory()
+               {
+                  @Override
+                  public Thread newThread(Runnable runnable)
+                  {
+                     Thread thread = new Thread(runnable, "furnace-event-" + counter.getAndIncrement());
+                     thread.setDaemon(true);
+                     return thread;
+                  }
+               });
+   }
+
+   /**
+    * Return the {@link Executor} used to deliver events fired with {@link EventManager#fireEventAsync}.
+    */
+   public synchronized Executor getEventExecutor()
+   {
+      if (eventExecutor == null)
+         eventExecutor = createEventExecutor(furnace.getThreadingMode());
+      return eventExecutor;
+   }
+
+   /**
+    * The executor is not replaced, so events fired after {@link #dispose()} are rejected.
+    */
+   private synchronized void shutdownEventExecutor()
+   {
+      if (eventExecutor != null)
+         eventExecutor.shutdown();
    }
 
    public AddonView getRootView()
@@ -357,6 +632,7 @@ public class AddonLifecycleManager
       if (!views.keySet().contains(view))
          throw new IllegalArgumentException("The given view does not belong to this Furnace instance.");
       views.remove(view);
+      snapshots.remove(view);
    }
 
    @Override
@@ -383,7 +659,7 @@ public class AddonLifecycleManager
     */
    public EventManager getEventManager(AddonView addonView)
    {
-      return new AddonViewEventManager(addonView, lock);
+      return new AddonViewEventManager(addonView, this, lock);
    }
 
 }
@@ -11,22 +11,17 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.jboss.forge.furnace.addons.Addon;
 import org.jboss.forge.furnace.addons.AddonFilter;
 import org.jboss.forge.furnace.addons.AddonId;
 import org.jboss.forge.furnace.addons.AddonRegistry;
 import org.jboss.forge.furnace.event.EventManager;
-import org.jboss.forge.furnace.lock.LockManager;
-import org.jboss.forge.furnace.lock.LockMode;
 import org.jboss.forge.furnace.repositories.AddonRepository;
 import org.jboss.forge.furnace.services.Imported;
 import org.jboss.forge.furnace.spi.ServiceRegistry;
-import org.jboss.forge.furnace.util.AddonFilters;
 import org.jboss.forge.furnace.util.Assert;
 import org.jboss.forge.furnace.util.OperatingSystemUtils;
 
@@ -37,23 +32,16 @@ import org.jboss.forge.furnace.util.OperatingSystemUtils;
  */
 public class AddonRegistryImpl implements AddonRegistry
 {
-   private final LockManager lock;
    private final Set<AddonRepository> repositories;
    private final AddonLifecycleManager manager;
    private final String name;
 
-   private static Map<String, Imported<?>> importedCache = new ConcurrentHashMap<>();
-   private long cacheVersion = -1;
-
-   public AddonRegistryImpl(LockManager lock, AddonLifecycleManager manager, List<AddonRepository> repositories,
-            String name)
+   public AddonRegistryImpl(AddonLifecycleManager manager, List<AddonRepository> repositories, String name)
    {
-      Assert.notNull(lock, "LockManager must not be null.");
       Assert.notNull(manager, "Addon lifecycle manager must not be null.");
       Assert.notNull(repositories, "AddonRepository list must not be null.");
       Assert.isTrue(repositories.size() > 0, "AddonRepository list must not be empty.");
 
-      this.lock = lock;
       this.manager = manager;
       this.repositories = new LinkedHashSet<>(repositories);
       this.name = name;
@@ -62,7 +50,6 @@ public class AddonRegistryImpl implements AddonRegistry
    @Override
    public void dispose()
    {
-      importedCache.clear();
       manager.removeView(this);
       repositories.clear();
    }
@@ -71,48 +58,27 @@ public class AddonRegistryImpl implements AddonRegistry
    public Addon getAddon(final AddonId id)
    {
       Assert.notNull(id, "AddonId must not be null.");
-      return lock.performLocked(LockMode.WRITE, new Callable<Addon>()
-      {
-         @Override
-         public Addon call() throws Exception
-         {
-            Addon result = null;
-            while (result == null)
-            {
-               result = manager.getAddon(AddonRegistryImpl.this, id);
-               if (result == null)
-                  Thread.sleep(10);
-            }
-            return result;
-         }
-      });
+      return manager.getAddon(this, id);
    }
 
    @Override
    public Set<Addon> getAddons()
    {
-      return getAddons(AddonFilters.all());
+      return new HashSet<>(getSnapshot().getAddons());
    }
 
    @Override
    public Set<Addon> getAddons(final AddonFilter filter)
    {
-      return lock.performLocked(LockMode.READ, new Callable<Set<Addon>>()
-      {
-         @Override
-         public Set<Addon> call() throws Exception
-         {
-            HashSet<Addon> result = new HashSet<>();
-
-            for (Addon addon : manager.getAddons(AddonRegistryImpl.this))
-            {
-               if (filter.accept(addon))
-                  result.add(addon);
-            }
+      return manager.getAddons(this, filter);
+   }
 
-            return result;
-         }
-      });
+   /**
+    * Return the latest published {@link AddonViewSnapshot} of this view. (Non-blocking.)
+    */
+   public AddonViewSnapshot getSnapshot()
+   {
+      return manager.getSnapshot(this);
    }
 
    /**
@@ -133,71 +99,49 @@ public class AddonRegistryImpl implements AddonRegistry
    @SuppressWarnings("unchecked")
    public <T> Imported<T> getServices(final Class<T> type)
    {
-      if (getVersion() != cacheVersion)
-      {
-         cacheVersion = getVersion();
-         importedCache.clear();
-      }
-
-      String cacheKey = type.getName()
-               + (type.getClassLoader() == null ? "SystemCL" : type.getClassLoader().toString());
-      Imported<?> imported = importedCache.get(cacheKey);
+      ConcurrentMap<Object, Imported<?>> cache = getSnapshot().getImportedCache();
+      Imported<?> imported = cache.get(type);
       if (imported == null)
       {
-         imported = new ImportedImpl<>(this, lock, type);
-         importedCache.put(cacheKey, imported);
+         imported = new ImportedImpl<>(this, type);
+         Imported<?> existing = cache.putIfAbsent(type, imported);
+         if (existing != null)
+            imported = existing;
       }
       return (Imported<T>) imported;
    }
 
    @Override
+   @SuppressWarnings("unchecked")
    public <T> Imported<T> getServices(final String typeName)
    {
-      return new ImportedImpl<>(this, lock, typeName);
+      ConcurrentMap<Object, Imported<?>> cache = getSnapshot().getImportedCache();
+      Imported<?> imported = cache.get(typeName);
+      if (imported == null)
+      {
+         imported = new ImportedImpl<>(this, typeName);
+         Imported<?> existing = cache.putIfAbsent(typeName, imported);
+         if (existing != null)
+            imported = existing;
+      }
+      return (Imported<T>) imported;
    }
 
    @Override
    public Set<Class<?>> getExportedTypes()
    {
-      return lock.performLocked(LockMode.READ, new Callable<Set<Class<?>>>()
+      Set<Class<?>> result = new HashSet<>();
+      for (ServiceRegistry serviceRegistry : getSnapshot().getServiceRegistries())
       {
-         @Override
-         public Set<Class<?>> call() throws Exception
-         {
-            Set<Class<?>> result = new HashSet<>();
-            for (Addon addon : getAddons())
-            {
-               if (addon.getStatus().isStarted())
-               {
-                  ServiceRegistry serviceRegistry = addon.getServiceRegistry();
-                  result.addAll(serviceRegistry.getExportedTypes());
-               }
-            }
-            return result;
-         }
-      });
+         result.addAll(serviceRegistry.getExportedTypes());
+      }
+      return result;
    }
 
    @Override
    public <T> Set<Class<T>> getExportedTypes(final Class<T> type)
    {
-      return lock.performLocked(LockMode.READ, new Callable<Set<Class<T>>>()
-      {
-         @Override
-         public Set<Class<T>> call() throws Exception
-         {
-            Set<Class<T>> result = new HashSet<>();
-            for (Addon addon : getAddons())
-            {
-               if (addon.getStatus().isStarted())
-               {
-                  ServiceRegistry serviceRegistry = addon.getServiceRegistry();
-                  result.addAll(serviceRegistry.getExportedTypes(type));
-               }
-            }
-            return result;
-         }
-      });
+      return getSnapshot().getExportedTypes(type);
    }
 
    @Override
@@ -284,5 +228,4 @@ public class AddonRegistryImpl implements AddonRegistry
          return false;
       return true;
    }
-
 }
@@ -7,9 +7,13 @@
 package org.jboss.forge.furnace.impl.addons;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.jboss.forge.furnace.Furnace;
 import org.jboss.forge.furnace.addons.AddonId;
@@ -31,6 +35,8 @@ import org.jboss.forge.furnace.versions.Versions;
 public final class AddonRepositoryImpl implements MutableAddonRepository, DirtyCheckableRepository
 {
 
+   private static final Logger logger = Logger.getLogger(AddonRepositoryImpl.class.getName());
+
    private static final String DEFAULT_ADDON_DIR = ".forge/addons";
 
    public static MutableAddonRepository forDirectory(Furnace furnace, File dir)
@@ -71,10 +77,27 @@ public final class AddonRepositoryImpl implements MutableAddonRepository, DirtyC
 
    private final File addonDir;
 
+   /*
+    * Only set when this repository uses the default strategies, which are the only ones that can be snapshotted.
+    */
+   private AddonRepositoryStorageStrategyImpl storageImpl;
+   private AddonRepositoryStateStrategyImpl stateImpl;
+
+   /*
+    * The snapshot last written by this instance, which later writes only update in part. Guarded by this instance.
+    */
+   private AddonRepositorySnapshot snapshot;
+
    private AddonRepositoryImpl(Furnace furnace, File addonDir)
    {
       this(new AddonRepositoryStorageStrategyImpl(furnace.getLockManager(), addonDir),
               new AddonRepositoryStateStrategyImpl(furnace, addonDir), addonDir);
+      this.storageImpl = (AddonRepositoryStorageStrategyImpl) storageRepository;
+      this.stateImpl = (AddonRepositoryStateStrategyImpl) stateRepository;
+
+      AddonRepositorySnapshot snapshot = AddonRepositorySnapshot.read(getSnapshotFile());
+      if (snapshot != null)
+         snapshot.preload(stateImpl, storageImpl);
    }
 
    public AddonRepositoryImpl(MutableAddonRepositoryStorageStrategy storageRepository,
@@ -125,13 +148,13 @@ public final class AddonRepositoryImpl implements MutableAddonRepository, DirtyC
    @Override
    public boolean disable(AddonId addon)
    {
-      return stateRepository.disable(addon);
+      return writeSnapshot(stateRepository.disable(addon), null);
    }
 
    @Override
    public boolean enable(AddonId addon)
    {
-      return stateRepository.enable(addon);
+      return writeSnapshot(stateRepository.enable(addon), null);
    }
 
    @Override
@@ -152,6 +175,32 @@ public final class AddonRepositoryImpl implements MutableAddonRepository, DirtyC
       return stateRepository.listEnabled();
    }
 
+   /**
+    * Returns the enabled {@link AddonId} instances with the given name.
+    */
+   public List<AddonId> listEnabled(String name)
+   {
+      return stateRepository.listEnabled(name);
+   }
+
+   /**
+    * Returns the enabled {@link AddonId} instances of the given {@link AddonRepository} with the given name, looked up
+    * by name if it is an {@link AddonRepositoryImpl}.
+    */
+   public static List<AddonId> listEnabled(AddonRepository repository, String name)
+   {
+      if (repository instanceof AddonRepositoryImpl)
+         return ((AddonRepositoryImpl) repository).listEnabled(name);
+
+      List<AddonId> result = new ArrayList<>();
+      for (AddonId id : repository.listEnabled())
+      {
+         if (id.getName().equals(name))
+            result.add(id);
+      }
+      return result;
+   }
+
    @Override
    public List<AddonId> listEnabledCompatibleWithVersion(Version version)
    {
@@ -167,13 +216,13 @@ public final class AddonRepositoryImpl implements MutableAddonRepository, DirtyC
    @Override
    public boolean deploy(AddonId addon, Iterable<AddonDependencyEntry> dependencies, Iterable<File> resourceJars)
    {
-      return storageRepository.deploy(addon, dependencies, resourceJars);
+      return writeSnapshot(storageRepository.deploy(addon, dependencies, resourceJars), addon);
    }
 
    @Override
    public boolean undeploy(AddonId addonEntry)
    {
-      return storageRepository.undeploy(addonEntry);
+      return writeSnapshot(storageRepository.undeploy(addonEntry), addonEntry);
    }
 
    @Override
@@ -218,9 +267,42 @@ public final class AddonRepositoryImpl implements MutableAddonRepository, DirtyC
       return new Date(addonDir.lastModified());
    }
 
+   private File getSnapshotFile()
+   {
+      return new File(addonDir, AddonRepositorySnapshot.SNAPSHOT_FILENAME);
+   }
+
+   /**
+    * Record the current repository contents in the snapshot file so the next {@link Furnace} instance can start without
+    * parsing every descriptor again. Only the registry and the entry of the given addon, if any, are captured again
+    * once this instance wrote a snapshot. Returns the given modification result unchanged.
+    */
+   private synchronized boolean writeSnapshot(boolean modified, AddonId changed)
+   {
+      if (modified && stateImpl != null && addonDir.isDirectory())
+      {
+         try
+         {
+            if (snapshot == null)
+               snapshot = AddonRepositorySnapshot.capture(stateImpl, storageImpl);
+            else
+               snapshot = snapshot.update(stateImpl, storageImpl, changed);
+            snapshot.write(getSnapshotFile());
+         }
+         catch (IOException | RuntimeException e)
+         {
+            logger.log(Level.WARNING, "Could not write repository snapshot [" + getSnapshotFile() + "]", e);
+         }
+      }
+      return modified;
+   }
+
    @Override
    public DirtyChecker createDirtyChecker()
    {
-      return new CompositeDirtyChecker(storageRepository.createDirtyChecker(), stateRepository.createDirtyChecker());
+      DirtyChecker storage = storageRepository.createDirtyChecker();
+      if (stateImpl != null)
+         storage = stateImpl.watchRegistry(storage);
+      return new CompositeDirtyChecker(storage, stateRepository.createDirtyChecker());
    }
 }
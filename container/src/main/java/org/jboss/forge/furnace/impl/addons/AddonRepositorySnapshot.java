@@ -0,0 +1,392 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.versions.Versions;
+
+/**
+ * A compact binary copy of everything Furnace reads from an addon repository before it can build the addon graph: the
+ * contents of <code>installed.xml</code>, the dependencies declared in each <code>addon.xml</code> and the resources
+ * of each addon directory. Every part is recorded together with the {@link FileStamp} of the file it was read from, so
+ * a part is only trusted for as long as that file is unchanged.
+ *
+ * @see AddonRepositoryImpl
+ */
+final class AddonRepositorySnapshot
+{
+   private static final Logger logger = Logger.getLogger(AddonRepositorySnapshot.class.getName());
+
+   static final String SNAPSHOT_FILENAME = "installed.bin";
+
+   private static final int MAGIC = 0x46524e53;
+   private static final int FORMAT_VERSION = 2;
+
+   /*
+    * The smallest number of bytes taken by an AddonId (three string lengths), a dependency (two string lengths and
+    * two flags) and a resource (a string length and a stamp), used to reject element counts the file cannot hold.
+    */
+   private static final int ADDON_ID_SIZE = 12;
+   private static final int DEPENDENCY_SIZE = 10;
+   private static final int RESOURCE_SIZE = 20;
+
+   private final FileStamp registryStamp;
+   private final List<AddonId> all;
+   private final Map<AddonId, Entry> entries;
+
+   private AddonRepositorySnapshot(FileStamp registryStamp, List<AddonId> all, Map<AddonId, Entry> entries)
+   {
+      this.registryStamp = registryStamp;
+      this.all = all;
+      this.entries = entries;
+   }
+
+   /**
+    * Capture the current state of the given strategies. Stamps are taken before the information they guard is read,
+    * so a concurrent modification can only make the snapshot stale, never wrong.
+    */
+   static AddonRepositorySnapshot capture(AddonRepositoryStateStrategyImpl state,
+            AddonRepositoryStorageStrategyImpl storage)
+   {
+      FileStamp registryStamp = FileStamp.of(state.getRegistryFile());
+      List<AddonId> all = state.listAll();
+
+      Map<AddonId, Entry> entries = new LinkedHashMap<>();
+      for (AddonId id : all)
+      {
+         Entry entry = captureEntry(storage, id);
+         if (entry != null)
+            entries.put(id, entry);
+      }
+      return new AddonRepositorySnapshot(registryStamp, all, entries);
+   }
+
+   /**
+    * Return a copy of this snapshot with the registry captured again from the given strategy, along with the entry of
+    * the given addon, if any. The entries of the other addons are kept as they are.
+    */
+   AddonRepositorySnapshot update(AddonRepositoryStateStrategyImpl state, AddonRepositoryStorageStrategyImpl storage,
+            AddonId changed)
+   {
+      FileStamp registryStamp = FileStamp.of(state.getRegistryFile());
+      List<AddonId> all = state.listAll();
+
+      Map<AddonId, Entry> entries = new LinkedHashMap<>(this.entries);
+      if (changed != null)
+      {
+         entries.remove(changed);
+         Entry entry = captureEntry(storage, changed);
+         if (entry != null)
+            entries.put(changed, entry);
+      }
+      return new AddonRepositorySnapshot(registryStamp, all, entries);
+   }
+
+   private static Entry captureEntry(AddonRepositoryStorageStrategyImpl storage, AddonId id)
+   {
+      if (!storage.isDeployed(id))
+         return null;
+
+      File descriptor = storage.getAddonDescriptor(id);
+      FileStamp descriptorStamp = FileStamp.of(descriptor);
+      Set<AddonDependencyEntry> dependencies = storage.getAddonDependencies(id);
+
+      File baseDir = storage.getAddonBaseDir(id);
+      FileStamp baseDirStamp = FileStamp.of(baseDir);
+      List<File> resources = storage.getAddonResources(id);
+      List<FileStamp> resourceStamps = new ArrayList<>();
+      for (File resource : resources)
+      {
+         resourceStamps.add(FileStamp.of(resource));
+      }
+
+      if (descriptorStamp == null || baseDirStamp == null)
+         return null;
+      return new Entry(id, descriptorStamp, dependencies, baseDirStamp, resources, resourceStamps);
+   }
+
+   /**
+    * Offer the contents of this snapshot to the given strategies. Parts whose source files changed since the snapshot
+    * was written are ignored by the strategies.
+    */
+   void preload(AddonRepositoryStateStrategyImpl state, AddonRepositoryStorageStrategyImpl storage)
+   {
+      if (registryStamp != null)
+         state.preload(all, registryStamp);
+
+      for (Entry entry : entries.values())
+      {
+         List<File> resources = entry.resources;
+         for (int i = 0; i < resources.size(); i++)
+         {
+            FileStamp stamp = entry.resourceStamps.get(i);
+            if (stamp == null || !stamp.equals(FileStamp.of(resources.get(i))))
+            {
+               resources = null;
+               break;
+            }
+         }
+         storage.preload(entry.id, entry.descriptorStamp, entry.dependencies, entry.baseDirStamp, resources);
+      }
+   }
+
+   /**
+    * Read the snapshot stored in the given file, or return <code>null</code> if it does not exist or is not readable.
+    * The file is read at once and closed before parsing, so it never stays open or mapped, and can be replaced by the
+    * next {@link #write(File)} on any platform. Resource paths are resolved against the directory of the file.
+    */
+   static AddonRepositorySnapshot read(File file)
+   {
+      if (!file.isFile())
+         return null;
+
+      try
+      {
+         Path root = file.getAbsoluteFile().getParentFile().toPath();
+         ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+         if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION)
+         {
+            logger.log(Level.FINE, "Ignoring repository snapshot [" + file + "] with unknown format.");
+            return null;
+         }
+
+         FileStamp registryStamp = readStamp(buffer);
+
+         int count = readCount(buffer, ADDON_ID_SIZE);
+         List<AddonId> all = new ArrayList<>(count);
+         for (int i = 0; i < count; i++)
+         {
+            all.add(readAddonId(buffer));
+         }
+
+         int entryCount = readCount(buffer, ADDON_ID_SIZE);
+         Map<AddonId, Entry> entries = new LinkedHashMap<>();
+         for (int i = 0; i < entryCount; i++)
+         {
+            AddonId id = readAddonId(buffer);
+            FileStamp descriptorStamp = readStamp(buffer);
+
+            int dependencyCount = readCount(buffer, DEPENDENCY_SIZE);
+            Set<AddonDependencyEntry> dependencies = new LinkedHashSet<>();
+            for (int j = 0; j < dependencyCount; j++)
+            {
+               String name = readString(buffer);
+               String range = readString(buffer);
+               boolean exported = buffer.get() != 0;
+               boolean optional = buffer.get() != 0;
+               dependencies.add(AddonDependencyEntry.create(name, Versions.parseMultipleVersionRange(range),
+                        exported, optional));
+            }
+
+            FileStamp baseDirStamp = readStamp(buffer);
+            int resourceCount = readCount(buffer, RESOURCE_SIZE);
+            List<File> resources = new ArrayList<>(resourceCount);
+            List<FileStamp> resourceStamps = new ArrayList<>(resourceCount);
+            for (int j = 0; j < resourceCount; j++)
+            {
+               String path = readString(buffer);
+               if (path == null)
+                  throw new IllegalArgumentException("Missing resource path of [" + id + "]");
+               resources.add(root.resolve(path).toFile());
+               resourceStamps.add(readStamp(buffer));
+            }
+
+            entries.put(id, new Entry(id, descriptorStamp, dependencies, baseDirStamp, resources, resourceStamps));
+         }
+
+         return new AddonRepositorySnapshot(registryStamp, Collections.unmodifiableList(all), entries);
+      }
+      catch (IOException | RuntimeException e)
+      {
+         /*
+          * Includes the BufferUnderflowException of a truncated file, the IllegalArgumentException of invalid counts
+          * and lengths, and the VersionException of an invalid version range. installed.xml is read instead.
+          */
+         logger.log(Level.FINE, "Could not read repository snapshot [" + file + "].", e);
+         return null;
+      }
+   }
+
+   /**
+    * Write this snapshot to the given file. The file is replaced atomically where the file system supports it.
+    * Resources within the directory of the file are recorded relative to it, so the repository may be moved.
+    */
+   void write(File file) throws IOException
+   {
+      Path root = file.getAbsoluteFile().getParentFile().toPath();
+      File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))
+      {
+         out.writeInt(MAGIC);
+         out.writeInt(FORMAT_VERSION);
+         writeStamp(out, registryStamp);
+
+         out.writeInt(all.size());
+         for (AddonId id : all)
+         {
+            writeAddonId(out, id);
+         }
+
+         out.writeInt(entries.size());
+         for (Entry entry : entries.values())
+         {
+            writeAddonId(out, entry.id);
+            writeStamp(out, entry.descriptorStamp);
+
+            out.writeInt(entry.dependencies.size());
+            for (AddonDependencyEntry dependency : entry.dependencies)
+            {
+               writeString(out, dependency.getName());
+               writeString(out, dependency.getVersionRange().toString());
+               out.writeByte(dependency.isExported() ? 1 : 0);
+               out.writeByte(dependency.isOptional() ? 1 : 0);
+            }
+
+            writeStamp(out, entry.baseDirStamp);
+            out.writeInt(entry.resources.size());
+            for (int i = 0; i < entry.resources.size(); i++)
+            {
+               writeString(out, relativize(root, entry.resources.get(i)));
+               writeStamp(out, entry.resourceStamps.get(i));
+            }
+         }
+      }
+
+      try
+      {
+         Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                  StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (IOException e)
+      {
+         Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+   }
+
+   private static String relativize(Path root, File file)
+   {
+      Path path = file.getAbsoluteFile().toPath();
+      if (path.startsWith(root))
+         path = root.relativize(path);
+      return path.toString();
+   }
+
+   private static void writeAddonId(DataOutputStream out, AddonId id) throws IOException
+   {
+      writeString(out, id.getName());
+      writeString(out, id.getVersion() == null ? null : id.getVersion().toString());
+      writeString(out, id.getApiVersion() == null ? null : id.getApiVersion().toString());
+   }
+
+   private static AddonId readAddonId(ByteBuffer buffer)
+   {
+      String name = readString(buffer);
+      String version = readString(buffer);
+      String apiVersion = readString(buffer);
+      return AddonId.from(name, version, apiVersion);
+   }
+
+   private static void writeStamp(DataOutputStream out, FileStamp stamp) throws IOException
+   {
+      if (stamp == null)
+      {
+         out.writeLong(-1);
+         out.writeLong(-1);
+      }
+      else
+      {
+         out.writeLong(stamp.getLastModified());
+         out.writeLong(stamp.getSize());
+      }
+   }
+
+   private static FileStamp readStamp(ByteBuffer buffer)
+   {
+      long lastModified = buffer.getLong();
+      long size = buffer.getLong();
+      return size < 0 ? null : new FileStamp(lastModified, size);
+   }
+
+   private static void writeString(DataOutputStream out, String value) throws IOException
+   {
+      if (value == null)
+      {
+         out.writeInt(-1);
+      }
+      else
+      {
+         byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+         out.writeInt(bytes.length);
+         out.write(bytes);
+      }
+   }
+
+   /**
+    * Read the number of elements of a list, each taking at least the given number of bytes.
+    */
+   private static int readCount(ByteBuffer buffer, int minimumSize)
+   {
+      int count = buffer.getInt();
+      if (count < 0 || (long) count * minimumSize > buffer.remaining())
+         throw new IllegalArgumentException("Invalid element count " + count + " at offset " + buffer.position());
+      return count;
+   }
+
+   private static String readString(ByteBuffer buffer)
+   {
+      int length = buffer.getInt();
+      if (length == -1)
+         return null;
+      if (length < 0 || length > buffer.remaining())
+         throw new IllegalArgumentException("Invalid string length " + length + " at offset " + buffer.position());
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+
+   private static class Entry
+   {
+      private final AddonId id;
+      private final FileStamp descriptorStamp;
+      private final Set<AddonDependencyEntry> dependencies;
+      private final FileStamp baseDirStamp;
+      private final List<File> resources;
+      private final List<FileStamp> resourceStamps;
+
+      public Entry(AddonId id, FileStamp descriptorStamp, Set<AddonDependencyEntry> dependencies,
+               FileStamp baseDirStamp, List<File> resources, List<FileStamp> resourceStamps)
+      {
+         this.id = id;
+         this.descriptorStamp = descriptorStamp;
+         this.dependencies = dependencies;
+         this.baseDirStamp = baseDirStamp;
+         this.resources = resources;
+         this.resourceStamps = resourceStamps;
+      }
+   }
+}
@@ -6,6 +6,7 @@
  */
 package org.jboss.forge.furnace.impl.addons;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.jboss.forge.furnace.addons.Addon;
@@ -36,6 +37,21 @@ public interface AddonRepositoryStateStrategy
     */
    public List<AddonId> listEnabled();
 
+   /**
+    * Returns a {@link List} of {@link AddonId} instances for the enabled {@link Addon}s in this repository with the
+    * given name. The default implementation filters {@link #listEnabled()}.
+    */
+   default List<AddonId> listEnabled(final String name)
+   {
+      List<AddonId> result = new ArrayList<>();
+      for (AddonId id : listEnabled())
+      {
+         if (id.getName().equals(name))
+            result.add(id);
+      }
+      return result;
+   }
+
    /**
     * Returns a {@link List} of {@link AddonId} instances for all enabled {@link Addon}s in this repository that are API
     * compatible with the given {@link Version}.
@@ -10,11 +10,20 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -52,6 +61,24 @@ public final class AddonRepositoryStateStrategyImpl extends AbstractFileSystemAd
 
    private int version = 1;
 
+   /**
+    * The last parsed state of the registry file. Replaced (never mutated) whenever it no longer matches the
+    * repository version, the registry file attributes or the current compatibility settings.
+    */
+   private volatile InstalledIndex index;
+
+   private volatile Preloaded preloaded;
+
+   private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+   /*
+    * The number of open directory watches (see watchRegistry) and of the changes they have seen. While a watch is
+    * open, a missing registry file is remembered until the watch sees a change, instead of being looked up on every
+    * read.
+    */
+   private final AtomicInteger registryWatches = new AtomicInteger();
+   private final AtomicLong registryChanges = new AtomicLong();
+
    public AddonRepositoryStateStrategyImpl(Furnace furnace, File addonDir)
    {
       super(furnace.getLockManager(), addonDir);
@@ -139,7 +166,7 @@ public final class AddonRepositoryStateStrategyImpl extends AbstractFileSystemAd
             {
                if (!registryFile.exists())
                {
-                  java.nio.file.Files.write(registryFile.toPath(), "<installed/>".getBytes(),
+                  Files.write(registryFile.toPath(), "<installed/>".getBytes(),
                            StandardOpenOption.CREATE_NEW);
                }
                return registryFile;
@@ -160,7 +187,7 @@ public final class AddonRepositoryStateStrategyImpl extends AbstractFileSystemAd
          @Override
          public Boolean call() throws Exception
          {
-            return listEnabled().contains(addon);
+            return getIndex().isEnabled(addon);
          }
       });
    }
@@ -168,25 +195,14 @@ public final class AddonRepositoryStateStrategyImpl extends AbstractFileSystemAd
    @Override
    public List<AddonId> listEnabled()
    {
-      final AddonCompatibilityStrategy strategy = furnace.getAddonCompatibilityStrategy();
       return lock.performLocked(LockMode.READ, new Callable<List<AddonId>>()
       {
          @Override
          public List<AddonId> call() throws Exception
          {
-            List<AddonId> list = listAll();
-            List<AddonId> result = new ArrayList<>();
-            for (AddonId entry : list)
-            {
-               if (strategy.isCompatible(furnace, entry))
-               {
-                  result.add(entry);
-               }
-            }
-            return result;
+            return getIndex().getEnabled();
          }
       });
-
    }
 
    @Override
@@ -197,9 +213,8 @@ public final class AddonRepositoryStateStrategyImpl extends AbstractFileSystemAd
          @Override
          public List<AddonId> call() throws Exception
          {
-            List<AddonId> list = listAll();
             List<AddonId> result = new ArrayList<>();
-            for (AddonId entry : list)
+            for (AddonId entry : getIndex().getAll())
             {
                if (version == null || entry.getApiVersion() == null
                         || Versions.isApiCompatible(version, entry.getApiVersion()))
@@ -220,36 +235,176 @@ public final class AddonRepositoryStateStrategyImpl extends AbstractFileSystemAd
          @Override
          public List<AddonId> call() throws Exception
          {
-            List<AddonId> result = new ArrayList<>();
-            File registryFile = getRepositoryRegistryFile();
-            try
+            return getIndex().getAll();
+         }
+      });
+   }
+
+   /**
+    * Returns the enabled {@link AddonId} instances with the given name, in registry order, from the index of the
+    * registry file.
+    */
+   @Override
+   public List<AddonId> listEnabled(final String name)
+   {
+      return lock.performLocked(LockMode.READ, new Callable<List<AddonId>>()
+      {
+         @Override
+         public List<AddonId> call() throws Exception
+         {
+            return getIndex().getEnabled(name);
+         }
+      });
+   }
+
+   /**
+    * Requires a {@link LockMode#READ} lock. A missing registry file is indexed as empty, and is not created.
+    */
+   private InstalledIndex getIndex() throws InterruptedException
+   {
+      File registryFile = new File(getRootDirectory(), REGISTRY_DESCRIPTOR_NAME);
+      long changes = registryChanges.get();
+      AddonCompatibilityStrategy strategy = furnace.getAddonCompatibilityStrategy();
+      Version runtimeVersion = furnace.getVersion();
+
+      InstalledIndex current = index;
+      if (current != null && current.isMissing(version, changes, strategy, runtimeVersion)
+               && registryWatches.get() > 0)
+         return current;
+
+      FileStamp stamp = FileStamp.of(registryFile);
+      if (current == null || !current.isValid(version, stamp, strategy, runtimeVersion))
+      {
+         int currentVersion = version;
+         List<AddonId> all;
+         Preloaded preloaded = this.preloaded;
+         if (preloaded != null && stamp != null && stamp.equals(preloaded.stamp))
+         {
+            all = preloaded.all;
+         }
+         else
+         {
+            this.preloaded = null;
+            all = stamp == null ? Collections.<AddonId> emptyList() : readRegistryFile(registryFile);
+         }
+
+         List<AddonId> enabled = new ArrayList<>();
+         for (AddonId entry : all)
+         {
+            if (strategy.isCompatible(furnace, entry))
             {
-               Node installed = getXmlRoot(registryFile);
-               if (installed == null)
-               {
-                  return Collections.emptyList();
-               }
-               List<Node> list = installed.get("addon");
-               for (Node addon : list)
+               enabled.add(entry);
+            }
+         }
+         current = new InstalledIndex(currentVersion, changes, stamp, strategy, runtimeVersion, all, enabled);
+         index = current;
+      }
+      return current;
+   }
+
+   /**
+    * Offer the contents of the registry file as they were when it had the given {@link FileStamp} (for instance, read
+    * from a {@link AddonRepositorySnapshot}). They are used instead of parsing the registry file for as long as the file
+    * still has the same {@link FileStamp}.
+    */
+   void preload(List<AddonId> all, FileStamp stamp)
+   {
+      this.preloaded = new Preloaded(all, stamp);
+   }
+
+   /**
+    * Wrap the given {@link DirtyChecker}, which must watch the directory holding the registry file, so that the
+    * changes it signals also invalidate the remembered absence of the registry file. That absence is only remembered
+    * while the returned {@link DirtyChecker} can signal changes.
+    */
+   DirtyChecker watchRegistry(final DirtyChecker directoryWatch)
+   {
+      return new DirtyChecker()
+      {
+         private boolean watching;
+
+         @Override
+         public boolean isDirty()
+         {
+            return directoryWatch.isDirty();
+         }
+
+         @Override
+         public void resetDirtyStatus()
+         {
+            directoryWatch.resetDirtyStatus();
+         }
+
+         @Override
+         public synchronized boolean setChangeListener(final Runnable listener)
+         {
+            boolean supported = directoryWatch.setChangeListener(new Runnable()
+            {
+               @Override
+               public void run()
                {
-                  AddonId entry = AddonId.from(addon.getAttribute(ATTR_NAME),
-                           addon.getAttribute(ATTR_VERSION),
-                           addon.getAttribute(ATTR_API_VERSION));
-                  result.add(entry);
+                  registryChanges.incrementAndGet();
+                  listener.run();
                }
-            }
-            catch (XMLParserException e)
+            });
+            if (supported && !watching)
             {
-               throw new RuntimeException("Invalid syntax in [" + registryFile.getAbsolutePath()
-                        + "] - Please delete this file and restart Furnace", e);
+               watching = true;
+               registryWatches.incrementAndGet();
             }
-            catch (FileNotFoundException e)
+            return supported;
+         }
+
+         @Override
+         public synchronized void close() throws Exception
+         {
+            if (watching)
             {
-               // this is OK, no addons installed
+               watching = false;
+               registryWatches.decrementAndGet();
             }
-            return result;
+            directoryWatch.close();
          }
-      });
+      };
+   }
+
+   /**
+    * Returns the registry file backing this {@link AddonRepositoryStateStrategyImpl}.
+    */
+   File getRegistryFile()
+   {
+      return getRepositoryRegistryFile();
+   }
+
+   private List<AddonId> readRegistryFile(File registryFile) throws InterruptedException
+   {
+      List<AddonId> result = new ArrayList<>();
+      try
+      {
+         Node installed = getXmlRoot(registryFile);
+         if (installed == null)
+         {
+            return Collections.emptyList();
+         }
+         List<Node> list = installed.get("addon");
+         for (Node addon : list)
+         {
+            AddonId entry = AddonId.from(addon.getAttribute(ATTR_NAME),
+                     addon.getAttribute(ATTR_VERSION),
+                     addon.getAttribute(ATTR_API_VERSION));
+            result.add(entry);
+         }
+      }
+      catch (XMLParserException e)
+      {
+         throw new RuntimeException("Invalid syntax in [" + registryFile.getAbsolutePath()
+                  + "] - Please delete this file and restart Furnace", e);
+      }
+      catch (FileNotFoundException e)
+      {
+         // this is OK, no addons installed
+      }
+      return result;
    }
 
    static Node getXmlRoot(File registryFile) throws FileNotFoundException, InterruptedException
@@ -291,11 +446,134 @@ public final class AddonRepositoryStateStrategyImpl extends AbstractFileSystemAd
    private void incrementVersion()
    {
       version++;
+      index = null;
+      for (Runnable listener : changeListeners)
+      {
+         listener.run();
+      }
    }
 
    @Override
    public DirtyChecker createDirtyChecker()
    {
-      return new VersionDirtyChecker(this::getVersion);
+      return new VersionDirtyChecker(this::getVersion)
+      {
+         private Runnable listener;
+
+         @Override
+         public synchronized boolean setChangeListener(Runnable listener)
+         {
+            if (this.listener != null)
+               changeListeners.remove(this.listener);
+            this.listener = listener;
+            changeListeners.add(listener);
+            return true;
+         }
+
+         @Override
+         public synchronized void close() throws Exception
+         {
+            if (listener != null)
+               changeListeners.remove(listener);
+            listener = null;
+         }
+      };
+   }
+
+   private static final class Preloaded
+   {
+      private final List<AddonId> all;
+      private final FileStamp stamp;
+
+      Preloaded(List<AddonId> all, FileStamp stamp)
+      {
+         this.all = all;
+         this.stamp = stamp;
+      }
+   }
+
+   /**
+    * Immutable snapshot of the registry file contents.
+    */
+   private static final class InstalledIndex
+   {
+      private final int version;
+      private final long changes;
+      private final FileStamp stamp;
+      private final AddonCompatibilityStrategy strategy;
+      private final Version runtimeVersion;
+
+      private final List<AddonId> all;
+      private final List<AddonId> enabled;
+      private final Set<AddonId> enabledIds;
+      private final Map<String, List<AddonId>> enabledByName;
+
+      InstalledIndex(int version, long changes, FileStamp stamp, AddonCompatibilityStrategy strategy,
+               Version runtimeVersion, List<AddonId> all, List<AddonId> enabled)
+      {
+         this.version = version;
+         this.changes = changes;
+         this.stamp = stamp;
+         this.strategy = strategy;
+         this.runtimeVersion = runtimeVersion;
+         this.all = Collections.unmodifiableList(new ArrayList<>(all));
+         this.enabled = Collections.unmodifiableList(new ArrayList<>(enabled));
+         this.enabledIds = Collections.unmodifiableSet(new LinkedHashSet<>(enabled));
+
+         Map<String, List<AddonId>> byName = new LinkedHashMap<>();
+         for (AddonId id : enabled)
+         {
+            List<AddonId> ids = byName.get(id.getName());
+            if (ids == null)
+            {
+               ids = new ArrayList<>(1);
+               byName.put(id.getName(), ids);
+            }
+            ids.add(id);
+         }
+         for (Map.Entry<String, List<AddonId>> entry : byName.entrySet())
+         {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+         }
+         this.enabledByName = byName;
+      }
+
+      boolean isValid(int version, FileStamp stamp, AddonCompatibilityStrategy strategy, Version runtimeVersion)
+      {
+         return this.version == version
+                  && Objects.equals(stamp, this.stamp)
+                  && this.strategy == strategy
+                  && Objects.equals(runtimeVersion, this.runtimeVersion);
+      }
+
+      /**
+       * Returns <code>true</code> if this index was built while the registry file was missing, and nothing it depends
+       * on has changed since.
+       */
+      boolean isMissing(int version, long changes, AddonCompatibilityStrategy strategy, Version runtimeVersion)
+      {
+         return stamp == null && this.changes == changes && isValid(version, null, strategy, runtimeVersion);
+      }
+
+      List<AddonId> getAll()
+      {
+         return all;
+      }
+
+      List<AddonId> getEnabled()
+      {
+         return enabled;
+      }
+
+      List<AddonId> getEnabled(String name)
+      {
+         List<AddonId> result = enabledByName.get(name);
+         return result == null ? Collections.<AddonId> emptyList() : result;
+      }
+
+      boolean isEnabled(AddonId id)
+      {
+         return enabledIds.contains(id);
+      }
    }
 }
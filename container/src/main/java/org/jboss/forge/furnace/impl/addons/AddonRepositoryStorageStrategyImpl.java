@@ -20,6 +20,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.impl.modules.AddonModuleLoader;
 import org.jboss.forge.furnace.impl.util.Files;
 import org.jboss.forge.furnace.lock.LockManager;
 import org.jboss.forge.furnace.lock.LockMode;
@@ -58,6 +59,9 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
    private static final String DEPENDENCY_TAG_NAME = "dependency";
    private static final String DEPENDENCIES_TAG_NAME = "dependencies";
 
+   private final AddonDescriptorCache<Set<AddonDependencyEntry>> dependencyCache = new AddonDescriptorCache<>();
+   private final AddonDescriptorCache<List<File>> resourceCache = new AddonDescriptorCache<>();
+
    public AddonRepositoryStorageStrategyImpl(LockManager lock, File addonDir)
    {
       super(lock, addonDir);
@@ -147,6 +151,7 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
             {
                Streams.write(XMLParser.toXMLInputStream(addonXml), fos);
             }
+            invalidate(addon);
             return true;
          }
       });
@@ -178,34 +183,44 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
          @Override
          public Set<AddonDependencyEntry> call() throws Exception
          {
-            Set<AddonDependencyEntry> result = new LinkedHashSet<AddonDependencyEntry>();
-            File descriptor = getAddonDescriptor(addon);
-
-            try
+            final File descriptor = getAddonDescriptor(addon);
+            return dependencyCache.get(addon, descriptor, new Callable<Set<AddonDependencyEntry>>()
             {
-               Node installed = getXmlRoot(descriptor);
-
-               List<Node> children = installed.get("dependencies/dependency");
-               for (final Node child : children)
+               @Override
+               public Set<AddonDependencyEntry> call() throws Exception
                {
-                  if (child != null)
-                  {
-                     result.add(AddonDependencyEntry.create(
-                              child.getAttribute(ATTR_NAME),
-                              Versions.parseMultipleVersionRange(child.getAttribute(ATTR_VERSION)),
-                              Boolean.valueOf(child.getAttribute(ATTR_EXPORT)),
-                              Boolean.valueOf(child.getAttribute(ATTR_OPTIONAL))));
-                  }
+                  return Collections.unmodifiableSet(readAddonDependencies(descriptor));
                }
-            }
-            catch (FileNotFoundException e)
+            });
+         }
+      });
+   }
+
+   private Set<AddonDependencyEntry> readAddonDependencies(File descriptor) throws InterruptedException
+   {
+      Set<AddonDependencyEntry> result = new LinkedHashSet<AddonDependencyEntry>();
+      try
+      {
+         Node installed = getXmlRoot(descriptor);
+
+         List<Node> children = installed.get("dependencies/dependency");
+         for (final Node child : children)
+         {
+            if (child != null)
             {
-               // already removed
+               result.add(AddonDependencyEntry.create(
+                        child.getAttribute(ATTR_NAME),
+                        Versions.parseMultipleVersionRange(child.getAttribute(ATTR_VERSION)),
+                        Boolean.valueOf(child.getAttribute(ATTR_EXPORT)),
+                        Boolean.valueOf(child.getAttribute(ATTR_OPTIONAL))));
             }
-
-            return result;
          }
-      });
+      }
+      catch (FileNotFoundException e)
+      {
+         // already removed
+      }
+      return result;
    }
 
    @Override
@@ -267,18 +282,26 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
          @Override
          public List<File> call() throws Exception
          {
-            File dir = getAddonBaseDir(found);
+            final File dir = getAddonBaseDir(found);
             if (dir.exists())
             {
-               File[] files = dir.listFiles(new FileFilter()
+               return resourceCache.get(found, dir, new Callable<List<File>>()
                {
                   @Override
-                  public boolean accept(File pathname)
+                  public List<File> call() throws Exception
                   {
-                     return pathname.isDirectory() || pathname.getName().endsWith(".jar");
+                     File[] files = dir.listFiles(new FileFilter()
+                     {
+                        @Override
+                        public boolean accept(File pathname)
+                        {
+                           return pathname.isDirectory() || pathname.getName().endsWith(".jar");
+                        }
+                     });
+                     return files == null ? Collections.<File> emptyList()
+                              : Collections.unmodifiableList(Arrays.asList(files));
                   }
                });
-               return Arrays.asList(files);
             }
             return Collections.emptyList();
          }
@@ -310,11 +333,41 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
          public Boolean call() throws Exception
          {
             File dir = getAddonBaseDir(addon);
-            return Files.delete(dir, true);
+            try
+            {
+               return Files.delete(dir, true);
+            }
+            finally
+            {
+               invalidate(addon);
+            }
          }
       });
    }
 
+   /**
+    * Offer the dependencies and resources of the given {@link AddonId} as they were when its descriptor and base
+    * directory had the given {@link FileStamp} instances (for instance, read from a {@link AddonRepositorySnapshot}).
+    * They are used until either file changes.
+    */
+   void preload(AddonId addon, FileStamp descriptorStamp, Set<AddonDependencyEntry> dependencies,
+            FileStamp baseDirStamp, List<File> resources)
+   {
+      if (descriptorStamp != null && dependencies != null)
+         dependencyCache.put(addon, descriptorStamp, Collections.unmodifiableSet(dependencies));
+      if (baseDirStamp != null && resources != null)
+         resourceCache.put(addon, baseDirStamp, Collections.unmodifiableList(resources));
+   }
+
+   /**
+    * Discard any cached descriptor information for the given {@link AddonId}.
+    */
+   private void invalidate(AddonId addon)
+   {
+      dependencyCache.invalidate(addon);
+      resourceCache.invalidate(addon);
+   }
+
    private Node getXmlRoot(File registryFile) throws FileNotFoundException, InterruptedException
    {
       Node installed = null;
@@ -336,6 +389,8 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
 
    @Override
    public DirtyChecker createDirtyChecker() {
-      return new FileSystemDirtyChecker(addonDir);
+      return new FileSystemDirtyChecker(addonDir, AddonRepositorySnapshot.SNAPSHOT_FILENAME,
+               AddonRepositorySnapshot.SNAPSHOT_FILENAME + ".tmp", AddonModuleLoader.MODULE_LAYOUTS_FILENAME,
+               AddonModuleLoader.MODULE_LAYOUTS_FILENAME + ".tmp");
    }
 }
@@ -44,7 +44,6 @@ public final class AddonRunnable implements Runnable
    private final Furnace furnace;
    private final Addon addon;
 
-   private final AddonLifecycleManager lifecycleManager;
    private final AddonStateManager stateManager;
 
    private AddonLifecycleProviderEntry lifecycleProviderEntry;
@@ -58,10 +57,8 @@ public final class AddonRunnable implements Runnable
       }
    };
 
-   public AddonRunnable(Furnace furnace, AddonLifecycleManager lifecycleManager, AddonStateManager stateManager,
-            Addon addon)
+   public AddonRunnable(Furnace furnace, AddonStateManager stateManager, Addon addon)
    {
-      this.lifecycleManager = lifecycleManager;
       this.stateManager = stateManager;
       this.furnace = furnace;
       this.addon = addon;
@@ -117,7 +114,6 @@ public final class AddonRunnable implements Runnable
       }
       finally
       {
-         lifecycleManager.finishedStarting(addon);
          SecurityActions.cleanupThreadLocals(Thread.currentThread());
          currentThread.setName(name);
          currentThread.setContextClassLoader(null);
@@ -132,11 +128,21 @@ public final class AddonRunnable implements Runnable
 
    private void firePostStartup(final AddonLifecycleProvider lifecycleProvider) throws Exception
    {
-      // Wait until all dependencies are started
-      for (AddonDependency dependency : addon.getDependencies())
+      // Wait until all dependencies are started, without holding back the addons waiting for a startup thread
+      for (final AddonDependency dependency : addon.getDependencies())
       {
          if (dependency.getDependency().getStatus().isLoaded())
-            Addons.waitUntilStarted(dependency.getDependency());
+         {
+            AddonStartupExecutor.managedBlock(new Callable<Void>()
+            {
+               @Override
+               public Void call() throws Exception
+               {
+                  Addons.waitUntilStarted(dependency.getDependency());
+                  return null;
+               }
+            });
+         }
       }
       // Fire PostStartup event to this addon
       lifecycleProvider.postStartup(addon);
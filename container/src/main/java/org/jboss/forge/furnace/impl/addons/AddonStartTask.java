@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.forge.furnace.addons.Addon;
+
+/**
+ * The boot-up sequence of an {@link Addon}, which reports to the {@link AddonLifecycleManager} once it is over. Tasks
+ * waiting for a thread are ordered by priority, so addons on the longest chain of dependent addons are started first;
+ * tasks of equal priority run in submission order.
+ */
+class AddonStartTask extends FutureTask<Void> implements Comparable<AddonStartTask>
+{
+   private static final AtomicLong SEQUENCE = new AtomicLong();
+
+   private final AddonLifecycleManager lifecycleManager;
+   private final Addon addon;
+   private final AtomicBoolean claimed = new AtomicBoolean();
+   private final CompletableFuture<Void> finished = new CompletableFuture<>();
+   private final int priority;
+   private final long sequence = SEQUENCE.getAndIncrement();
+
+   AddonStartTask(AddonLifecycleManager lifecycleManager, Addon addon, AddonRunnable runnable, int priority)
+   {
+      super(runnable, null);
+      this.lifecycleManager = lifecycleManager;
+      this.addon = addon;
+      this.priority = priority;
+   }
+
+   @Override
+   public void run()
+   {
+      if (!claimed.compareAndSet(false, true))
+         return;
+
+      try
+      {
+         super.run();
+      }
+      finally
+      {
+         finished();
+      }
+   }
+
+   @Override
+   protected void done()
+   {
+      /*
+       * A task cancelled while running is done before its runnable returns, so only report tasks that never ran. The
+       * others report once they have really stopped running.
+       */
+      if (claimed.compareAndSet(false, true))
+         finished();
+   }
+
+   private void finished()
+   {
+      try
+      {
+         lifecycleManager.finishedStarting(addon);
+      }
+      finally
+      {
+         finished.complete(null);
+      }
+   }
+
+   /**
+    * Return a {@link CompletionStage} that is completed once this task will not run any code of its {@link Addon}
+    * anymore.
+    */
+   CompletionStage<Void> whenFinished()
+   {
+      return finished;
+   }
+
+   @Override
+   public int compareTo(AddonStartTask other)
+   {
+      if (priority != other.priority)
+         return priority > other.priority ? -1 : 1;
+      return Long.compare(sequence, other.sequence);
+   }
+
+   @Override
+   public String toString()
+   {
+      return addon + " (priority " + priority + ")";
+   }
+}
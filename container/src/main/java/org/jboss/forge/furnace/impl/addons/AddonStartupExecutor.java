@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts {@link AddonStartTask} instances on a bounded number of threads, taking waiting tasks in priority order. A
+ * task that has to wait on another addon does so through {@link #managedBlock(Callable)}, which adds a compensating
+ * thread for as long as it waits, so the tasks queued behind it still get to run. Idle threads are released.
+ */
+final class AddonStartupExecutor extends ThreadPoolExecutor
+{
+   private static final ThreadLocal<AddonStartupExecutor> CURRENT = new ThreadLocal<>();
+
+   private final int threads;
+   private int blocked;
+
+   AddonStartupExecutor(int threads)
+   {
+      super(threads, threads, 10, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>());
+      this.threads = threads;
+      allowCoreThreadTimeOut(true);
+   }
+
+   /**
+    * Run the given blocking call. If the current thread belongs to an {@link AddonStartupExecutor}, its pool gets one
+    * more thread until the call returns.
+    */
+   static <T> T managedBlock(Callable<T> call) throws Exception
+   {
+      AddonStartupExecutor executor = CURRENT.get();
+      if (executor == null)
+         return call.call();
+
+      executor.resize(1);
+      try
+      {
+         return call.call();
+      }
+      finally
+      {
+         executor.resize(-1);
+      }
+   }
+
+   synchronized int getBlockedCount()
+   {
+      return blocked;
+   }
+
+   @Override
+   protected void beforeExecute(Thread thread, Runnable task)
+   {
+      CURRENT.set(this);
+      super.beforeExecute(thread, task);
+   }
+
+   @Override
+   protected void afterExecute(Runnable task, Throwable failure)
+   {
+      super.afterExecute(task, failure);
+      CURRENT.remove();
+   }
+
+   /**
+    * Growing the core size starts a thread for any queued task. Threads beyond a reduced size exit once idle.
+    */
+   private synchronized void resize(int delta)
+   {
+      blocked += delta;
+      int size = threads + blocked;
+      if (delta > 0)
+      {
+         setMaximumPoolSize(size);
+         setCorePoolSize(size);
+      }
+      else
+      {
+         setCorePoolSize(size);
+         setMaximumPoolSize(size);
+      }
+   }
+}
@@ -212,25 +212,15 @@ public class AddonStateManager
       AddonId result = null;
 
       AddonView view = views.iterator().next();
-      for (AddonId id : getAllEnabled(view.getRepositories()))
+      for (AddonRepository repository : view.getRepositories())
       {
-         if (name.equals(id.getName()) && (result == null || id.getVersion().compareTo(result.getVersion()) >= 0))
-            result = id;
-      }
-
-      return result;
-   }
-
-   private Set<AddonId> getAllEnabled(Set<AddonRepository> repositories)
-   {
-      Set<AddonId> result = new HashSet<AddonId>();
-      for (AddonRepository repository : repositories)
-      {
-         for (AddonId enabled : repository.listEnabled())
+         for (AddonId id : AddonRepositoryImpl.listEnabled(repository, name))
          {
-            result.add(enabled);
+            if (result == null || id.getVersion().compareTo(result.getVersion()) >= 0)
+               result = id;
          }
       }
+
       return result;
    }
 
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.event.EventManager;
+import org.jboss.forge.furnace.lock.LockManager;
+import org.jboss.forge.furnace.services.Imported;
+import org.jboss.forge.furnace.spi.ExportedInstance;
+import org.jboss.forge.furnace.spi.ServiceRegistry;
+
+/**
+ * An immutable copy of the {@link Addon} instances in an {@link AddonView}, and of the {@link ServiceRegistry} of each
+ * started {@link Addon}. A new snapshot is published by the {@link AddonLifecycleManager} whenever an {@link Addon}
+ * joins the view or starts or stops, so readers may iterate a snapshot without locking. Services exported by the
+ * started addons are looked up through the {@link ServiceIndex} shared by the snapshots of the view, which always
+ * reflects the latest snapshot, and the addons observing each event type are remembered for as long as the snapshot is
+ * current. So are the {@link Imported} instances handed out by the view, which are dropped along with the snapshot, and
+ * never keep the types of stopped addons reachable.
+ */
+public final class AddonViewSnapshot
+{
+   private final long generation;
+   private final Set<Addon> addons;
+   private final List<Addon> startedAddons;
+   private final List<ServiceRegistry> serviceRegistries;
+   private final ServiceIndex serviceIndex;
+   private final ConcurrentMap<Class<?>, List<EventManager>> observers = new ConcurrentHashMap<>();
+   private final ConcurrentMap<Object, Imported<?>> imported = new ConcurrentHashMap<>();
+
+   private AddonViewSnapshot(long generation, Set<Addon> addons, List<Addon> startedAddons,
+            List<ServiceRegistry> serviceRegistries, ServiceIndex serviceIndex)
+   {
+      this.generation = generation;
+      this.addons = addons;
+      this.startedAddons = startedAddons;
+      this.serviceRegistries = serviceRegistries;
+      this.serviceIndex = serviceIndex;
+   }
+
+   /**
+    * Capture the given {@link Addon} instances. The {@link ServiceIndex} of the previous snapshot, if any, is carried
+    * over and told which registries came or went.
+    */
+   static AddonViewSnapshot capture(LockManager lock, long generation, Collection<Addon> addons,
+            AddonViewSnapshot previous)
+   {
+      Set<Addon> all = new LinkedHashSet<>(addons);
+      List<Addon> started = new ArrayList<>();
+      List<ServiceRegistry> registries = new ArrayList<>();
+      for (Addon addon : all)
+      {
+         if (addon.getStatus().isStarted())
+         {
+            started.add(addon);
+            ServiceRegistry registry = addon.getServiceRegistry();
+            if (registry != null)
+               registries.add(registry);
+         }
+      }
+      List<ServiceRegistry> serviceRegistries = Collections.unmodifiableList(registries);
+      ServiceIndex serviceIndex = previous == null ? new ServiceIndex(lock) : previous.serviceIndex;
+      serviceIndex.update(generation, serviceRegistries);
+      return new AddonViewSnapshot(generation, Collections.unmodifiableSet(all),
+               Collections.unmodifiableList(started), serviceRegistries, serviceIndex);
+   }
+
+   /**
+    * The order in which this snapshot was captured. A snapshot only replaces snapshots of a lower generation.
+    */
+   long getGeneration()
+   {
+      return generation;
+   }
+
+   /**
+    * @return every {@link Addon} in the view, regardless of its status.
+    */
+   public Set<Addon> getAddons()
+   {
+      return addons;
+   }
+
+   /**
+    * @return the {@link Addon} instances that were started when this snapshot was captured.
+    */
+   public List<Addon> getStartedAddons()
+   {
+      return startedAddons;
+   }
+
+   /**
+    * @return the {@link ServiceRegistry} of each {@link Addon} in {@link #getStartedAddons()}.
+    */
+   public List<ServiceRegistry> getServiceRegistries()
+   {
+      return serviceRegistries;
+   }
+
+   /**
+    * @return the {@link EventManager} of each started {@link Addon} that {@link EventManager#observes(Class) observes}
+    *         the given event type.
+    */
+   public List<EventManager> getObservers(Class<?> eventType)
+   {
+      List<EventManager> result = observers.get(eventType);
+      if (result == null)
+      {
+         List<EventManager> found = new ArrayList<>();
+         for (Addon addon : startedAddons)
+         {
+            EventManager eventManager = addon.getEventManager();
+            if (eventManager != null && eventManager.observes(eventType))
+               found.add(eventManager);
+         }
+         result = Collections.unmodifiableList(found);
+         List<EventManager> existing = observers.putIfAbsent(eventType, result);
+         if (existing != null)
+            result = existing;
+      }
+      return result;
+   }
+
+   /**
+    * @return the {@link Imported} instances of the view, by {@link Class} or by type name. Since {@link Imported}
+    *         instances always reflect the current services of the view, they may be kept for as long as the snapshot.
+    */
+   ConcurrentMap<Object, Imported<?>> getImportedCache()
+   {
+      return imported;
+   }
+
+   /**
+    * @return the {@link ExportedInstance} objects of the given type exported by the started addons.
+    */
+   public <T> Set<ExportedInstance<T>> getExportedInstances(Class<T> type)
+   {
+      return serviceIndex.getExportedInstances(type);
+   }
+
+   /**
+    * @return the {@link ExportedInstance} objects of the type with the given name exported by the started addons.
+    */
+   public <T> Set<ExportedInstance<T>> getExportedInstances(String typeName)
+   {
+      return serviceIndex.getExportedInstances(typeName);
+   }
+
+   /**
+    * @return the service types assignable to the given type exported by the started addons.
+    */
+   public <T> Set<Class<T>> getExportedTypes(Class<T> type)
+   {
+      return serviceIndex.getExportedTypes(type);
+   }
+
+   /**
+    * @return <code>true</code> if any started addon exports a service assignable to the given type.
+    */
+   public boolean hasService(Class<?> type)
+   {
+      return serviceIndex.hasService(type);
+   }
+
+   /**
+    * @return <code>true</code> if any started addon exports a service of the type with the given name.
+    */
+   public boolean hasService(String typeName)
+   {
+      return serviceIndex.hasService(typeName);
+   }
+}
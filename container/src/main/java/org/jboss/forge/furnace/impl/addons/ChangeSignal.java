@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wakes up a thread waiting for changes in the container, such as a modified repository or an addon that finished
+ * starting. A signal raised while nobody is waiting is remembered until the next call to {@link #await(long, TimeUnit)}.
+ */
+public class ChangeSignal
+{
+   private boolean signalled;
+
+   /**
+    * Wake up the waiting thread.
+    */
+   public synchronized void signal()
+   {
+      signalled = true;
+      notifyAll();
+   }
+
+   /**
+    * Wait until {@link #signal()} is called, or until the given timeout has elapsed. A timeout of zero or less waits
+    * without limit. Returns <code>true</code> if a signal was received.
+    */
+   public synchronized boolean await(long timeout, TimeUnit unit) throws InterruptedException
+   {
+      if (timeout <= 0)
+      {
+         while (!signalled)
+            wait();
+      }
+      else
+      {
+         long deadline = System.nanoTime() + unit.toNanos(timeout);
+         long remaining = unit.toNanos(timeout);
+         while (!signalled && remaining > 0)
+         {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            remaining = deadline - System.nanoTime();
+         }
+      }
+
+      boolean result = signalled;
+      signalled = false;
+      return result;
+   }
+}
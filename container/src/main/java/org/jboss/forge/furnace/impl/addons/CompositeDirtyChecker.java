@@ -24,15 +24,16 @@ public class CompositeDirtyChecker implements DirtyChecker
     @Override
     public boolean isDirty()
     {
+        /*
+         * Ask every checker, so that each one knows which changes the following resetDirtyStatus() acknowledges.
+         */
+        boolean dirty = false;
         for (DirtyChecker dirtyChecker : dirtyCheckers)
         {
-            if (dirtyChecker.isDirty())
-            {
-                return true;
-            }
+            dirty |= dirtyChecker.isDirty();
         }
 
-        return false;
+        return dirty;
     }
 
     @Override
@@ -44,6 +45,17 @@ public class CompositeDirtyChecker implements DirtyChecker
         }
     }
 
+    @Override
+    public boolean setChangeListener(Runnable listener)
+    {
+        boolean supported = true;
+        for (DirtyChecker dirtyChecker : dirtyCheckers)
+        {
+            supported &= dirtyChecker.setChangeListener(listener);
+        }
+        return supported;
+    }
+
     @Override
     public void close() throws Exception
     {
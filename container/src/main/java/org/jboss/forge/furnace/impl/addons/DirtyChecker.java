@@ -20,6 +20,16 @@ public interface DirtyChecker extends AutoCloseable
     {
     }
 
+    /**
+     * Register a {@link Runnable} to be called whenever this {@link DirtyChecker} may have become dirty, so that callers
+     * do not need to poll {@link #isDirty()}. Returns <code>false</code> if changes cannot be signalled, in which case
+     * {@link #isDirty()} must still be polled.
+     */
+    default boolean setChangeListener(Runnable listener)
+    {
+        return false;
+    }
+
     @Override
     default void close() throws Exception
     {
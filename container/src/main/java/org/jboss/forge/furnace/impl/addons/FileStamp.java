@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The modification time and size of a {@link File} at a given point in time. Used to decide whether information
+ * derived from a file is still current.
+ */
+final class FileStamp
+{
+   private final long lastModified;
+   private final long size;
+
+   FileStamp(long lastModified, long size)
+   {
+      this.lastModified = lastModified;
+      this.size = size;
+   }
+
+   /**
+    * Returns the current {@link FileStamp} of the given {@link File}, or <code>null</code> if its attributes could not
+    * be read.
+    */
+   static FileStamp of(File file)
+   {
+      try
+      {
+         BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+         return new FileStamp(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), attributes.size());
+      }
+      catch (IOException e)
+      {
+         return null;
+      }
+   }
+
+   long getLastModified()
+   {
+      return lastModified;
+   }
+
+   long getSize()
+   {
+      return size;
+   }
+
+   @Override
+   public int hashCode()
+   {
+      final int prime = 31;
+      int result = 1;
+      result = prime * result + (int) (lastModified ^ (lastModified >>> 32));
+      result = prime * result + (int) (size ^ (size >>> 32));
+      return result;
+   }
+
+   @Override
+   public boolean equals(Object obj)
+   {
+      if (this == obj)
+         return true;
+      if (obj == null)
+         return false;
+      if (getClass() != obj.getClass())
+         return false;
+      FileStamp other = (FileStamp) obj;
+      return lastModified == other.lastModified && size == other.size;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "[" + lastModified + "," + size + "]";
+   }
+}
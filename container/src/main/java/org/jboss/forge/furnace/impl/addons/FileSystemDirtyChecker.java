@@ -9,7 +9,11 @@ package org.jboss.forge.furnace.impl.addons;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,11 +28,31 @@ public class FileSystemDirtyChecker extends LazyDirtyChecker
 
     private final File directory;
 
+    private final Set<String> ignoredFileNames;
+
+    private final AtomicLong changes = new AtomicLong();
+
+    private long changesObserved = 0;
+
+    private long changesSeen = 0;
+
     private WatchService watcher;
 
+    private Thread watcherThread;
+
     public FileSystemDirtyChecker(File directory)
+    {
+        this(directory, new String[0]);
+    }
+
+    /**
+     * Create a {@link FileSystemDirtyChecker} that does not consider changes to the given file names as changes of the
+     * monitored directory.
+     */
+    public FileSystemDirtyChecker(File directory, String... ignoredFileNames)
     {
         this.directory = directory;
+        this.ignoredFileNames = new HashSet<>(Arrays.asList(ignoredFileNames));
     }
 
     @Override
@@ -68,30 +92,95 @@ public class FileSystemDirtyChecker extends LazyDirtyChecker
         }
     }
 
+    /**
+     * Start a daemon thread that blocks on the {@link WatchService} and calls the given listener as soon as a change is
+     * detected. From then on {@link #isDirty()} reports the changes seen by that thread instead of polling.
+     */
     @Override
-    protected boolean isDirtyInternal()
+    public synchronized boolean setChangeListener(final Runnable listener)
+    {
+        if (initialized.compareAndSet(false, true))
+            init();
+
+        if (watcher == null)
+            return false;
+
+        if (watcherThread == null)
+        {
+            final WatchService watchService = watcher;
+            watcherThread = new Thread("Furnace Repository Watcher [" + directory + "]")
+            {
+                @Override
+                public void run()
+                {
+                    while (true)
+                    {
+                        WatchKey key;
+                        try
+                        {
+                            key = watchService.take();
+                        }
+                        catch (ClosedWatchServiceException | InterruptedException e)
+                        {
+                            return;
+                        }
+
+                        if (isRelevant(key.pollEvents()))
+                        {
+                            changes.incrementAndGet();
+                            listener.run();
+                        }
+                        key.reset();
+                    }
+                }
+            };
+            watcherThread.setDaemon(true);
+            watcherThread.start();
+        }
+        return true;
+    }
+
+    @Override
+    protected synchronized boolean isDirtyInternal()
     {
         if (watcher == null)
         {
             return false;
         }
 
-        boolean dirty = false;
-        WatchKey key = watcher.poll();
-        while (key != null)
+        if (watcherThread == null)
         {
-            List<WatchEvent<?>> events = key.pollEvents();
-            if (!events.isEmpty())
+            WatchKey key = watcher.poll();
+            while (key != null)
             {
-                logger.log(Level.FINE, "Detected changes in repository ["
-                        + events.iterator().next().context()
-                        + "].");
-                dirty = true;
+                if (isRelevant(key.pollEvents()))
+                    changes.incrementAndGet();
+                key = watcher.poll();
             }
-            key = watcher.poll();
         }
 
-        return dirty;
+        changesObserved = changes.get();
+        return changesObserved > changesSeen;
+    }
+
+    @Override
+    public synchronized void resetDirtyStatus()
+    {
+        changesSeen = changesObserved;
+    }
+
+    private boolean isRelevant(List<WatchEvent<?>> events)
+    {
+        for (WatchEvent<?> event : events)
+        {
+            Object context = event.context();
+            if (context == null || !ignoredFileNames.contains(context.toString()))
+            {
+                logger.log(Level.FINE, "Detected changes in repository [" + context + "].");
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
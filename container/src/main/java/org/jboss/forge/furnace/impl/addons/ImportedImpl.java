@@ -6,25 +6,16 @@
  */
 package org.jboss.forge.furnace.impl.addons;
 
-import java.util.Collection;
 import java.util.Collections;
-import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
-import java.util.concurrent.Callable;
 
-import org.jboss.forge.furnace.addons.Addon;
-import org.jboss.forge.furnace.addons.AddonRegistry;
 import org.jboss.forge.furnace.exception.ContainerException;
-import org.jboss.forge.furnace.lock.LockManager;
-import org.jboss.forge.furnace.lock.LockMode;
 import org.jboss.forge.furnace.services.Imported;
 import org.jboss.forge.furnace.spi.ExportedInstance;
-import org.jboss.forge.furnace.spi.ServiceRegistry;
 import org.jboss.forge.furnace.util.Assert;
-import org.jboss.forge.furnace.util.Sets;
 
 /**
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
@@ -33,26 +24,20 @@ public class ImportedImpl<T> implements Imported<T>
 {
    private final Map<T, ExportedInstance<T>> instanceMap = Collections.synchronizedMap(new WeakHashMap<>());
 
-   private final AddonRegistry addonRegistry;
-   private final LockManager lock;
+   private final AddonRegistryImpl addonRegistry;
    private Class<T> type;
    private final String typeName;
 
-   private final Set<ExportedInstance<T>> instanceCache = Sets.getConcurrentSet();
-   private long version = -1;
-
-   public ImportedImpl(AddonRegistry addonRegistry, LockManager lock, Class<T> type)
+   public ImportedImpl(AddonRegistryImpl addonRegistry, Class<T> type)
    {
       this.addonRegistry = addonRegistry;
-      this.lock = lock;
       this.type = type;
       this.typeName = type.getName();
    }
 
-   public ImportedImpl(AddonRegistryImpl addonRegistry, LockManager lock, String typeName)
+   public ImportedImpl(AddonRegistryImpl addonRegistry, String typeName)
    {
       this.addonRegistry = addonRegistry;
-      this.lock = lock;
       this.typeName = typeName;
    }
 
@@ -109,53 +94,18 @@ public class ImportedImpl<T> implements Imported<T>
 
    private ExportedInstance<T> getExportedInstance()
    {
-      return lock.performLocked(LockMode.READ, new Callable<ExportedInstance<T>>()
-      {
-         @Override
-         public ExportedInstance<T> call() throws Exception
-         {
-            Iterator<ExportedInstance<T>> iterator = getExportedInstances().iterator();
-            if (iterator.hasNext())
-               return iterator.next();
-            return null;
-         }
-      });
-
+      Iterator<ExportedInstance<T>> iterator = getExportedInstances().iterator();
+      if (iterator.hasNext())
+         return iterator.next();
+      return null;
    }
 
    private Set<ExportedInstance<T>> getExportedInstances()
    {
-      return lock.performLocked(LockMode.READ, new Callable<Set<ExportedInstance<T>>>()
-      {
-         @SuppressWarnings({ "unchecked", "rawtypes" })
-         @Override
-         public Set<ExportedInstance<T>> call() throws Exception
-         {
-            if (addonRegistry.getVersion() != version)
-            {
-               version = addonRegistry.getVersion();
-               instanceCache.clear();
-
-               for (Addon addon : addonRegistry.getAddons())
-               {
-                  if (addon.getStatus().isStarted())
-                  {
-                     ServiceRegistry serviceRegistry = addon.getServiceRegistry();
-                     if (type != null)
-                     {
-                        instanceCache.addAll(serviceRegistry.getExportedInstances(type));
-                     }
-                     else
-                     {
-                        instanceCache.addAll((Collection) serviceRegistry.getExportedInstances(typeName));
-                     }
-                  }
-               }
-            }
-
-            return instanceCache;
-         }
-      });
+      AddonViewSnapshot snapshot = addonRegistry.getSnapshot();
+      if (type != null)
+         return snapshot.getExportedInstances(type);
+      return snapshot.getExportedInstances(typeName);
    }
 
    private class ImportedIteratorImpl implements Iterator<T>
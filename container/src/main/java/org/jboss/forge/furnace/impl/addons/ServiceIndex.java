@@ -0,0 +1,274 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.forge.furnace.lock.LockManager;
+import org.jboss.forge.furnace.lock.LockMode;
+import org.jboss.forge.furnace.spi.ExportedInstance;
+import org.jboss.forge.furnace.spi.ServiceRegistry;
+
+/**
+ * Index of the services exported by the started addons of an {@link org.jboss.forge.furnace.addons.AddonView}, shared
+ * by all of its {@link AddonViewSnapshot} instances and keyed by type name. Each entry remembers what every
+ * {@link ServiceRegistry} contributed to it, so after an addon starts only its registry is queried again. When an
+ * addon stops, the entries its registry contributed to are evicted, so the index never keeps the classes of a stopped
+ * addon reachable. Requested types are only held weakly.
+ */
+final class ServiceIndex
+{
+   private final LockManager lock;
+
+   private final ConcurrentMap<String, Entry<ExportedInstance<?>>> instancesByType = new ConcurrentHashMap<>();
+   private final ConcurrentMap<String, Entry<ExportedInstance<?>>> instancesByName = new ConcurrentHashMap<>();
+   private final ConcurrentMap<String, Entry<Class<?>>> typesByType = new ConcurrentHashMap<>();
+
+   /**
+    * The entries each registry contributed to. Guarded by this index.
+    */
+   private final Map<ServiceRegistry, Set<Entry<?>>> contributed = new IdentityHashMap<>();
+   private volatile State state = new State(0, Collections.<ServiceRegistry> emptyList(),
+            Collections.<ServiceRegistry, Long> emptyMap());
+   private long snapshotGeneration;
+
+   ServiceIndex(LockManager lock)
+   {
+      this.lock = lock;
+   }
+
+   /**
+    * Bring this index up to date with the registries of the started addons of the snapshot with the given generation.
+    * Updates for snapshots older than the last one are ignored. Only the entries of registries that are gone are
+    * touched.
+    */
+   synchronized void update(long generation, List<ServiceRegistry> registries)
+   {
+      if (generation < snapshotGeneration)
+         return;
+      snapshotGeneration = generation;
+
+      State current = state;
+      long next = current.generation + 1;
+      boolean changed = registries.size() != current.registries.size();
+      Map<ServiceRegistry, Long> since = new IdentityHashMap<>();
+      for (ServiceRegistry registry : registries)
+      {
+         Long joined = current.since.get(registry);
+         if (joined == null)
+            changed = true;
+         since.put(registry, joined == null ? next : joined);
+      }
+      if (!changed)
+         return;
+
+      for (ServiceRegistry registry : current.registries)
+      {
+         if (!since.containsKey(registry))
+         {
+            Set<Entry<?>> entries = contributed.remove(registry);
+            if (entries != null)
+            {
+               for (Entry<?> entry : new ArrayList<>(entries))
+               {
+                  entry.evict();
+                  unregister(entry);
+               }
+            }
+         }
+      }
+      state = new State(next, Collections.unmodifiableList(new ArrayList<>(registries)), since);
+   }
+
+   <T> Set<ExportedInstance<T>> getExportedInstances(final Class<T> type)
+   {
+      return cast(lookup(instancesByType, type.getName(), type, new Query<ExportedInstance<?>>()
+      {
+         @Override
+         public Set<? extends ExportedInstance<?>> query(ServiceRegistry registry)
+         {
+            return registry.getExportedInstances(type);
+         }
+      }));
+   }
+
+   <T> Set<ExportedInstance<T>> getExportedInstances(final String typeName)
+   {
+      return cast(lookup(instancesByName, typeName, null, new Query<ExportedInstance<?>>()
+      {
+         @Override
+         public Set<? extends ExportedInstance<?>> query(ServiceRegistry registry)
+         {
+            return registry.<Object> getExportedInstances(typeName);
+         }
+      }));
+   }
+
+   <T> Set<Class<T>> getExportedTypes(final Class<T> type)
+   {
+      return cast(lookup(typesByType, type.getName(), type, new Query<Class<?>>()
+      {
+         @Override
+         public Set<? extends Class<?>> query(ServiceRegistry registry)
+         {
+            return registry.getExportedTypes(type);
+         }
+      }));
+   }
+
+   boolean hasService(Class<?> type)
+   {
+      return !getExportedTypes(type).isEmpty();
+   }
+
+   boolean hasService(String typeName)
+   {
+      return !getExportedInstances(typeName).isEmpty();
+   }
+
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   private static <T> Set<T> cast(Set<?> values)
+   {
+      return (Set) values;
+   }
+
+   /**
+    * Return the entry for the given key, bringing it up to date with the registries of this index first. Registries
+    * are queried outside of the map, since they run addon code that may itself look up services. The result is only
+    * stored if no registry came or went meanwhile.
+    */
+   private <V> Set<V> lookup(final ConcurrentMap<String, Entry<V>> index, final String key, final Class<?> type,
+            final Query<V> query)
+   {
+      final State current = state;
+      Entry<V> entry = index.get(key);
+      if (entry != null && entry.generation == current.generation && entry.isFor(type))
+         return entry.values;
+
+      final Entry<V> stale = entry != null && entry.isFor(type) ? entry : null;
+      Entry<V> result = lock.performLocked(LockMode.READ, new Callable<Entry<V>>()
+      {
+         @Override
+         public Entry<V> call() throws Exception
+         {
+            return new Entry<>(index, key, type, current, stale, query);
+         }
+      });
+
+      synchronized (this)
+      {
+         if (state == current)
+         {
+            Entry<V> replaced = index.put(key, result);
+            if (replaced != null)
+               unregister(replaced);
+            for (ServiceRegistry registry : result.contributions.keySet())
+            {
+               Set<Entry<?>> entries = contributed.get(registry);
+               if (entries == null)
+               {
+                  entries = Collections.newSetFromMap(new IdentityHashMap<Entry<?>, Boolean>());
+                  contributed.put(registry, entries);
+               }
+               entries.add(result);
+            }
+         }
+      }
+      return result.values;
+   }
+
+   private void unregister(Entry<?> entry)
+   {
+      for (ServiceRegistry registry : entry.contributions.keySet())
+      {
+         Set<Entry<?>> entries = contributed.get(registry);
+         if (entries != null)
+            entries.remove(entry);
+      }
+   }
+
+   private interface Query<V>
+   {
+      Set<? extends V> query(ServiceRegistry registry);
+   }
+
+   /**
+    * The registries of the started addons, and the generation of this index in which each of them joined.
+    */
+   private static class State
+   {
+      private final long generation;
+      private final List<ServiceRegistry> registries;
+      private final Map<ServiceRegistry, Long> since;
+
+      State(long generation, List<ServiceRegistry> registries, Map<ServiceRegistry, Long> since)
+      {
+         this.generation = generation;
+         this.registries = registries;
+         this.since = since;
+      }
+   }
+
+   private static class Entry<V>
+   {
+      private final ConcurrentMap<String, Entry<V>> index;
+      private final String key;
+      private final WeakReference<Class<?>> type;
+      private final long generation;
+      private final Map<ServiceRegistry, Set<? extends V>> contributions = new IdentityHashMap<>();
+      private final Set<V> values;
+
+      Entry(ConcurrentMap<String, Entry<V>> index, String key, Class<?> type, State state, Entry<V> previous,
+               Query<V> query)
+      {
+         this.index = index;
+         this.key = key;
+         this.type = type == null ? null : new WeakReference<Class<?>>(type);
+         this.generation = state.generation;
+
+         Set<V> values = new LinkedHashSet<>();
+         for (ServiceRegistry registry : state.registries)
+         {
+            Set<? extends V> contribution;
+            if (previous != null && state.since.get(registry) <= previous.generation)
+               contribution = previous.contributions.get(registry);
+            else
+               contribution = query.query(registry);
+
+            if (contribution != null && !contribution.isEmpty())
+            {
+               contributions.put(registry, contribution);
+               values.addAll(contribution);
+            }
+         }
+         this.values = Collections.unmodifiableSet(values);
+      }
+
+      /**
+       * Whether this entry was computed for the given type, and not for another type of the same name.
+       */
+      boolean isFor(Class<?> requested)
+      {
+         return type == null || type.get() == requested;
+      }
+
+      void evict()
+      {
+         index.remove(key, this);
+      }
+   }
+}
@@ -6,25 +6,36 @@
  */
 package org.jboss.forge.furnace.impl.addons;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.jboss.forge.furnace.Furnace;
 import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonDependency;
 
 /**
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
 public class StartEnabledAddonCallable implements Callable<Void>
 {
+   private static final Logger logger = Logger.getLogger(StartEnabledAddonCallable.class.getName());
+
    private Furnace furnace;
    private AddonLifecycleManager lifecycleManager;
    private AddonStateManager stateManager;
    private ExecutorService executor;
    private AtomicInteger starting;
    private Addon addon;
+   private Iterable<Addon> dependencies;
+   private int priority;
 
    public StartEnabledAddonCallable(Furnace furnace,
             AddonLifecycleManager lifecycleManager,
@@ -32,6 +43,23 @@ public class StartEnabledAddonCallable implements Callable<Void>
             ExecutorService executor,
             AtomicInteger starting,
             Addon toStart)
+   {
+      this(furnace, lifecycleManager, stateManager, executor, starting, toStart, null, 0);
+   }
+
+   /**
+    * Start the given {@link Addon} once all of the given dependencies have started. If <code>dependencies</code> is
+    * <code>null</code>, the {@link Addon#getDependencies()} are used. Waiting addons with a higher priority are started
+    * first.
+    */
+   public StartEnabledAddonCallable(Furnace furnace,
+            AddonLifecycleManager lifecycleManager,
+            AddonStateManager stateManager,
+            ExecutorService executor,
+            AtomicInteger starting,
+            Addon toStart,
+            Iterable<Addon> dependencies,
+            int priority)
    {
       this.furnace = furnace;
       this.lifecycleManager = lifecycleManager;
@@ -39,6 +67,8 @@ public class StartEnabledAddonCallable implements Callable<Void>
       this.executor = executor;
       this.starting = starting;
       this.addon = toStart;
+      this.dependencies = dependencies;
+      this.priority = priority;
    }
 
    @Override
@@ -51,18 +81,97 @@ public class StartEnabledAddonCallable implements Callable<Void>
             throw new IllegalStateException("Cannot start additional addons once Shutdown has been initiated.");
          }
 
-         Future<Void> result = null;
          if (stateManager.getRunnableOf(addon) == null)
          {
+            if (addon instanceof AddonImpl)
+               ((AddonImpl) addon).starting();
+
             starting.incrementAndGet();
-            AddonRunnable runnable = new AddonRunnable(furnace, lifecycleManager, stateManager, addon);
-            result = executor.submit(runnable, null);
+            AddonRunnable runnable = new AddonRunnable(furnace, stateManager, addon);
+            final AddonStartTask result = new AddonStartTask(lifecycleManager, addon, runnable, priority);
             stateManager.setHandles(addon, result, runnable);
+
+            /*
+             * Only hand the addon to the executor once its dependencies are up, so no thread is held while waiting.
+             * Only dependencies with a start task still to finish are awaited: a dependency that is loaded but not
+             * scheduled would never signal, and this task would never run nor be counted as finished.
+             */
+            List<CompletableFuture<Addon>> pending = new ArrayList<>();
+            for (Addon dependency : getDependencies())
+            {
+               if (dependency != addon && isStarting(dependency))
+                  pending.add(dependency.whenStarted().toCompletableFuture());
+            }
+
+            if (pending.isEmpty())
+            {
+               submit(result);
+            }
+            else
+            {
+               CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[pending.size()]))
+                        .whenComplete((ignored, failure) -> submitLater(result));
+            }
          }
       }
       return null;
    }
 
+   private Iterable<Addon> getDependencies()
+   {
+      if (dependencies != null)
+         return dependencies;
+
+      List<Addon> result = new ArrayList<>();
+      for (AddonDependency dependency : addon.getDependencies())
+      {
+         result.add(dependency.getDependency());
+      }
+      return result;
+   }
+
+   private boolean isStarting(Addon dependency)
+   {
+      Future<Void> future = stateManager.getFutureOf(dependency);
+      return future instanceof AddonStartTask && !future.isDone();
+   }
+
+   /**
+    * Hand the given task to the executor. A rejected task is cancelled, which reports it as finished to the
+    * {@link AddonLifecycleManager}.
+    */
+   private void submit(AddonStartTask task)
+   {
+      if (task.isDone())
+         return;
+
+      try
+      {
+         executor.execute(task);
+      }
+      catch (RejectedExecutionException e)
+      {
+         task.cancel(false);
+         throw e;
+      }
+   }
+
+   /**
+    * Like {@link #submit(AddonStartTask)}, for tasks submitted once their dependencies started, where nobody is left
+    * to handle a rejection.
+    */
+   private void submitLater(AddonStartTask task)
+   {
+      try
+      {
+         submit(task);
+      }
+      catch (RuntimeException e)
+      {
+         logger.log(Level.WARNING, "Could not start addon [" + addon + "]", e);
+      }
+   }
+
    @Override
    public String toString()
    {
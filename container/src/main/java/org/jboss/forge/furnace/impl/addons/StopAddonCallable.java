@@ -7,6 +7,7 @@
 package org.jboss.forge.furnace.impl.addons;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.jboss.forge.furnace.addons.Addon;
 import org.jboss.forge.furnace.util.Assert;
@@ -32,7 +33,16 @@ public class StopAddonCallable implements Callable<Void>
    @Override
    public Void call() throws Exception
    {
-      stateManager.cancel(addon);
+      Future<Void> task = stateManager.getFutureOf(addon);
+      try
+      {
+         stateManager.cancel(addon);
+      }
+      finally
+      {
+         if (addon instanceof AddonImpl)
+            ((AddonImpl) addon).finishedStopping(task);
+      }
       return null;
    }
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.impl.graph.CompleteAddonGraph;
+import org.jboss.forge.furnace.impl.graph.OptimizedAddonGraph;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+
+/**
+ * The {@link CompleteAddonGraph} and {@link OptimizedAddonGraph} of an {@link AddonView}, along with the state of
+ * every enabled addon of the {@link AddonRepository} instances they were built from. On update, only the repositories
+ * that changed are inspected again, and only the addons that were enabled, disabled or changed on disk are resolved
+ * again, along with the addons depending on them.
+ */
+final class ViewGraph
+{
+   private Map<AddonRepository, RepositoryState> states;
+   private final CompleteAddonGraph complete;
+   private final OptimizedAddonGraph graph;
+
+   private ViewGraph(Map<AddonRepository, RepositoryState> states, CompleteAddonGraph complete,
+            OptimizedAddonGraph graph)
+   {
+      this.states = states;
+      this.complete = complete;
+      this.graph = graph;
+   }
+
+   /**
+    * Build the graph of the given {@link AddonView}. The state of each repository is looked up in, or added to, the
+    * given map, so repositories shared by several views, or unchanged since the last update, are not inspected again.
+    */
+   static ViewGraph build(AddonView view, Map<AddonRepository, RepositoryState> current)
+   {
+      Map<AddonRepository, RepositoryState> states = getStates(view, current);
+      CompleteAddonGraph complete = new CompleteAddonGraph(view.getRepositories());
+      return new ViewGraph(states, complete, new OptimizedAddonGraph(view, complete));
+   }
+
+   /**
+    * Bring this graph up to date with the repositories of the given {@link AddonView}. Returns the names of the addons
+    * whose vertices or dependencies changed, which is empty if no addon changed since the last update.
+    */
+   Set<String> update(AddonView view, Map<AddonRepository, RepositoryState> current)
+   {
+      Map<AddonRepository, RepositoryState> next = getStates(view, current);
+      Set<AddonId> changed = new LinkedHashSet<>();
+      for (Entry<AddonRepository, RepositoryState> entry : next.entrySet())
+      {
+         entry.getValue().addChangesSince(states.get(entry.getKey()), changed);
+      }
+
+      Set<String> names = Collections.emptySet();
+      if (!changed.isEmpty())
+      {
+         names = complete.update(view.getRepositories(), changed);
+         graph.update(complete, names);
+      }
+      states = next;
+      return names;
+   }
+
+   OptimizedAddonGraph getGraph()
+   {
+      return graph;
+   }
+
+   private static Map<AddonRepository, RepositoryState> getStates(AddonView view,
+            Map<AddonRepository, RepositoryState> current)
+   {
+      Map<AddonRepository, RepositoryState> result = new HashMap<>();
+      for (AddonRepository repository : view.getRepositories())
+      {
+         RepositoryState state = current.get(repository);
+         if (state == null || !state.isCurrent(repository))
+         {
+            state = new RepositoryState(repository);
+            current.put(repository, state);
+         }
+         result.put(repository, state);
+      }
+      return result;
+   }
+
+   /**
+    * The enabled addons of an {@link AddonRepository}, each with the {@link AddonState} it had when inspected. A state
+    * stays current until {@link AddonRepository#getVersion()} changes, or until it is dropped because the
+    * {@link DirtyChecker} of the repository saw a change on disk.
+    */
+   static final class RepositoryState
+   {
+      private final int version;
+      private final Map<AddonId, AddonState> addons = new LinkedHashMap<>();
+
+      RepositoryState(AddonRepository repository)
+      {
+         this.version = repository.getVersion();
+         for (AddonId addon : repository.listEnabled())
+         {
+            addons.put(addon, new AddonState(repository, addon));
+         }
+      }
+
+      boolean isCurrent(AddonRepository repository)
+      {
+         return version == repository.getVersion();
+      }
+
+      /**
+       * Add the addons that were enabled, disabled or changed since the given state to the given {@link Set}.
+       */
+      void addChangesSince(RepositoryState previous, Set<AddonId> changed)
+      {
+         if (previous == this)
+            return;
+
+         Map<AddonId, AddonState> before = previous == null ? Collections.<AddonId, AddonState> emptyMap()
+                  : previous.addons;
+         for (Entry<AddonId, AddonState> entry : addons.entrySet())
+         {
+            if (!entry.getValue().equals(before.get(entry.getKey())))
+               changed.add(entry.getKey());
+         }
+         for (AddonId addon : before.keySet())
+         {
+            if (!addons.containsKey(addon))
+               changed.add(addon);
+         }
+      }
+   }
+
+   /**
+    * The {@link FileStamp} of the descriptor and of each resource of a deployed addon, so edits made in place are
+    * noticed as well.
+    */
+   static final class AddonState
+   {
+      private final FileStamp descriptor;
+      private final Map<File, FileStamp> resources = new HashMap<>();
+
+      AddonState(AddonRepository repository, AddonId addon)
+      {
+         this.descriptor = FileStamp.of(repository.getAddonDescriptor(addon));
+         for (File resource : repository.getAddonResources(addon))
+         {
+            resources.put(resource, FileStamp.of(resource));
+         }
+      }
+
+      @Override
+      public int hashCode()
+      {
+         final int prime = 31;
+         int result = 1;
+         result = prime * result + ((descriptor == null) ? 0 : descriptor.hashCode());
+         result = prime * result + resources.hashCode();
+         return result;
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if (this == obj)
+            return true;
+         if (!(obj instanceof AddonState))
+            return false;
+         AddonState other = (AddonState) obj;
+         if (descriptor == null ? other.descriptor != null : !descriptor.equals(other.descriptor))
+            return false;
+         return resources.equals(other.resources);
+      }
+   }
+}
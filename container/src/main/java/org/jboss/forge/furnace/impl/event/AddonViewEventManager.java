@@ -8,29 +8,38 @@
 package org.jboss.forge.furnace.impl.event;
 
 import java.lang.annotation.Annotation;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import org.jboss.forge.furnace.addons.Addon;
 import org.jboss.forge.furnace.addons.AddonView;
 import org.jboss.forge.furnace.event.EventException;
 import org.jboss.forge.furnace.event.EventManager;
+import org.jboss.forge.furnace.impl.addons.AddonLifecycleManager;
 import org.jboss.forge.furnace.lock.LockManager;
 import org.jboss.forge.furnace.lock.LockMode;
 
 /**
  * {@link EventManager} that delegates calls to each started {@link Addon} in the {@link AddonView#getAddons()} set.
+ * The started addons are taken from the latest snapshot of the view published by the {@link AddonLifecycleManager},
+ * and an event is only delegated to those addons whose {@link EventManager} {@link EventManager#observes(Class)
+ * observes} its type.
  * 
  * @author <a href="mailto:ggastald@redhat.com">George Gastaldi</a>
  */
 public class AddonViewEventManager implements EventManager
 {
    private final AddonView addonView;
+   private final AddonLifecycleManager lifecycleManager;
    private final LockManager lockManager;
 
-   public AddonViewEventManager(AddonView addonView, LockManager lockManager)
+   public AddonViewEventManager(AddonView addonView, AddonLifecycleManager lifecycleManager, LockManager lockManager)
    {
       super();
       this.addonView = addonView;
+      this.lifecycleManager = lifecycleManager;
       this.lockManager = lockManager;
    }
 
@@ -42,16 +51,56 @@ public class AddonViewEventManager implements EventManager
          @Override
          public Void call() throws Exception
          {
-            for (Addon addon : addonView.getAddons())
+            for (EventManager eventManager : getObservers(event))
             {
-               if (addon.getStatus().isStarted())
-               {
-                  EventManager eventManager = addon.getEventManager();
-                  eventManager.fireEvent(event, qualifiers);
-               }
+               eventManager.fireEvent(event, qualifiers);
             }
             return null;
          }
       });
    }
+
+   /**
+    * Notify the observing addons in parallel, each under its own {@link LockMode#READ} lock. Callers holding a
+    * {@link LockMode#WRITE} lock must not wait for the returned {@link CompletionStage}.
+    */
+   @Override
+   public CompletionStage<Void> fireEventAsync(final Object event, final Annotation... qualifiers)
+   {
+      List<EventManager> observers = getObservers(event);
+      CompletableFuture<?>[] notifications = new CompletableFuture<?>[observers.size()];
+      for (int i = 0; i < notifications.length; i++)
+      {
+         final EventManager eventManager = observers.get(i);
+         notifications[i] = CompletableFuture.runAsync(new Runnable()
+         {
+            @Override
+            public void run()
+            {
+               lockManager.performLocked(LockMode.READ, new Callable<Void>()
+               {
+                  @Override
+                  public Void call() throws Exception
+                  {
+                     eventManager.fireEvent(event, qualifiers);
+                     return null;
+                  }
+               });
+            }
+         }, lifecycleManager.getEventExecutor());
+      }
+      return CompletableFuture.allOf(notifications);
+   }
+
+   @Override
+   public boolean observes(Class<?> eventType)
+   {
+      return !lifecycleManager.getSnapshot(addonView).getObservers(eventType).isEmpty();
+   }
+
+   private List<EventManager> getObservers(Object event)
+   {
+      Class<?> eventType = event == null ? Object.class : event.getClass();
+      return lifecycleManager.getSnapshot(addonView).getObservers(eventType);
+   }
 }
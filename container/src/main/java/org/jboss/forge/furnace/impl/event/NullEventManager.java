@@ -25,4 +25,10 @@ public enum NullEventManager implements EventManager
    {
       // do nothing
    }
+
+   @Override
+   public boolean observes(Class<?> eventType)
+   {
+      return false;
+   }
 }
@@ -8,8 +8,12 @@ package org.jboss.forge.furnace.impl.graph;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -21,6 +25,9 @@ import org.jboss.forge.furnace.impl.addons.AddonRepositoryImpl;
 import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
 import org.jboss.forge.furnace.repositories.AddonRepository;
 import org.jboss.forge.furnace.versions.EmptyVersion;
+import org.jboss.forge.furnace.versions.MultipleVersionRange;
+import org.jboss.forge.furnace.versions.Version;
+import org.jboss.forge.furnace.versions.VersionRange;
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.alg.CycleDetector;
 import org.jgrapht.graph.SimpleDirectedGraph;
@@ -32,70 +39,219 @@ public class CompleteAddonGraph extends AddonGraph<CompleteAddonGraph>
    DirectedGraph<AddonVertex, AddonDependencyEdge> graph = new SimpleDirectedGraph<AddonVertex, AddonDependencyEdge>(
             AddonDependencyEdge.class);
 
+   private final Map<String, List<AddonVertex>> verticesByName = new HashMap<String, List<AddonVertex>>();
+
+   /**
+    * The dependencies of each enabled addon, and the enabled addons declaring a dependency on each name, whether it is
+    * satisfied or not. Used to find the addons to resolve again when an addon is enabled, disabled or changed.
+    */
+   private final Map<AddonId, Set<AddonDependencyEntry>> dependencies = new LinkedHashMap<>();
+   private final Map<String, Set<AddonId>> dependantsByName = new HashMap<String, Set<AddonId>>();
+   private Map<String, List<AddonId>> candidates;
+
+   private static final Comparator<AddonId> VERSION_ORDER = new Comparator<AddonId>()
+   {
+      @Override
+      public int compare(AddonId left, AddonId right)
+      {
+         return left.getVersion().compareTo(right.getVersion());
+      }
+   };
+
+   /**
+    * Dependencies are resolved against an index of the enabled addons by name, with the versions of each name in
+    * ascending order, so every {@link AddonDependencyEntry} only looks at the candidates sharing its name, and a range
+    * with known bounds only at the versions between them.
+    */
    public CompleteAddonGraph(Collection<AddonRepository> repositories)
    {
-      Set<AddonId> enabled = getAllEnabledAddonsInAllRepositories(repositories);
-      Map<AddonId, Set<AddonDependencyEntry>> dependencyMap = new LinkedHashMap<AddonId, Set<AddonDependencyEntry>>();
+      Map<AddonRepository, Set<AddonId>> enabledByRepository = new LinkedHashMap<AddonRepository, Set<AddonId>>();
+      Set<AddonId> enabled = getAllEnabledAddonsInAllRepositories(repositories, enabledByRepository);
+      candidates = getCandidatesByName(enabled);
+
       for (AddonId id : enabled)
       {
-         for (AddonRepository repository : repositories)
+         readDependencies(id, enabledByRepository);
+      }
+
+      for (AddonId id : dependencies.keySet())
+      {
+         resolve(id, new HashSet<String>());
+      }
+
+      CycleDetector<AddonVertex, AddonDependencyEdge> detector = new CycleDetector<AddonVertex, AddonDependencyEdge>(
+               graph);
+      if (detector.detectCycles())
+      {
+         throw new IllegalStateException("Cycle detected in Addon graph: " + detector.findCycles());
+      }
+   }
+
+   /**
+    * Bring this graph up to date after the given addons were enabled, disabled, or had their dependencies changed.
+    * Only those addons and the addons depending on their names are resolved again. Returns the names of the vertices
+    * that were added or removed, or whose outgoing edges changed.
+    */
+   public Set<String> update(Collection<AddonRepository> repositories, Set<AddonId> changed)
+   {
+      Map<AddonRepository, Set<AddonId>> enabledByRepository = new LinkedHashMap<AddonRepository, Set<AddonId>>();
+      Set<AddonId> enabled = getEnabledAddons(repositories, enabledByRepository);
+      candidates = getCandidatesByName(enabled);
+
+      Set<String> names = new HashSet<String>();
+      Set<AddonVertex> detached = new HashSet<AddonVertex>();
+      Set<AddonId> unresolved = new LinkedHashSet<AddonId>();
+      for (AddonId id : changed)
+      {
+         names.add(id.getName());
+         removeDependencies(id);
+         AddonVertex vertex = getVertex(id.getName(), id.getVersion());
+         if (vertex != null)
          {
-            if (repository.isEnabled(id))
-            {
-               Set<AddonDependencyEntry> dependencies = repository.getAddonDependencies(id);
-               dependencyMap.put(id, dependencies);
-            }
+            detachDependencies(vertex, detached);
+            removeLocalVertex(vertex);
+         }
+
+         if (enabled.contains(id))
+         {
+            readDependencies(id, enabledByRepository);
+            unresolved.add(id);
          }
       }
 
-      for (Entry<AddonId, Set<AddonDependencyEntry>> entry : dependencyMap.entrySet())
+      for (String name : new ArrayList<String>(names))
       {
-         AddonVertex vertex = getOrCreateVertex(entry.getKey().getName(), entry.getKey().getVersion());
+         Set<AddonId> dependants = dependantsByName.get(name);
+         if (dependants != null)
+            unresolved.addAll(dependants);
+      }
 
-         for (AddonDependencyEntry dependency : entry.getValue())
-         {
-            boolean satisfied = false;
-            for (AddonId id : enabled)
-            {
-               if (dependency.getName().equals(id.getName()) && dependency.getVersionRange().includes(id.getVersion()))
-               {
-                  AddonVertex dependencyVertex = getOrCreateVertex(id.getName(), id.getVersion());
-                  graph.addEdge(vertex, dependencyVertex, new AddonDependencyEdge(dependency.getVersionRange(),
-                           dependency.isExported()));
-                  satisfied = true;
-               }
-            }
+      List<AddonVertex> resolved = new ArrayList<AddonVertex>();
+      for (AddonId id : unresolved)
+      {
+         AddonVertex vertex = getVertex(id.getName(), id.getVersion());
+         if (vertex != null)
+            detachDependencies(vertex, detached);
+      }
+      for (AddonId id : unresolved)
+      {
+         names.add(id.getName());
+         resolved.add(resolve(id, names));
+      }
 
-            if (!satisfied && !dependency.isOptional())
-            {
-               AddonVertex missingVertex = new AddonVertex(dependency.getName(), EmptyVersion.getInstance());
-               graph.addVertex(missingVertex);
-               graph.addEdge(vertex, missingVertex,
-                        new AddonDependencyEdge(dependency.getVersionRange(), dependency.isExported()));
-            }
+      for (AddonVertex vertex : detached)
+      {
+         if (vertex.getVersion() instanceof EmptyVersion && graph.containsVertex(vertex)
+                  && graph.inDegreeOf(vertex) == 0)
+         {
+            removeLocalVertex(vertex);
+            names.add(vertex.getName());
          }
       }
 
       CycleDetector<AddonVertex, AddonDependencyEdge> detector = new CycleDetector<AddonVertex, AddonDependencyEdge>(
                graph);
-      if (detector.detectCycles())
+      for (AddonVertex vertex : resolved)
       {
-         throw new IllegalStateException("Cycle detected in Addon graph: " + detector.findCycles());
+         if (detector.detectCyclesContainingVertex(vertex))
+            throw new IllegalStateException("Cycle detected in Addon graph: "
+                     + detector.findCyclesContainingVertex(vertex));
       }
+      return names;
    }
 
-   private Set<AddonId> getAllEnabledAddonsInAllRepositories(Collection<AddonRepository> repositories)
+   /**
+    * Add the vertex of the given enabled {@link AddonId} along with an edge to each addon satisfying its
+    * dependencies, or to a missing vertex if a required dependency is not satisfied. The names of missing vertices are
+    * added to the given {@link Set}.
+    */
+   private AddonVertex resolve(AddonId id, Set<String> missing)
    {
-      Set<AddonId> result = new HashSet<AddonId>();
-      for (AddonRepository repository : repositories)
+      AddonVertex vertex = getOrCreateVertex(id.getName(), id.getVersion());
+      for (AddonDependencyEntry dependency : dependencies.get(id))
       {
-         List<AddonId> all = repository.listAll();
-         List<AddonId> enabled = repository.listEnabled();
+         boolean satisfied = false;
+         for (AddonId candidate : getCandidates(candidates, dependency))
+         {
+            AddonVertex dependencyVertex = getOrCreateVertex(candidate.getName(), candidate.getVersion());
+            graph.addEdge(vertex, dependencyVertex, new AddonDependencyEdge(dependency.getVersionRange(),
+                     dependency.isExported()));
+            satisfied = true;
+         }
 
-         result.addAll(enabled);
+         if (!satisfied && !dependency.isOptional())
+         {
+            AddonVertex missingVertex = getOrCreateVertex(dependency.getName(), EmptyVersion.getInstance());
+            graph.addEdge(vertex, missingVertex,
+                     new AddonDependencyEdge(dependency.getVersionRange(), dependency.isExported()));
+            missing.add(dependency.getName());
+         }
+      }
+      return vertex;
+   }
+
+   private void detachDependencies(AddonVertex vertex, Set<AddonVertex> detached)
+   {
+      for (AddonDependencyEdge edge : new ArrayList<AddonDependencyEdge>(graph.outgoingEdgesOf(vertex)))
+      {
+         detached.add(graph.getEdgeTarget(edge));
+         graph.removeEdge(edge);
+      }
+   }
 
-         List<AddonId> incompatible = new ArrayList<>(all);
-         incompatible.removeAll(enabled);
+   private void readDependencies(AddonId id, Map<AddonRepository, Set<AddonId>> enabledByRepository)
+   {
+      Set<AddonDependencyEntry> result = null;
+      for (Entry<AddonRepository, Set<AddonId>> repository : enabledByRepository.entrySet())
+      {
+         if (repository.getValue().contains(id))
+         {
+            result = repository.getKey().getAddonDependencies(id);
+         }
+      }
+
+      if (result != null)
+      {
+         dependencies.put(id, result);
+         for (AddonDependencyEntry dependency : result)
+         {
+            Set<AddonId> dependants = dependantsByName.get(dependency.getName());
+            if (dependants == null)
+            {
+               dependants = new LinkedHashSet<AddonId>();
+               dependantsByName.put(dependency.getName(), dependants);
+            }
+            dependants.add(id);
+         }
+      }
+   }
+
+   private void removeDependencies(AddonId id)
+   {
+      Set<AddonDependencyEntry> removed = dependencies.remove(id);
+      if (removed != null)
+      {
+         for (AddonDependencyEntry dependency : removed)
+         {
+            Set<AddonId> dependants = dependantsByName.get(dependency.getName());
+            if (dependants != null)
+            {
+               dependants.remove(id);
+               if (dependants.isEmpty())
+                  dependantsByName.remove(dependency.getName());
+            }
+         }
+      }
+   }
+
+   private Set<AddonId> getAllEnabledAddonsInAllRepositories(Collection<AddonRepository> repositories,
+            Map<AddonRepository, Set<AddonId>> enabledByRepository)
+   {
+      Set<AddonId> result = getEnabledAddons(repositories, enabledByRepository);
+      for (AddonRepository repository : repositories)
+      {
+         List<AddonId> incompatible = new ArrayList<>(repository.listAll());
+         incompatible.removeAll(enabledByRepository.get(repository));
          for (AddonId addon : incompatible)
          {
             if (addon.getApiVersion() != null)
@@ -108,6 +264,164 @@ public class CompleteAddonGraph extends AddonGraph<CompleteAddonGraph>
       return result;
    }
 
+   private static Set<AddonId> getEnabledAddons(Collection<AddonRepository> repositories,
+            Map<AddonRepository, Set<AddonId>> enabledByRepository)
+   {
+      Set<AddonId> result = new HashSet<AddonId>();
+      for (AddonRepository repository : repositories)
+      {
+         List<AddonId> enabled = repository.listEnabled();
+         result.addAll(enabled);
+         enabledByRepository.put(repository, new HashSet<AddonId>(enabled));
+      }
+      return result;
+   }
+
+   private static Map<String, List<AddonId>> getCandidatesByName(Set<AddonId> enabled)
+   {
+      Map<String, List<AddonId>> result = new HashMap<String, List<AddonId>>();
+      for (AddonId id : enabled)
+      {
+         List<AddonId> versions = result.get(id.getName());
+         if (versions == null)
+         {
+            versions = new ArrayList<AddonId>();
+            result.put(id.getName(), versions);
+         }
+         versions.add(id);
+      }
+      for (List<AddonId> versions : result.values())
+      {
+         Collections.sort(versions, VERSION_ORDER);
+      }
+      return result;
+   }
+
+   /**
+    * Return the enabled addons satisfying the given {@link AddonDependencyEntry}, in ascending version order.
+    */
+   private static List<AddonId> getCandidates(Map<String, List<AddonId>> candidates, AddonDependencyEntry dependency)
+   {
+      List<AddonId> versions = candidates.get(dependency.getName());
+      if (versions == null)
+         return Collections.emptyList();
+
+      VersionRange range = dependency.getVersionRange();
+      int from = 0;
+      int to = versions.size();
+      if (!(range instanceof MultipleVersionRange))
+      {
+         /*
+          * A MultipleVersionRange cannot report its bounds when one of its ranges is unbounded, so it is always
+          * matched against every version of the name.
+          */
+         if (range.getMin() != null)
+            from = lowerBound(versions, range.getMin());
+         if (range.getMax() != null)
+            to = upperBound(versions, range.getMax());
+      }
+
+      List<AddonId> result = new ArrayList<AddonId>();
+      for (int i = from; i < to; i++)
+      {
+         AddonId id = versions.get(i);
+         if (range.includes(id.getVersion()))
+            result.add(id);
+      }
+      return result;
+   }
+
+   /**
+    * Index of the first version not lower than the given {@link Version}.
+    */
+   private static int lowerBound(List<AddonId> versions, Version version)
+   {
+      int low = 0;
+      int high = versions.size();
+      while (low < high)
+      {
+         int middle = (low + high) >>> 1;
+         if (versions.get(middle).getVersion().compareTo(version) < 0)
+            low = middle + 1;
+         else
+            high = middle;
+      }
+      return low;
+   }
+
+   /**
+    * Index of the first version greater than the given {@link Version}.
+    */
+   private static int upperBound(List<AddonId> versions, Version version)
+   {
+      int low = 0;
+      int high = versions.size();
+      while (low < high)
+      {
+         int middle = (low + high) >>> 1;
+         if (versions.get(middle).getVersion().compareTo(version) <= 0)
+            low = middle + 1;
+         else
+            high = middle;
+      }
+      return low;
+   }
+
+   @Override
+   protected AddonVertex getVertex(String name, Version version)
+   {
+      List<AddonVertex> vertices = verticesByName.get(name);
+      if (vertices != null)
+      {
+         for (AddonVertex vertex : vertices)
+         {
+            if (version.compareTo(vertex.getVersion()) == 0)
+               return vertex;
+         }
+      }
+      return null;
+   }
+
+   @Override
+   protected void addLocalVertex(AddonVertex vertex)
+   {
+      if (graph.addVertex(vertex))
+      {
+         List<AddonVertex> vertices = verticesByName.get(vertex.getName());
+         if (vertices == null)
+         {
+            vertices = new ArrayList<AddonVertex>();
+            verticesByName.put(vertex.getName(), vertices);
+         }
+         vertices.add(vertex);
+      }
+   }
+
+   private void removeLocalVertex(AddonVertex vertex)
+   {
+      if (graph.removeVertex(vertex))
+      {
+         List<AddonVertex> vertices = verticesByName.get(vertex.getName());
+         vertices.remove(vertex);
+         if (vertices.isEmpty())
+            verticesByName.remove(vertex.getName());
+      }
+   }
+
+   /**
+    * Return the vertices of every version of the given addon name.
+    */
+   List<AddonVertex> getVertices(String name)
+   {
+      List<AddonVertex> vertices = verticesByName.get(name);
+      return vertices == null ? Collections.<AddonVertex> emptyList() : vertices;
+   }
+
+   Set<String> getNames()
+   {
+      return verticesByName.keySet();
+   }
+
    @Override
    public DirectedGraph<AddonVertex, AddonDependencyEdge> getGraph()
    {
@@ -9,24 +9,82 @@ package org.jboss.forge.furnace.impl.graph;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.jboss.forge.furnace.addons.Addon;
 import org.jboss.forge.furnace.addons.AddonView;
 import org.jboss.forge.furnace.util.Streams;
 import org.jboss.forge.furnace.versions.Version;
 import org.jgrapht.DirectedGraph;
+import org.jgrapht.event.GraphVertexChangeEvent;
 import org.jgrapht.event.TraversalListenerAdapter;
+import org.jgrapht.event.VertexSetListener;
 import org.jgrapht.event.VertexTraversalEvent;
 import org.jgrapht.ext.DOTExporter;
 import org.jgrapht.ext.IntegerNameProvider;
+import org.jgrapht.graph.ListenableDirectedGraph;
 import org.jgrapht.graph.SimpleDirectedGraph;
 import org.jgrapht.traverse.DepthFirstIterator;
 
 public class MasterGraph
 {
-   private final DirectedGraph<AddonVertex, AddonDependencyEdge> graph = new SimpleDirectedGraph<AddonVertex, AddonDependencyEdge>(
-            AddonDependencyEdge.class);
+   private final ListenableDirectedGraph<AddonVertex, AddonDependencyEdge> graph = new ListenableDirectedGraph<AddonVertex, AddonDependencyEdge>(
+            new SimpleDirectedGraph<AddonVertex, AddonDependencyEdge>(AddonDependencyEdge.class));
+
+   /**
+    * The vertices of the graph by addon name, kept up to date as vertices are added and removed, even through
+    * {@link #getGraph()}.
+    */
+   private final Map<String, Set<AddonVertex>> verticesByName = new HashMap<String, Set<AddonVertex>>();
+
+   /**
+    * Results of {@link #isSubtreeEquivalent(AddonVertex, DirectedGraph, AddonVertex)} for the graph being merged, by
+    * local and other vertex. Only kept for the duration of a {@link #merge(OptimizedAddonGraph)}: merging replaces
+    * vertices with equivalent ones, or adds new vertices that nothing depends on yet, so no result changes meanwhile.
+    */
+   private Map<AddonVertex, Map<AddonVertex, Boolean>> equivalence;
+
+   public MasterGraph()
+   {
+      graph.addVertexSetListener(new VertexSetListener<AddonVertex>()
+      {
+         @Override
+         public void vertexAdded(GraphVertexChangeEvent<AddonVertex> event)
+         {
+            AddonVertex vertex = event.getVertex();
+            Set<AddonVertex> vertices = verticesByName.get(vertex.getName());
+            if (vertices == null)
+            {
+               vertices = new HashSet<AddonVertex>();
+               verticesByName.put(vertex.getName(), vertices);
+            }
+            vertices.add(vertex);
+         }
+
+         @Override
+         public void vertexRemoved(GraphVertexChangeEvent<AddonVertex> event)
+         {
+            AddonVertex vertex = event.getVertex();
+            Set<AddonVertex> vertices = verticesByName.get(vertex.getName());
+            if (vertices != null)
+            {
+               vertices.remove(vertex);
+               if (vertices.isEmpty())
+                  verticesByName.remove(vertex.getName());
+            }
+         }
+      });
+   }
 
    public DirectedGraph<AddonVertex, AddonDependencyEdge> getGraph()
    {
@@ -38,6 +96,19 @@ public class MasterGraph
       if (other.getGraph().vertexSet().isEmpty())
          return;
 
+      equivalence = new IdentityHashMap<AddonVertex, Map<AddonVertex, Boolean>>();
+      try
+      {
+         mergeAll(other);
+      }
+      finally
+      {
+         equivalence = null;
+      }
+   }
+
+   private void mergeAll(final OptimizedAddonGraph other)
+   {
       if (graph.vertexSet().isEmpty())
       {
          for (AddonVertex vertex : other.getGraph().vertexSet())
@@ -108,11 +179,15 @@ public class MasterGraph
    public Set<AddonVertex> getVertices(String name, Version version)
    {
       Set<AddonVertex> result = new HashSet<AddonVertex>();
-      for (AddonVertex vertex : getGraph().vertexSet())
+      Set<AddonVertex> vertices = verticesByName.get(name);
+      if (vertices != null)
       {
-         if (vertex.getName().equals(name) && version.compareTo(vertex.getVersion()) == 0)
+         for (AddonVertex vertex : vertices)
          {
-            result.add(vertex);
+            if (version.compareTo(vertex.getVersion()) == 0)
+            {
+               result.add(vertex);
+            }
          }
       }
       return result;
@@ -120,6 +195,36 @@ public class MasterGraph
 
    public boolean isSubtreeEquivalent(AddonVertex localVertex,
             DirectedGraph<AddonVertex, AddonDependencyEdge> otherGraph, AddonVertex otherVertex)
+   {
+      if (equivalence != null)
+         return isSubtreeEquivalent(localVertex, otherGraph, otherVertex, equivalence);
+      return isSubtreeEquivalent(localVertex, otherGraph, otherVertex,
+               new IdentityHashMap<AddonVertex, Map<AddonVertex, Boolean>>());
+   }
+
+   private boolean isSubtreeEquivalent(AddonVertex localVertex,
+            DirectedGraph<AddonVertex, AddonDependencyEdge> otherGraph, AddonVertex otherVertex,
+            Map<AddonVertex, Map<AddonVertex, Boolean>> results)
+   {
+      Map<AddonVertex, Boolean> localResults = results.get(localVertex);
+      if (localResults == null)
+      {
+         localResults = new IdentityHashMap<AddonVertex, Boolean>();
+         results.put(localVertex, localResults);
+      }
+
+      Boolean result = localResults.get(otherVertex);
+      if (result == null)
+      {
+         result = compareSubtrees(localVertex, otherGraph, otherVertex, results);
+         localResults.put(otherVertex, result);
+      }
+      return result;
+   }
+
+   private boolean compareSubtrees(AddonVertex localVertex,
+            DirectedGraph<AddonVertex, AddonDependencyEdge> otherGraph, AddonVertex otherVertex,
+            Map<AddonVertex, Map<AddonVertex, Boolean>> results)
    {
       Set<AddonDependencyEdge> otherOutgoing;
       otherOutgoing = otherGraph.outgoingEdgesOf(otherVertex);
@@ -138,7 +243,7 @@ public class MasterGraph
                for (AddonVertex candidate : localCandidates)
                {
                   AddonDependencyEdge localEdge = graph.getEdge(localVertex, candidate);
-                  if (localEdge != null && isSubtreeEquivalent(candidate, otherGraph, otherTarget))
+                  if (localEdge != null && isSubtreeEquivalent(candidate, otherGraph, otherTarget, results))
                   {
                      found = true;
                      break;
@@ -187,6 +292,175 @@ public class MasterGraph
       }
    }
 
+   /**
+    * Return the names of the addons that have to be merged again once the addons with the given names changed in
+    * the given graphs: those names, the names of everything depending on them here or in the given graphs, and the
+    * names of everything those depend on. The vertices of any other name stay equivalent.
+    */
+   public Set<String> getAffectedNames(Set<String> changed, Collection<OptimizedAddonGraph> graphs)
+   {
+      Set<String> result = new HashSet<String>();
+      Deque<String> pending = new ArrayDeque<String>(changed);
+      while (!pending.isEmpty())
+      {
+         String name = pending.pop();
+         if (result.add(name))
+         {
+            for (AddonVertex vertex : getVertices(name))
+            {
+               for (AddonDependencyEdge edge : graph.incomingEdgesOf(vertex))
+                  pending.push(graph.getEdgeSource(edge).getName());
+            }
+            for (OptimizedAddonGraph other : graphs)
+            {
+               AddonVertex vertex = other.getVertex(name);
+               if (vertex != null)
+               {
+                  for (AddonDependencyEdge edge : other.getGraph().incomingEdgesOf(vertex))
+                     pending.push(other.getGraph().getEdgeSource(edge).getName());
+               }
+            }
+         }
+      }
+
+      pending.addAll(result);
+      while (!pending.isEmpty())
+      {
+         String name = pending.pop();
+         for (AddonVertex vertex : getVertices(name))
+         {
+            for (AddonDependencyEdge edge : graph.outgoingEdgesOf(vertex))
+            {
+               String target = graph.getEdgeTarget(edge).getName();
+               if (result.add(target))
+                  pending.push(target);
+            }
+         }
+         for (OptimizedAddonGraph other : graphs)
+         {
+            AddonVertex vertex = other.getVertex(name);
+            if (vertex != null)
+            {
+               for (AddonDependencyEdge edge : other.getGraph().outgoingEdgesOf(vertex))
+               {
+                  String target = other.getGraph().getEdgeTarget(edge).getName();
+                  if (result.add(target))
+                     pending.push(target);
+               }
+            }
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Return the names of the vertices whose {@link Addon} is not set, has not started yet, or failed.
+    */
+   public Set<String> getNamesNotStarted()
+   {
+      Set<String> result = new HashSet<String>();
+      for (AddonVertex vertex : graph.vertexSet())
+      {
+         Addon addon = vertex.getAddon();
+         if (addon == null || !addon.getStatus().isStarted() || addon.getStatus().isFailed())
+            result.add(vertex.getName());
+      }
+      return result;
+   }
+
+   /**
+    * Return a graph holding the vertices of the given names, and the edges between them. The vertices are shared with
+    * this graph.
+    */
+   public MasterGraph subgraph(Set<String> names)
+   {
+      MasterGraph result = new MasterGraph();
+      for (String name : names)
+      {
+         for (AddonVertex vertex : getVertices(name))
+            result.graph.addVertex(vertex);
+      }
+
+      for (AddonVertex vertex : result.graph.vertexSet())
+      {
+         for (AddonDependencyEdge edge : graph.outgoingEdgesOf(vertex))
+         {
+            AddonVertex target = graph.getEdgeTarget(edge);
+            if (names.contains(target.getName()))
+               result.graph.addEdge(vertex, target,
+                        new AddonDependencyEdge(edge.getVersionRange(), edge.isExported()));
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Replace the vertices of the given names with the vertices of the given {@link MasterGraph}, which must be built
+    * from exactly those names. Edges from other vertices are moved to the replacement with the same name, version and
+    * views. Returns <code>false</code>, leaving this graph unchanged, if there is no such replacement.
+    */
+   public boolean replace(Set<String> names, MasterGraph replacement)
+   {
+      List<AddonVertex> sources = new ArrayList<AddonVertex>();
+      List<AddonVertex> targets = new ArrayList<AddonVertex>();
+      List<AddonDependencyEdge> edges = new ArrayList<AddonDependencyEdge>();
+      for (String name : names)
+      {
+         for (AddonVertex vertex : getVertices(name))
+         {
+            for (AddonDependencyEdge edge : graph.incomingEdgesOf(vertex))
+            {
+               AddonVertex source = graph.getEdgeSource(edge);
+               if (!names.contains(source.getName()))
+               {
+                  AddonVertex target = replacement.getEquivalentVertex(vertex);
+                  if (target == null)
+                     return false;
+                  sources.add(source);
+                  targets.add(target);
+                  edges.add(new AddonDependencyEdge(edge.getVersionRange(), edge.isExported()));
+               }
+            }
+         }
+      }
+
+      for (String name : names)
+      {
+         graph.removeAllVertices(new ArrayList<AddonVertex>(getVertices(name)));
+      }
+
+      for (AddonVertex vertex : replacement.graph.vertexSet())
+      {
+         graph.addVertex(vertex);
+      }
+      for (AddonDependencyEdge edge : replacement.graph.edgeSet())
+      {
+         graph.addEdge(replacement.graph.getEdgeSource(edge), replacement.graph.getEdgeTarget(edge),
+                  new AddonDependencyEdge(edge.getVersionRange(), edge.isExported()));
+      }
+      for (int i = 0; i < edges.size(); i++)
+      {
+         graph.addEdge(sources.get(i), targets.get(i), edges.get(i));
+      }
+      return true;
+   }
+
+   private AddonVertex getEquivalentVertex(AddonVertex vertex)
+   {
+      for (AddonVertex candidate : getVertices(vertex.getName(), vertex.getVersion()))
+      {
+         if (candidate.getViews().equals(vertex.getViews()))
+            return candidate;
+      }
+      return null;
+   }
+
+   private Set<AddonVertex> getVertices(String name)
+   {
+      Set<AddonVertex> vertices = verticesByName.get(name);
+      return vertices == null ? Collections.<AddonVertex> emptySet() : vertices;
+   }
+
    @Override
    public String toString()
    {
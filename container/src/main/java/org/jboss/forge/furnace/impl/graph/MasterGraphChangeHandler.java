@@ -6,6 +6,10 @@
  */
 package org.jboss.forge.furnace.impl.graph;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.jboss.forge.furnace.addons.Addon;
@@ -22,13 +26,25 @@ public class MasterGraphChangeHandler
    private AddonLifecycleManager lifecycleManager;
    private MasterGraph lastMasterGraph;
    private MasterGraph graph;
+   private MasterGraph target;
 
    public MasterGraphChangeHandler(AddonLifecycleManager lifefycleManager,
             MasterGraph currentGraph, MasterGraph graph)
+   {
+      this(lifefycleManager, currentGraph, graph, graph);
+   }
+
+   /**
+    * Handle the changes between two parts of the {@link MasterGraph} only. Removed addons that still need to be shut
+    * down are also added to the given target graph, which the new part was copied into.
+    */
+   public MasterGraphChangeHandler(AddonLifecycleManager lifefycleManager,
+            MasterGraph currentGraph, MasterGraph graph, MasterGraph target)
    {
       this.lifecycleManager = lifefycleManager;
       this.lastMasterGraph = currentGraph;
       this.graph = graph;
+      this.target = target;
    }
 
    public void hotSwapChanges()
@@ -76,6 +92,8 @@ public class MasterGraphChangeHandler
             if (!found && last.getAddon().getStatus().isLoaded())
             {
                graph.getGraph().addVertex(last);
+               if (target != graph)
+                  target.getGraph().addVertex(last);
                last.setDirty(true);
             }
          }
@@ -303,6 +321,7 @@ public class MasterGraphChangeHandler
 
    private void startupIncremental()
    {
+      final Map<AddonVertex, Integer> priorities = new HashMap<>();
       DepthFirstIterator<AddonVertex, AddonDependencyEdge> iterator = new DepthFirstIterator<AddonVertex, AddonDependencyEdge>(
                graph.getGraph());
 
@@ -311,9 +330,17 @@ public class MasterGraphChangeHandler
          @Override
          public void vertexFinished(VertexTraversalEvent<AddonVertex> event)
          {
-            Addon addon = event.getVertex().getAddon();
+            AddonVertex vertex = event.getVertex();
+            Addon addon = vertex.getAddon();
             if (addon.getStatus().isLoaded())
-               lifecycleManager.startAddon(addon);
+            {
+               List<Addon> dependencies = new ArrayList<>();
+               for (AddonDependencyEdge edge : graph.getGraph().outgoingEdgesOf(vertex))
+               {
+                  dependencies.add(graph.getGraph().getEdgeTarget(edge).getAddon());
+               }
+               lifecycleManager.startAddon(addon, dependencies, getCriticalPathLength(vertex, priorities));
+            }
          };
       });
 
@@ -321,6 +348,30 @@ public class MasterGraphChangeHandler
          iterator.next();
    }
 
+   /**
+    * Returns the length of the longest chain of addons that depend on the given vertex. Starting addons with longer
+    * chains first keeps the total startup time close to that of the longest chain.
+    */
+   private int getCriticalPathLength(AddonVertex vertex, Map<AddonVertex, Integer> lengths)
+   {
+      Integer result = lengths.get(vertex);
+      if (result == null)
+      {
+         // Guard against cycles while this vertex is being computed
+         lengths.put(vertex, 0);
+
+         int length = 0;
+         for (AddonDependencyEdge edge : graph.getGraph().incomingEdgesOf(vertex))
+         {
+            AddonVertex dependent = graph.getGraph().getEdgeSource(edge);
+            length = Math.max(length, getCriticalPathLength(dependent, lengths) + 1);
+         }
+         result = length;
+         lengths.put(vertex, result);
+      }
+      return result;
+   }
+
    private void clearDirtyStatus()
    {
       DepthFirstIterator<AddonVertex, AddonDependencyEdge> iterator = new DepthFirstIterator<AddonVertex, AddonDependencyEdge>(
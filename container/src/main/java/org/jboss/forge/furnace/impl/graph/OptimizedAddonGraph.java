@@ -6,119 +6,164 @@
  */
 package org.jboss.forge.furnace.impl.graph;
 
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import org.jboss.forge.furnace.addons.AddonView;
 import org.jboss.forge.furnace.versions.EmptyVersion;
 import org.jboss.forge.furnace.versions.EmptyVersionRange;
+import org.jboss.forge.furnace.versions.Version;
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.alg.CycleDetector;
-import org.jgrapht.event.TraversalListenerAdapter;
-import org.jgrapht.event.VertexTraversalEvent;
 import org.jgrapht.graph.SimpleDirectedGraph;
-import org.jgrapht.traverse.DepthFirstIterator;
 
+/**
+ * The {@link CompleteAddonGraph} of an {@link AddonView} with a single vertex per addon name, holding the highest
+ * version of that name. Names of which only a missing dependency is known are left out. Two names are connected if
+ * any of their versions are, and the edge is exported if any of those dependencies is exported.
+ */
 public class OptimizedAddonGraph extends AddonGraph<OptimizedAddonGraph>
 {
    private DirectedGraph<AddonVertex, AddonDependencyEdge> graph = new SimpleDirectedGraph<AddonVertex, AddonDependencyEdge>(
             AddonDependencyEdge.class);
+   private final Map<String, AddonVertex> verticesByName = new HashMap<String, AddonVertex>();
    private AddonView view;
 
-   public OptimizedAddonGraph(AddonView view, final DirectedGraph<AddonVertex, AddonDependencyEdge> completeGraph)
+   public OptimizedAddonGraph(AddonView view, CompleteAddonGraph completeGraph)
    {
       this.view = view;
-      DepthFirstIterator<AddonVertex, AddonDependencyEdge> iterator = new DepthFirstIterator<AddonVertex, AddonDependencyEdge>(
-               completeGraph);
-      iterator.addTraversalListener(new TraversalListenerAdapter<AddonVertex, AddonDependencyEdge>()
-      {
-         @Override
-         public void vertexTraversed(VertexTraversalEvent<AddonVertex> event)
-         {
-            AddonVertex vertex = event.getVertex();
-            Set<AddonDependencyEdge> incoming = completeGraph.incomingEdgesOf(vertex);
+      update(completeGraph, completeGraph.getNames());
+   }
 
-            AddonVertex localVertex = getOrCreateVertex(vertex.getName(), EmptyVersion.getInstance());
-            for (AddonDependencyEdge incomingEdge : incoming)
-            {
-               AddonVertex source = completeGraph.getEdgeSource(incomingEdge);
-               AddonVertex localSource = getOrCreateVertex(source.getName(), EmptyVersion.getInstance());
-
-               try
-               {
-                  graph.addEdge(localSource, localVertex,
-                           new AddonDependencyEdge(new EmptyVersionRange(), incomingEdge.isExported()));
-               }
-               catch (Exception e)
-               {
-                  e.printStackTrace();
-               }
-            }
-         };
-      });
+   private OptimizedAddonGraph(AddonView view)
+   {
+      this.view = view;
+   }
 
-      while (iterator.hasNext())
-         iterator.next();
+   /**
+    * Build the vertices of the given names again from the given {@link CompleteAddonGraph}, along with every edge
+    * from or to them. Vertices of other names are left untouched.
+    */
+   public void update(CompleteAddonGraph completeGraph, Set<String> names)
+   {
+      for (String name : names)
+      {
+         AddonVertex vertex = verticesByName.remove(name);
+         if (vertex != null)
+            graph.removeVertex(vertex);
+      }
 
-      Map<AddonVertex, AddonVertex> replacements = new LinkedHashMap<AddonVertex, AddonVertex>();
-      for (AddonVertex localVertex : graph.vertexSet())
+      List<AddonVertex> added = new ArrayList<AddonVertex>();
+      for (String name : names)
       {
-         for (AddonVertex vertex : completeGraph.vertexSet())
+         Version version = null;
+         for (AddonVertex vertex : completeGraph.getVertices(name))
          {
-            if (localVertex.getName().equals(vertex.getName())
-                     && (localVertex.getVersion() instanceof EmptyVersion || localVertex.getVersion().compareTo(
-                              vertex.getVersion()) < 1))
-            {
-               if (replacements.get(localVertex) == null || replacements.get(localVertex).getVersion().compareTo(
-                        vertex.getVersion()) < 1)
-               {
-                  AddonVertex replacement = new AddonVertex(localVertex.getName(), vertex.getVersion());
-                  replacements.put(localVertex, replacement);
-               }
-            }
+            if (version == null || version.compareTo(vertex.getVersion()) < 1)
+               version = vertex.getVersion();
+         }
+
+         if (version != null && !(version instanceof EmptyVersion))
+         {
+            AddonVertex vertex = new AddonVertex(name, version);
+            addLocalVertex(vertex);
+            added.add(vertex);
          }
       }
 
-      for (Entry<AddonVertex, AddonVertex> entry : replacements.entrySet())
+      DirectedGraph<AddonVertex, AddonDependencyEdge> complete = completeGraph.getGraph();
+      for (AddonVertex localVertex : added)
       {
-         replaceVertex(entry.getKey(), entry.getValue());
+         for (AddonVertex vertex : completeGraph.getVertices(localVertex.getName()))
+         {
+            for (AddonDependencyEdge edge : complete.outgoingEdgesOf(vertex))
+            {
+               AddonVertex target = verticesByName.get(complete.getEdgeTarget(edge).getName());
+               connect(localVertex, target, edge.isExported());
+            }
+            for (AddonDependencyEdge edge : complete.incomingEdgesOf(vertex))
+            {
+               AddonVertex source = verticesByName.get(complete.getEdgeSource(edge).getName());
+               connect(source, localVertex, edge.isExported());
+            }
+         }
       }
 
       CycleDetector<AddonVertex, AddonDependencyEdge> detector = new CycleDetector<AddonVertex, AddonDependencyEdge>(
                graph);
-      if (detector.detectCycles())
+      for (AddonVertex vertex : added)
       {
-         throw new IllegalStateException("Cycle detected in Addon graph: " + detector.findCycles());
+         if (detector.detectCyclesContainingVertex(vertex))
+            throw new IllegalStateException("Cycle detected in Addon graph: "
+                     + detector.findCyclesContainingVertex(vertex));
       }
-
-//      for (AddonVertex vertex : graph.vertexSet())
-//      {
-//         vertex.addView(view);
-//      }
    }
 
-   private void replaceVertex(AddonVertex original, AddonVertex replacement)
+   private void connect(AddonVertex source, AddonVertex target, boolean exported)
    {
-      Set<AddonDependencyEdge> incoming = graph.incomingEdgesOf(original);
-      Set<AddonDependencyEdge> outgoing = graph.outgoingEdgesOf(original);
+      if (source == null || target == null || source.equals(target))
+         return;
 
-      addLocalVertex(replacement);
+      AddonDependencyEdge edge = graph.getEdge(source, target);
+      if (edge == null || (exported && !edge.isExported()))
+      {
+         if (edge != null)
+            graph.removeEdge(edge);
+         graph.addEdge(source, target, new AddonDependencyEdge(new EmptyVersionRange(), exported));
+      }
+   }
 
-      for (AddonDependencyEdge edge : incoming)
+   /**
+    * Return a copy of this graph holding only the vertices of the given names, and the edges between them.
+    */
+   public OptimizedAddonGraph subgraph(Set<String> names)
+   {
+      OptimizedAddonGraph result = new OptimizedAddonGraph(view);
+      for (String name : names)
       {
-         graph.addEdge(graph.getEdgeSource(edge), replacement,
-                  new AddonDependencyEdge(edge.getVersionRange(), edge.isExported()));
+         AddonVertex vertex = verticesByName.get(name);
+         if (vertex != null)
+            result.addLocalVertex(vertex);
       }
 
-      for (AddonDependencyEdge edge : outgoing)
+      for (AddonVertex vertex : result.verticesByName.values())
       {
-         graph.addEdge(replacement, graph.getEdgeTarget(edge),
-                  new AddonDependencyEdge(edge.getVersionRange(), edge.isExported()));
+         for (AddonDependencyEdge edge : graph.outgoingEdgesOf(vertex))
+         {
+            AddonVertex target = graph.getEdgeTarget(edge);
+            if (result.verticesByName.get(target.getName()) == target)
+               result.graph.addEdge(vertex, target,
+                        new AddonDependencyEdge(edge.getVersionRange(), edge.isExported()));
+         }
       }
+      return result;
+   }
+
+   /**
+    * Return the vertex of the given addon name, or <code>null</code> if this graph does not hold it.
+    */
+   AddonVertex getVertex(String name)
+   {
+      return verticesByName.get(name);
+   }
+
+   @Override
+   protected AddonVertex getVertex(String name, Version version)
+   {
+      AddonVertex vertex = verticesByName.get(name);
+      if (vertex != null && version.compareTo(vertex.getVersion()) == 0)
+         return vertex;
+      return null;
+   }
 
-      graph.removeVertex(original);
+   @Override
+   protected void addLocalVertex(AddonVertex vertex)
+   {
+      if (graph.addVertex(vertex))
+         verticesByName.put(vertex.getName(), vertex);
    }
 
    @Override
@@ -20,13 +20,35 @@ import org.jboss.forge.furnace.util.Assert;
  */
 public class LockManagerImpl implements LockManager
 {
-   private ReentrantReadWriteLock readWriteLock;
+   private final ReentrantReadWriteLock readWriteLock;
 
-   private synchronized Lock obtainLock(LockMode mode)
+   /**
+    * Create a {@link LockManager} backed by a fair {@link ReentrantReadWriteLock}.
+    */
+   public LockManagerImpl()
    {
-      if (readWriteLock == null)
-         readWriteLock = new ReentrantReadWriteLock(true);
+      this(true);
+   }
+
+   /**
+    * Create a {@link LockManager} backed by a {@link ReentrantReadWriteLock} with the given fairness policy. A
+    * non-fair lock gives higher read throughput, but may postpone waiting writers indefinitely.
+    */
+   public LockManagerImpl(boolean fair)
+   {
+      this.readWriteLock = new ReentrantReadWriteLock(fair);
+   }
 
+   /**
+    * @return <code>true</code> if the underlying lock uses a fair ordering policy.
+    */
+   public boolean isFair()
+   {
+      return readWriteLock.isFair();
+   }
+
+   private Lock obtainLock(LockMode mode)
+   {
       if (LockMode.READ.equals(mode))
       {
          return readWriteLock.readLock();
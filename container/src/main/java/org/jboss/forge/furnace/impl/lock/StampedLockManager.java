@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.lock;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.StampedLock;
+
+import org.jboss.forge.furnace.exception.ContainerException;
+import org.jboss.forge.furnace.lock.LockManager;
+import org.jboss.forge.furnace.lock.LockMode;
+import org.jboss.forge.furnace.util.Assert;
+
+/**
+ * A {@link LockManager} backed by a {@link StampedLock}. Locks are acquired without synchronization, and
+ * {@link #performOptimisticRead(Callable)} runs read-only tasks without acquiring a lock at all unless a writer
+ * interferes.
+ * <p>
+ * {@link StampedLock} is not reentrant, so the locks held by each thread are counted here: nested tasks run under the
+ * lock already held by their thread. As with {@link LockManagerImpl}, a thread holding a {@link LockMode#READ} lock may
+ * never obtain a {@link LockMode#WRITE} lock, even if that {@link LockMode#READ} lock is nested within a
+ * {@link LockMode#WRITE} lock.
+ */
+public class StampedLockManager implements LockManager
+{
+   private final StampedLock stampedLock = new StampedLock();
+
+   private final ThreadLocal<Holds> holds = new ThreadLocal<Holds>()
+   {
+      @Override
+      protected Holds initialValue()
+      {
+         return new Holds();
+      }
+   };
+
+   @Override
+   public <T> T performLocked(LockMode mode, Callable<T> task)
+   {
+      Assert.notNull(mode, "LockMode must not be null.");
+      Assert.notNull(task, "Task to perform must not be null.");
+
+      Holds held = holds.get();
+      if (LockMode.READ.equals(mode))
+      {
+         if (held.isLocked())
+         {
+            held.reads++;
+            try
+            {
+               return call(mode, task);
+            }
+            finally
+            {
+               held.reads--;
+            }
+         }
+
+         long stamp = stampedLock.readLock();
+         held.reads++;
+         try
+         {
+            return call(mode, task);
+         }
+         finally
+         {
+            held.reads--;
+            stampedLock.unlockRead(stamp);
+         }
+      }
+      else
+      {
+         if (held.reads > 0)
+            throw new DeadlockError(
+                     "Thread with READ lock attempted to obtain a WRITE lock (This is never allowed.)");
+
+         if (held.writes > 0)
+         {
+            held.writes++;
+            try
+            {
+               return call(mode, task);
+            }
+            finally
+            {
+               held.writes--;
+            }
+         }
+
+         long stamp = stampedLock.writeLock();
+         held.writes++;
+         try
+         {
+            return call(mode, task);
+         }
+         finally
+         {
+            held.writes--;
+            stampedLock.unlockWrite(stamp);
+         }
+      }
+   }
+
+   @Override
+   public <T> T performOptimisticRead(Callable<T> task)
+   {
+      Assert.notNull(task, "Task to perform must not be null.");
+
+      long stamp = stampedLock.tryOptimisticRead();
+      if (stamp != 0 && !holds.get().isLocked())
+      {
+         try
+         {
+            T result = task.call();
+            if (stampedLock.validate(stamp))
+               return result;
+         }
+         catch (Exception e)
+         {
+            /*
+             * The task may have failed because it observed a concurrent write. Only report the failure if no write
+             * happened, otherwise retry under the lock.
+             */
+            if (stampedLock.validate(stamp))
+               throw wrap(LockMode.READ, e);
+         }
+      }
+      return performLocked(LockMode.READ, task);
+   }
+
+   private static <T> T call(LockMode mode, Callable<T> task)
+   {
+      try
+      {
+         return task.call();
+      }
+      catch (Exception e)
+      {
+         throw wrap(mode, e);
+      }
+   }
+
+   private static RuntimeException wrap(LockMode mode, Exception e)
+   {
+      if (e instanceof RuntimeException)
+         return (RuntimeException) e;
+      return new ContainerException("Failed to execute task in LockMode [" + mode + "]", e);
+   }
+
+   private static class Holds
+   {
+      private int reads;
+      private int writes;
+
+      private boolean isLocked()
+      {
+         return reads > 0 || writes > 0;
+      }
+   }
+}
@@ -6,71 +6,228 @@
  */
 package org.jboss.forge.furnace.impl.modules;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarFile;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jboss.forge.furnace.util.Assert;
-import org.jboss.forge.furnace.util.Sets;
+import org.jboss.modules.ClassSpec;
+import org.jboss.modules.IterableResourceLoader;
 import org.jboss.modules.ModuleIdentifier;
+import org.jboss.modules.PackageSpec;
+import org.jboss.modules.Resource;
+import org.jboss.modules.ResourceLoader;
+import org.jboss.modules.ResourceLoaders;
 
 /**
+ * Pool of the JAR files opened for addon modules. A JAR is opened once per canonical path and
+ * modification time, however many modules (one per {@link org.jboss.forge.furnace.addons.AddonView} containing the
+ * addon) use it, and closed when the last of them is released. The package index of each JAR is computed once and
+ * shared by all of its modules.
+ *
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
 class AddonModuleJarFileCache
 {
    private static final Logger logger = Logger.getLogger(AddonModuleJarFileCache.class.getName());
-   private final Map<ModuleIdentifier, Set<JarFile>> map = new ConcurrentHashMap<ModuleIdentifier, Set<JarFile>>();
 
-   public void closeJarFileReferences(ModuleIdentifier id)
+   private final boolean mapped;
+   private final Map<String, SharedJarFile> files = new HashMap<>();
+   private final Map<ModuleIdentifier, List<SharedJarFile>> references = new HashMap<>();
+
+   /**
+    * Create a pool reading JARs through {@link JarFile}, or through memory mappings if <code>mapped</code> is
+    * <code>true</code>; JARs that cannot be mapped are still read through {@link JarFile}.
+    */
+   AddonModuleJarFileCache(boolean mapped)
+   {
+      this.mapped = mapped;
+   }
+
+   /**
+    * Return a {@link ResourceLoader} for the given JAR, opening it only if no other module holds a reference to the
+    * same file. The reference is released by {@link #closeJarFileReferences(ModuleIdentifier)}.
+    */
+   public synchronized ResourceLoader getJarResourceLoader(ModuleIdentifier id, File file) throws IOException
    {
       Assert.notNull(id, "Module reference must not be null.");
+      Assert.notNull(file, "JAR file must not be null.");
 
-      Set<JarFile> files = map.remove(id);
-      if (files != null)
+      String key = file.getCanonicalPath() + "@" + file.lastModified();
+      SharedJarFile shared = files.get(key);
+      if (shared == null)
       {
-         for (JarFile file : files)
+         logger.log(Level.FINE, "Opening JarFile [" + file + "] for module [" + id + "]");
+         IterableResourceLoader loader = null;
+         if (mapped)
+            loader = MappedJarResourceLoader.open(file.getName(), file);
+         if (loader == null)
+            loader = ResourceLoaders.createJarResourceLoader(file.getName(), new JarFile(file));
+         shared = new SharedJarFile(key, loader);
+         files.put(key, shared);
+      }
+      else
+      {
+         logger.log(Level.FINE, "Sharing JarFile [" + file + "] with module [" + id + "]");
+      }
+
+      List<SharedJarFile> held = references.get(id);
+      if (held == null)
+      {
+         held = new ArrayList<>();
+         references.put(id, held);
+      }
+      held.add(shared);
+      shared.references++;
+
+      return new SharedJarResourceLoader(shared);
+   }
+
+   public synchronized void closeJarFileReferences(ModuleIdentifier id)
+   {
+      Assert.notNull(id, "Module reference must not be null.");
+
+      List<SharedJarFile> held = references.remove(id);
+      if (held != null)
+      {
+         for (SharedJarFile shared : held)
          {
-            try
-            {
-               logger.log(Level.FINE, "Closing JarFile [" + file.getName() + "]");
-               file.close();
-            }
-            catch (IOException e)
+            if (--shared.references == 0)
             {
-               logger.log(Level.WARNING, "Could not close JAR file reference [" + file + "] for module [" + id + "]", e);
+               files.remove(shared.key);
+               close(shared, id);
             }
          }
       }
    }
 
-   public void addJarFileReference(ModuleIdentifier id, JarFile file)
+   public synchronized void dispose()
    {
-      Assert.notNull(id, "Module reference must not be null.");
-      Assert.notNull(file, "JarFile reference must not be null.");
-
-      logger.log(Level.FINE, "Adding JarFile [" + file.getName() + "] for module [" + id + "]");
-      Set<JarFile> files = map.get(id);
-      if (files == null)
+      for (SharedJarFile shared : files.values())
       {
-         files = Sets.getConcurrentSet();
-         map.put(id, files);
+         close(shared, null);
       }
+      files.clear();
+      references.clear();
+   }
 
-      files.add(file);
+   private void close(SharedJarFile shared, ModuleIdentifier id)
+   {
+      try
+      {
+         logger.log(Level.FINE, "Closing JarFile [" + shared.key + "]");
+         shared.loader.close();
+      }
+      catch (RuntimeException e)
+      {
+         logger.log(Level.WARNING, "Could not close JAR file reference [" + shared.key + "] for module [" + id
+                  + "]", e);
+      }
    }
 
-   public void dispose()
+   private static class SharedJarFile
    {
-      for (ModuleIdentifier id : map.keySet())
+      private final String key;
+      private final IterableResourceLoader loader;
+      private volatile Collection<String> paths;
+      private int references;
+
+      SharedJarFile(String key, IterableResourceLoader loader)
       {
-         closeJarFileReferences(id);
+         this.key = key;
+         this.loader = loader;
+      }
+
+      /**
+       * The packages (as paths) of this JAR, used by JBoss Modules to route class and resource lookups straight to the
+       * resource root that has them.
+       */
+      Collection<String> getPaths()
+      {
+         Collection<String> result = paths;
+         if (result == null)
+         {
+            result = Collections.unmodifiableList(new ArrayList<>(loader.getPaths()));
+            paths = result;
+         }
+         return result;
       }
-      map.clear();
    }
 
+   /**
+    * A module's view of a {@link SharedJarFile}. Closing it does not close the JAR, which is owned by the pool.
+    */
+   private static class SharedJarResourceLoader implements IterableResourceLoader
+   {
+      private final SharedJarFile shared;
+
+      SharedJarResourceLoader(SharedJarFile shared)
+      {
+         this.shared = shared;
+      }
+
+      @Override
+      public String getRootName()
+      {
+         return shared.loader.getRootName();
+      }
+
+      @Override
+      public ClassSpec getClassSpec(String fileName) throws IOException
+      {
+         return shared.loader.getClassSpec(fileName);
+      }
+
+      @Override
+      public PackageSpec getPackageSpec(String name) throws IOException
+      {
+         return shared.loader.getPackageSpec(name);
+      }
+
+      @Override
+      public Resource getResource(String name)
+      {
+         return shared.loader.getResource(name);
+      }
+
+      @Override
+      public String getLibrary(String name)
+      {
+         return shared.loader.getLibrary(name);
+      }
+
+      @Override
+      public Collection<String> getPaths()
+      {
+         return shared.getPaths();
+      }
+
+      @Override
+      public URI getLocation()
+      {
+         return shared.loader.getLocation();
+      }
+
+      @Override
+      public Iterator<Resource> iterateResources(String startPath, boolean recursive)
+      {
+         return shared.loader.iterateResources(startPath, recursive);
+      }
+
+      @Override
+      public void close()
+      {
+         // The JAR is closed once no module references it anymore
+      }
+   }
 }
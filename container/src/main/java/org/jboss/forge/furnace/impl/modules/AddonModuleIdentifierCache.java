@@ -6,37 +6,51 @@
  */
 package org.jboss.forge.furnace.impl.modules;
 
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.jboss.forge.furnace.addons.Addon;
 import org.jboss.forge.furnace.addons.AddonId;
 import org.jboss.modules.ModuleIdentifier;
 
 /**
+ * Assigns a unique {@link ModuleIdentifier} to each {@link Addon}, indexed in both directions so module resolution
+ * finds the {@link Addon} of an identifier without scanning. Safe for use by addons starting in parallel.
+ *
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
 class AddonModuleIdentifierCache
 {
-   private final Map<Addon, ModuleIdentifier> map = new HashMap<>();
+   private final ConcurrentMap<Addon, ModuleIdentifier> map = new ConcurrentHashMap<>();
+   private final ConcurrentMap<ModuleIdentifier, Addon> addons = new ConcurrentHashMap<>();
 
    public void clear(Addon addon)
    {
-      map.remove(addon);
+      ModuleIdentifier id = map.remove(addon);
+      if (id != null)
+         addons.remove(id, addon);
    }
 
    public void dispose()
    {
       map.clear();
+      addons.clear();
    }
 
    public ModuleIdentifier getModuleId(Addon addon)
    {
-      return map.computeIfAbsent(addon,
-               a -> ModuleIdentifier.fromString(toModuleId(a.getId()) + "_" + UUID.randomUUID().toString()));
+      /*
+       * The reverse mapping is registered before the identifier is published, so whoever obtains an identifier can
+       * also resolve it.
+       */
+      return map.computeIfAbsent(addon, a -> {
+         ModuleIdentifier id = ModuleIdentifier.fromString(toModuleId(a.getId()) + "_" + UUID.randomUUID().toString());
+         addons.put(id, a);
+         return id;
+      });
    }
 
    private String toModuleId(AddonId id)
@@ -61,14 +75,7 @@ class AddonModuleIdentifierCache
 
    public Addon getAddon(ModuleIdentifier id)
    {
-      for (Entry<Addon, ModuleIdentifier> entry : map.entrySet())
-      {
-         if (entry.getValue().equals(id))
-         {
-            return entry.getKey();
-         }
-      }
-      return null;
+      return addons.get(id);
    }
 
 }
@@ -9,10 +9,13 @@ package org.jboss.forge.furnace.impl.modules;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.jar.JarFile;
 import java.util.logging.Logger;
 
@@ -22,6 +25,7 @@ import org.jboss.forge.furnace.addons.AddonId;
 import org.jboss.forge.furnace.addons.AddonView;
 import org.jboss.forge.furnace.exception.ContainerException;
 import org.jboss.forge.furnace.impl.addons.AddonLifecycleManager;
+import org.jboss.forge.furnace.impl.addons.AddonRepositoryImpl;
 import org.jboss.forge.furnace.impl.addons.AddonStateManager;
 import org.jboss.forge.furnace.impl.modules.providers.FurnaceContainerSpec;
 import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
@@ -43,6 +47,18 @@ import org.jboss.modules.filter.PathFilters;
  */
 public class AddonModuleLoader extends ModuleLoader
 {
+   /**
+    * System property to read addon resource JARs through read-only memory mappings instead of {@link JarFile}, which
+    * keeps their central directories and contents off the heap. Disabled by default.
+    */
+   public static final String FURNACE_MAPPED_JARS_PROPERTY = "furnace.modules.mapped.jars";
+
+   /**
+    * Name of the file, in the root directory of each {@link AddonRepository}, that persists the resolved module
+    * layouts of its addons across restarts.
+    */
+   public static final String MODULE_LAYOUTS_FILENAME = "modules.bin";
+
    private static final String CONTAINER_PREFIX = "org.jboss.forge.furnace.container:";
 
    private static final Logger logger = Logger.getLogger(AddonModuleLoader.class.getName());
@@ -51,6 +67,7 @@ public class AddonModuleLoader extends ModuleLoader
 
    private final AddonModuleIdentifierCache moduleCache;
    private final AddonModuleJarFileCache moduleJarFileCache;
+   private final ConcurrentMap<AddonRepository, ModuleLayoutCache> layoutCaches = new ConcurrentHashMap<>();
 
    private AddonLifecycleManager lifecycleManager;
    private AddonStateManager stateManager;
@@ -65,7 +82,7 @@ public class AddonModuleLoader extends ModuleLoader
       this.lifecycleManager = lifecycleManager;
       this.stateManager = stateManager;
       this.moduleCache = new AddonModuleIdentifierCache();
-      this.moduleJarFileCache = new AddonModuleJarFileCache();
+      this.moduleJarFileCache = new AddonModuleJarFileCache(Boolean.getBoolean(FURNACE_MAPPED_JARS_PROPERTY));
       installModuleMBeanServer();
    }
 
@@ -76,6 +93,11 @@ public class AddonModuleLoader extends ModuleLoader
       this.stateManager = null;
       this.moduleCache.dispose();
       this.moduleJarFileCache.dispose();
+      for (ModuleLayoutCache cache : layoutCaches.values())
+      {
+         cache.write();
+      }
+      this.layoutCaches.clear();
       this.moduleProviders = null;
    }
 
@@ -168,9 +190,11 @@ public class AddonModuleLoader extends ModuleLoader
                               PathFilters.acceptAll(), parent, Collections.singleton("META-INF/services")));
                   }
 
+                  List<File> resources = repository.getAddonResources(found);
+                  ModuleLayout layout;
                   try
                   {
-                     addContainerDependencies(views, repository, found, builder);
+                     layout = getModuleLayout(views, repository, found, resources);
                   }
                   catch (ContainerException e)
                   {
@@ -178,20 +202,17 @@ public class AddonModuleLoader extends ModuleLoader
                      return null;
                   }
 
+                  /*
+                   * Containers should always take precedence at runtime.
+                   */
+                  addDependencies(views, builder, layout.getContainerDependencies());
+
                   builder.addDependency(DependencySpec.createLocalDependencySpec(PathFilters.acceptAll(),
                            PathFilters.acceptAll()));
 
-                  try
-                  {
-                     addAddonDependencies(views, repository, found, builder);
-                  }
-                  catch (ContainerException e)
-                  {
-                     logger.warning(e.getMessage());
-                     return null;
-                  }
+                  addDependencies(views, builder, layout.getAddonDependencies());
 
-                  addLocalResources(repository, found, builder, id);
+                  addLocalResources(layout, resources, builder, id);
 
                   return builder.create();
                }
@@ -201,27 +222,100 @@ public class AddonModuleLoader extends ModuleLoader
       return null;
    }
 
-   private void addLocalResources(AddonRepository repository, AddonId found, Builder builder, ModuleIdentifier id)
+   /**
+    * Returns the {@link ModuleLayout} of the given addon, from the layout cache of its repository while the
+    * dependencies resolve as they did when it was stored, and its resources are unchanged. The dependencies are
+    * resolved either way, so a required dependency that cannot be resolved always fails.
+    * 
+    * @throws ContainerException if a required dependency cannot be resolved
+    */
+   private ModuleLayout getModuleLayout(Set<AddonView> views, AddonRepository repository, AddonId found,
+            List<File> resources) throws ContainerException
    {
-      List<File> resources = repository.getAddonResources(found);
-      for (File file : resources)
+      List<AddonDependencyEntry> dependencies = new ArrayList<>(repository.getAddonDependencies(found));
+      List<AddonId> resolved = new ArrayList<>(dependencies.size());
+      for (AddonDependencyEntry dependency : dependencies)
       {
-         try
+         AddonId addonId = stateManager.resolveAddonId(views, dependency.getName());
+         if (addonId != null && findCompatibleInstalledModule(addonId) == null)
+            addonId = null;
+         if (addonId == null && !dependency.isOptional())
+            throw new ContainerException("Dependency [" + dependency + "] could not be loaded for addon [" + found
+                     + "]");
+         resolved.add(addonId);
+      }
+
+      ModuleLayoutCache cache = getModuleLayoutCache(repository);
+      long fingerprint = ModuleLayoutCache.fingerprint(found, dependencies, resolved, resources);
+      ModuleLayout result = cache.get(found, fingerprint);
+      if (result == null || !result.hasRootsWithin(resources.size()))
+      {
+         List<ModuleLayout.Dependency> containerDependencies = new ArrayList<>();
+         List<ModuleLayout.Dependency> addonDependencies = new ArrayList<>();
+         for (int i = 0; i < dependencies.size(); i++)
          {
+            AddonDependencyEntry dependency = dependencies.get(i);
+            AddonId addonId = resolved.get(i);
+            if (addonId != null)
+            {
+               ModuleLayout.Dependency entry = new ModuleLayout.Dependency(addonId, dependency.isExported(),
+                        dependency.isOptional());
+               if (dependency.getName().startsWith(CONTAINER_PREFIX))
+                  containerDependencies.add(entry);
+               else
+                  addonDependencies.add(entry);
+            }
+         }
+
+         List<ModuleLayout.Root> roots = new ArrayList<>();
+         for (int i = 0; i < resources.size(); i++)
+         {
+            File file = resources.get(i);
             if (file.isDirectory())
+               roots.add(new ModuleLayout.Root(i, true));
+            else if (file.length() > 0)
+               roots.add(new ModuleLayout.Root(i, false));
+         }
+
+         result = new ModuleLayout(fingerprint, containerDependencies, addonDependencies, roots);
+         cache.put(found, result);
+      }
+      return result;
+   }
+
+   private ModuleLayoutCache getModuleLayoutCache(AddonRepository repository)
+   {
+      ModuleLayoutCache result = layoutCaches.get(repository);
+      if (result == null)
+      {
+         File root = repository.getRootDirectory();
+         result = new ModuleLayoutCache(root == null ? null : new File(root, MODULE_LAYOUTS_FILENAME));
+         ModuleLayoutCache existing = layoutCaches.putIfAbsent(repository, result);
+         if (existing != null)
+            result = existing;
+      }
+      return result;
+   }
+
+   private void addLocalResources(ModuleLayout layout, List<File> resources, Builder builder, ModuleIdentifier id)
+   {
+      for (ModuleLayout.Root root : layout.getRoots())
+      {
+         File file = resources.get(root.getResource());
+         try
+         {
+            if (root.isDirectory())
             {
                builder.addResourceRoot(
                         ResourceLoaderSpec.createResourceLoaderSpec(
                                  ResourceLoaders.createFileResourceLoader(file.getName(), file),
                                  PathFilters.acceptAll()));
             }
-            else if (file.length() > 0)
+            else
             {
-               JarFile jarFile = new JarFile(file);
-               moduleJarFileCache.addJarFileReference(id, jarFile);
                builder.addResourceRoot(
                         ResourceLoaderSpec.createResourceLoaderSpec(
-                                 ResourceLoaders.createJarResourceLoader(file.getName(), jarFile),
+                                 moduleJarFileCache.getJarResourceLoader(id, file),
                                  PathFilters.acceptAll()));
             }
          }
@@ -232,57 +326,20 @@ public class AddonModuleLoader extends ModuleLoader
       }
    }
 
-   private void addContainerDependencies(Set<AddonView> views, AddonRepository repository, AddonId found,
-            Builder builder)
-                     throws ContainerException
+   private void addDependencies(Set<AddonView> views, Builder builder, List<ModuleLayout.Dependency> dependencies)
    {
-      Set<AddonDependencyEntry> addons = repository.getAddonDependencies(found);
-      for (AddonDependencyEntry dependency : addons)
+      for (ModuleLayout.Dependency dependency : dependencies)
       {
-         /*
-          * Containers should always take precedence at runtime.
-          */
-         if (dependency.getName().startsWith(CONTAINER_PREFIX))
-            addAddonDependency(views, found, builder, dependency);
+         Addon addon = lifecycleManager.getAddon(views, dependency.getId());
+         builder.addDependency(DependencySpec.createModuleDependencySpec(
+                  PathFilters.not(PathFilters.getMetaInfFilter()),
+                  dependency.isExported() ? PathFilters.acceptAll() : PathFilters.rejectAll(),
+                  this,
+                  moduleCache.getModuleId(addon),
+                  dependency.isOptional()));
       }
    }
 
-   private void addAddonDependencies(Set<AddonView> views, AddonRepository repository, AddonId found, Builder builder)
-            throws ContainerException
-   {
-      Set<AddonDependencyEntry> addons = repository.getAddonDependencies(found);
-      for (AddonDependencyEntry dependency : addons)
-      {
-         if (!dependency.getName().startsWith(CONTAINER_PREFIX))
-            addAddonDependency(views, found, builder, dependency);
-      }
-   }
-
-   private void addAddonDependency(Set<AddonView> views, AddonId found, Builder builder,
-            AddonDependencyEntry dependency)
-   {
-      AddonId addonId = stateManager.resolveAddonId(views, dependency.getName());
-      ModuleIdentifier moduleId = null;
-      if (addonId != null)
-      {
-         Addon addon = lifecycleManager.getAddon(views, addonId);
-         moduleId = findCompatibleInstalledModule(addonId);
-         if (moduleId != null)
-         {
-            builder.addDependency(DependencySpec.createModuleDependencySpec(
-                     PathFilters.not(PathFilters.getMetaInfFilter()),
-                     dependency.isExported() ? PathFilters.acceptAll() : PathFilters.rejectAll(),
-                     this,
-                     moduleCache.getModuleId(addon),
-                     dependency.isOptional()));
-         }
-      }
-
-      if (!dependency.isOptional() && (addonId == null || moduleId == null))
-         throw new ContainerException("Dependency [" + dependency + "] could not be loaded for addon [" + found
-                  + "]");
-   }
-
    private ModuleIdentifier findCompatibleInstalledModule(AddonId addonId)
    {
       ModuleIdentifier result = null;
@@ -290,14 +347,10 @@ public class AddonModuleLoader extends ModuleLoader
       Addon addon = currentAddon.get();
       for (AddonRepository repository : stateManager.getViewsOf(addon).iterator().next().getRepositories())
       {
-         List<AddonId> enabled = repository.listEnabled();
-         for (AddonId id : enabled)
+         if (!AddonRepositoryImpl.listEnabled(repository, addonId.getName()).isEmpty())
          {
-            if (id.getName().equals(addonId.getName()))
-            {
-               result = moduleCache.getModuleId(addon);
-               break;
-            }
+            result = moduleCache.getModuleId(addon);
+            break;
          }
       }
 
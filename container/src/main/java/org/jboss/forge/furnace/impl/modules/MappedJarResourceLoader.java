@@ -0,0 +1,556 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.modules;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.jboss.forge.furnace.impl.util.MappedBuffers;
+import org.jboss.modules.AbstractResourceLoader;
+import org.jboss.modules.ClassSpec;
+import org.jboss.modules.IterableResourceLoader;
+import org.jboss.modules.PackageSpec;
+import org.jboss.modules.PathUtils;
+import org.jboss.modules.Resource;
+
+/**
+ * Serves the entries of a JAR from a read-only memory mapping of the file. The central directory is parsed once from
+ * the mapping, and stored classes are defined straight from the mapped buffer, so the JAR contents never pass through
+ * heap stream buffers. Deflated entries are inflated into an array of their exact size.
+ * <p>
+ * Signed, multi-release and ZIP64 archives are not supported: {@link #open(String, File)} returns <code>null</code>
+ * for them, and they are read through {@link JarFile} instead. Offsets and sizes are checked against the bounds of the
+ * file, and a malformed archive raises a {@link ZipException}.
+ * <p>
+ * {@link #close()} unmaps the file. Resources read afterwards raise an {@link IOException}. Class specs of stored
+ * entries refer to the mapping, and must be defined before the loader is closed.
+ */
+final class MappedJarResourceLoader extends AbstractResourceLoader implements IterableResourceLoader
+{
+   private static final int LOCAL_HEADER = 0x04034b50;
+   private static final int CENTRAL_HEADER = 0x02014b50;
+   private static final int END_HEADER = 0x06054b50;
+   private static final int END_HEADER_SIZE = 22;
+
+   private static final int STORED = 0;
+   private static final int DEFLATED = 8;
+
+   private final String rootName;
+   private final File file;
+   private final ByteBuffer buffer;
+   private final ReadWriteLock lock = new ReentrantReadWriteLock();
+   private boolean closed;
+   private final URL rootUrl;
+   private final CodeSource codeSource;
+   private final Map<String, Entry> entries;
+   private final Collection<String> paths;
+   private final Manifest manifest;
+
+   private MappedJarResourceLoader(String rootName, File file, ByteBuffer buffer, Map<String, Entry> entries)
+            throws IOException
+   {
+      this.rootName = rootName;
+      this.file = file;
+      this.buffer = buffer;
+      this.rootUrl = file.toURI().toURL();
+      this.codeSource = new CodeSource(rootUrl, (CodeSigner[]) null);
+      this.entries = entries;
+
+      Set<String> paths = new LinkedHashSet<>();
+      paths.add("");
+      for (String name : entries.keySet())
+      {
+         int index = name.lastIndexOf('/');
+         if (index > 0)
+         {
+            String path = name.substring(0, index);
+            if (!path.endsWith("/"))
+               paths.add(path);
+         }
+      }
+      this.paths = Collections.unmodifiableCollection(paths);
+
+      Entry entry = entries.get(JarFile.MANIFEST_NAME);
+      this.manifest = entry == null ? null : new Manifest(new ByteArrayInputStream(getBytes(entry)));
+   }
+
+   /**
+    * Map the given JAR, or return <code>null</code> if it uses features this loader does not support.
+    */
+   static MappedJarResourceLoader open(String rootName, File file) throws IOException
+   {
+      ByteBuffer buffer;
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+      {
+         if (channel.size() > Integer.MAX_VALUE)
+            return null;
+         buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+      MappedJarResourceLoader result = null;
+      try
+      {
+         Map<String, Entry> entries = readCentralDirectory(buffer);
+         if (entries == null)
+            return null;
+
+         for (String name : entries.keySet())
+         {
+            if (isSignature(name))
+               return null;
+         }
+
+         MappedJarResourceLoader loader = new MappedJarResourceLoader(rootName, file, buffer, entries);
+         if (loader.manifest != null
+                  && Boolean.parseBoolean(loader.manifest.getMainAttributes().getValue("Multi-Release")))
+            return null;
+         result = loader;
+         return result;
+      }
+      finally
+      {
+         if (result == null)
+            MappedBuffers.unmap(buffer);
+      }
+   }
+
+   private static Map<String, Entry> readCentralDirectory(ByteBuffer buffer) throws ZipException
+   {
+      int end = -1;
+      for (int i = buffer.limit() - END_HEADER_SIZE; i >= Math.max(0, buffer.limit() - END_HEADER_SIZE - 0xFFFF); i--)
+      {
+         if (buffer.getInt(i) == END_HEADER)
+         {
+            end = i;
+            break;
+         }
+      }
+      if (end == -1)
+         throw new ZipException("End of central directory not found");
+
+      int count = buffer.getShort(end + 10) & 0xFFFF;
+      long offset = buffer.getInt(end + 16) & 0xFFFFFFFFL;
+      if (count == 0xFFFF || offset == 0xFFFFFFFFL)
+         return null;
+      if (offset > end)
+         throw new ZipException("Invalid central directory offset " + offset);
+
+      Map<String, Entry> result = new HashMap<>(count * 4 / 3 + 1);
+      int position = (int) offset;
+      for (int i = 0; i < count; i++)
+      {
+         if (position + 46 > end || buffer.getInt(position) != CENTRAL_HEADER)
+            throw new ZipException("Invalid central directory header at offset " + position);
+
+         int flags = buffer.getShort(position + 8) & 0xFFFF;
+         int method = buffer.getShort(position + 10) & 0xFFFF;
+         long compressedSize = buffer.getInt(position + 20) & 0xFFFFFFFFL;
+         long size = buffer.getInt(position + 24) & 0xFFFFFFFFL;
+         int nameLength = buffer.getShort(position + 28) & 0xFFFF;
+         int extraLength = buffer.getShort(position + 30) & 0xFFFF;
+         int commentLength = buffer.getShort(position + 32) & 0xFFFF;
+         long localOffset = buffer.getInt(position + 42) & 0xFFFFFFFFL;
+
+         if ((flags & 1) != 0 || (method != STORED && method != DEFLATED)
+                  || compressedSize == 0xFFFFFFFFL || size == 0xFFFFFFFFL || localOffset == 0xFFFFFFFFL)
+            return null;
+
+         if (position + 46 + nameLength > end)
+            throw new ZipException("Invalid entry name length at offset " + position);
+         if (localOffset + 30 > offset || compressedSize > offset || size > Integer.MAX_VALUE)
+            throw new ZipException("Invalid entry offset or size at offset " + position);
+
+         byte[] name = new byte[nameLength];
+         ByteBuffer source = buffer.duplicate();
+         source.position(position + 46);
+         source.get(name);
+
+         Entry entry = new Entry(method, (int) compressedSize, (int) size, (int) localOffset);
+         result.put(new String(name, StandardCharsets.UTF_8), entry);
+
+         position += 46 + nameLength + extraLength + commentLength;
+      }
+      return result;
+   }
+
+   private static boolean isSignature(String name)
+   {
+      if (!name.startsWith("META-INF/") || name.indexOf('/', "META-INF/".length()) != -1)
+         return false;
+      return name.endsWith(".SF") || name.endsWith(".RSA") || name.endsWith(".DSA") || name.endsWith(".EC");
+   }
+
+   @Override
+   public String getRootName()
+   {
+      return rootName;
+   }
+
+   @Override
+   public ClassSpec getClassSpec(String fileName) throws IOException
+   {
+      Entry entry = entries.get(fileName);
+      if (entry == null)
+         return null;
+
+      ClassSpec spec = new ClassSpec();
+      spec.setCodeSource(codeSource);
+      if (entry.method == STORED)
+         spec.setByteBuffer(getData(entry));
+      else
+         spec.setBytes(getBytes(entry));
+      return spec;
+   }
+
+   @Override
+   public PackageSpec getPackageSpec(String name) throws IOException
+   {
+      return getPackageSpec(name, manifest, rootUrl);
+   }
+
+   @Override
+   public Resource getResource(String name)
+   {
+      String canonical = PathUtils.canonicalize(PathUtils.relativize(name));
+      Entry entry = entries.get(canonical);
+      if (entry == null)
+         return null;
+      return new EntryResource(canonical, entry);
+   }
+
+   @Override
+   public Iterator<Resource> iterateResources(String startPath, boolean recursive)
+   {
+      String start = PathUtils.canonicalize(PathUtils.relativize(startPath));
+      if (start.endsWith("/"))
+         start = start.substring(0, start.length() - 1);
+
+      List<Resource> result = new ArrayList<>();
+      for (Map.Entry<String, Entry> entry : entries.entrySet())
+      {
+         String name = entry.getKey();
+         if (name.endsWith("/"))
+            continue;
+
+         int index = name.lastIndexOf('/');
+         String path = index == -1 ? "" : name.substring(0, index);
+         if (path.equals(start) || (recursive && (start.isEmpty() || path.startsWith(start + "/"))))
+            result.add(new EntryResource(name, entry.getValue()));
+      }
+      return result.iterator();
+   }
+
+   @Override
+   public Collection<String> getPaths()
+   {
+      return paths;
+   }
+
+   @Override
+   public URI getLocation()
+   {
+      return file.toURI();
+   }
+
+   @Override
+   public void close()
+   {
+      lock.writeLock().lock();
+      try
+      {
+         if (!closed)
+         {
+            closed = true;
+            MappedBuffers.unmap(buffer);
+         }
+      }
+      finally
+      {
+         lock.writeLock().unlock();
+      }
+   }
+
+   private ByteBuffer getData(Entry entry) throws IOException
+   {
+      lock.readLock().lock();
+      try
+      {
+         ensureOpen();
+         return entry.getData(buffer);
+      }
+      finally
+      {
+         lock.readLock().unlock();
+      }
+   }
+
+   private byte[] getBytes(Entry entry) throws IOException
+   {
+      lock.readLock().lock();
+      try
+      {
+         ensureOpen();
+         return entry.getBytes(buffer);
+      }
+      finally
+      {
+         lock.readLock().unlock();
+      }
+   }
+
+   /**
+    * Requires the read lock.
+    */
+   private void ensureOpen() throws IOException
+   {
+      if (closed)
+         throw new IOException("JAR [" + file + "] is closed");
+   }
+
+   @Override
+   public String toString()
+   {
+      return "mapped JAR resource loader [" + file + "]";
+   }
+
+   /**
+    * The location of an entry's data within the mapping.
+    */
+   private static final class Entry
+   {
+      private final int method;
+      private final int compressedSize;
+      private final int size;
+      private final int localOffset;
+
+      Entry(int method, int compressedSize, int size, int localOffset)
+      {
+         this.method = method;
+         this.compressedSize = compressedSize;
+         this.size = size;
+         this.localOffset = localOffset;
+      }
+
+      /**
+       * The raw, possibly compressed, data of this entry. The local header is only read here, since its extra field
+       * may differ from the one in the central directory.
+       */
+      ByteBuffer getData(ByteBuffer buffer) throws ZipException
+      {
+         if (buffer.getInt(localOffset) != LOCAL_HEADER)
+            throw new ZipException("Invalid local header at offset " + localOffset);
+
+         int nameLength = buffer.getShort(localOffset + 26) & 0xFFFF;
+         int extraLength = buffer.getShort(localOffset + 28) & 0xFFFF;
+         long start = localOffset + 30L + nameLength + extraLength;
+         if (start + compressedSize > buffer.limit())
+            throw new ZipException("Entry data at offset " + localOffset + " exceeds the archive");
+
+         ByteBuffer result = buffer.duplicate();
+         result.limit((int) start + compressedSize);
+         result.position((int) start);
+         return result.slice();
+      }
+
+      byte[] getBytes(ByteBuffer buffer) throws IOException
+      {
+         ByteBuffer data = getData(buffer);
+         byte[] result = new byte[size];
+         if (method == STORED)
+         {
+            data.get(result);
+            return result;
+         }
+
+         Inflater inflater = new Inflater(true);
+         try
+         {
+            byte[] input = new byte[Math.min(Math.max(compressedSize, 1), 8192)];
+            boolean padded = false;
+            int offset = 0;
+            while (!inflater.finished() && offset < size)
+            {
+               if (inflater.needsInput())
+               {
+                  int length = Math.min(input.length, data.remaining());
+                  if (length > 0)
+                  {
+                     data.get(input, 0, length);
+                  }
+                  else if (!padded)
+                  {
+                     /*
+                      * Raw deflate streams may need one byte past the end of the data to finish.
+                      */
+                     input[0] = 0;
+                     length = 1;
+                     padded = true;
+                  }
+                  else
+                  {
+                     throw new ZipException("Unexpected end of deflated entry");
+                  }
+                  inflater.setInput(input, 0, length);
+               }
+
+               if (inflater.needsDictionary())
+                  throw new ZipException("Deflated entry requires a preset dictionary");
+               offset += inflater.inflate(result, offset, size - offset);
+            }
+            if (offset != size)
+               throw new ZipException("Invalid entry size (expected " + size + " but got " + offset + " bytes)");
+            return result;
+         }
+         catch (DataFormatException e)
+         {
+            throw new ZipException(e.getMessage());
+         }
+         finally
+         {
+            inflater.end();
+         }
+      }
+   }
+
+   private final class EntryResource implements Resource
+   {
+      private final String name;
+      private final Entry entry;
+
+      EntryResource(String name, Entry entry)
+      {
+         this.name = name;
+         this.entry = entry;
+      }
+
+      @Override
+      public String getName()
+      {
+         return name;
+      }
+
+      @Override
+      public URL getURL()
+      {
+         try
+         {
+            return new URL("jar:" + rootUrl.toExternalForm() + "!/" + name);
+         }
+         catch (MalformedURLException e)
+         {
+            throw new IllegalStateException(e);
+         }
+      }
+
+      @Override
+      public InputStream openStream() throws IOException
+      {
+         if (entry.method == STORED)
+            return new BufferInputStream(getData(entry));
+         return new ByteArrayInputStream(getBytes(entry));
+      }
+
+      @Override
+      public long getSize()
+      {
+         return entry.size;
+      }
+   }
+
+   /**
+    * Reads a stored entry straight from the mapping, for as long as it is not closed.
+    */
+   private final class BufferInputStream extends InputStream
+   {
+      private final ByteBuffer data;
+
+      BufferInputStream(ByteBuffer data)
+      {
+         this.data = data;
+      }
+
+      @Override
+      public int read() throws IOException
+      {
+         lock.readLock().lock();
+         try
+         {
+            ensureOpen();
+            return data.hasRemaining() ? data.get() & 0xFF : -1;
+         }
+         finally
+         {
+            lock.readLock().unlock();
+         }
+      }
+
+      @Override
+      public int read(byte[] bytes, int offset, int length) throws IOException
+      {
+         if (length == 0)
+            return 0;
+
+         lock.readLock().lock();
+         try
+         {
+            ensureOpen();
+            if (!data.hasRemaining())
+               return -1;
+            int count = Math.min(length, data.remaining());
+            data.get(bytes, offset, count);
+            return count;
+         }
+         finally
+         {
+            lock.readLock().unlock();
+         }
+      }
+
+      @Override
+      public long skip(long count)
+      {
+         int skipped = (int) Math.max(0, Math.min(count, data.remaining()));
+         data.position(data.position() + skipped);
+         return skipped;
+      }
+
+      @Override
+      public int available()
+      {
+         return data.remaining();
+      }
+   }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.modules;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.forge.furnace.addons.AddonId;
+
+/**
+ * The resolved, addon specific part of an addon's {@link org.jboss.modules.ModuleSpec}: the addons it depends on, in
+ * order, with their export and optional flags, and which of its resources are resource roots. Valid for as long as the
+ * fingerprint it was resolved with, see {@link ModuleLayoutCache#fingerprint}.
+ */
+final class ModuleLayout
+{
+   private final long fingerprint;
+   private final List<Dependency> containerDependencies;
+   private final List<Dependency> addonDependencies;
+   private final List<Root> roots;
+
+   ModuleLayout(long fingerprint, List<Dependency> containerDependencies, List<Dependency> addonDependencies,
+            List<Root> roots)
+   {
+      this.fingerprint = fingerprint;
+      this.containerDependencies = Collections.unmodifiableList(containerDependencies);
+      this.addonDependencies = Collections.unmodifiableList(addonDependencies);
+      this.roots = Collections.unmodifiableList(roots);
+   }
+
+   long getFingerprint()
+   {
+      return fingerprint;
+   }
+
+   /**
+    * The resolved dependencies on container addons, which take precedence over the addon's own resources.
+    */
+   List<Dependency> getContainerDependencies()
+   {
+      return containerDependencies;
+   }
+
+   List<Dependency> getAddonDependencies()
+   {
+      return addonDependencies;
+   }
+
+   List<Root> getRoots()
+   {
+      return roots;
+   }
+
+   /**
+    * Returns <code>true</code> if every root refers to one of the given number of resources.
+    */
+   boolean hasRootsWithin(int resourceCount)
+   {
+      for (Root root : roots)
+      {
+         if (root.getResource() >= resourceCount)
+            return false;
+      }
+      return true;
+   }
+
+   static final class Dependency
+   {
+      private final AddonId id;
+      private final boolean exported;
+      private final boolean optional;
+
+      Dependency(AddonId id, boolean exported, boolean optional)
+      {
+         this.id = id;
+         this.exported = exported;
+         this.optional = optional;
+      }
+
+      AddonId getId()
+      {
+         return id;
+      }
+
+      boolean isExported()
+      {
+         return exported;
+      }
+
+      boolean isOptional()
+      {
+         return optional;
+      }
+   }
+
+   /**
+    * A resource root, as the index of a resource in the addon's resource list, so it needs no file system access once
+    * known.
+    */
+   static final class Root
+   {
+      private final int resource;
+      private final boolean directory;
+
+      Root(int resource, boolean directory)
+      {
+         this.resource = resource;
+         this.directory = directory;
+      }
+
+      int getResource()
+      {
+         return resource;
+      }
+
+      boolean isDirectory()
+      {
+         return directory;
+      }
+   }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.modules;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.impl.modules.ModuleLayout.Dependency;
+import org.jboss.forge.furnace.impl.modules.ModuleLayout.Root;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+
+/**
+ * The {@link ModuleLayout} of each addon of one {@link AddonRepository}, persisted in the repository directory so warm
+ * restarts skip the resolution and the file system checks behind a layout. A layout is only used while its fingerprint
+ * matches. The file is read at once and never kept open or mapped. Only layouts used since the cache was loaded are
+ * written back, so stale ones do not accumulate.
+ */
+final class ModuleLayoutCache
+{
+   private static final Logger logger = Logger.getLogger(ModuleLayoutCache.class.getName());
+
+   private static final int MAGIC = 0x46524e4c;
+   private static final int FORMAT_VERSION = 2;
+
+   /*
+    * The smallest number of bytes taken by a layout (an AddonId, a fingerprint and three counts), a dependency (an
+    * AddonId and two flags) and a root (an index and a flag), used to reject element counts the file cannot hold.
+    */
+   private static final int LAYOUT_SIZE = 32;
+   private static final int DEPENDENCY_SIZE = 14;
+   private static final int ROOT_SIZE = 5;
+
+   private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+   private static final long FNV_PRIME = 0x100000001b3L;
+
+   private final File file;
+   private final Map<AddonId, ModuleLayout> stored = new HashMap<>();
+   private final ConcurrentMap<AddonId, ModuleLayout> used = new ConcurrentHashMap<>();
+   private volatile boolean modified;
+
+   /**
+    * Create a cache persisted to the given file, or kept in memory only if the file is <code>null</code>.
+    */
+   ModuleLayoutCache(File file)
+   {
+      this.file = file;
+      if (file != null)
+         read();
+   }
+
+   /**
+    * Returns the layout of the given addon, if it was resolved with the given fingerprint.
+    */
+   ModuleLayout get(AddonId id, long fingerprint)
+   {
+      ModuleLayout result = used.get(id);
+      if (result == null || result.getFingerprint() != fingerprint)
+      {
+         synchronized (stored)
+         {
+            result = stored.get(id);
+         }
+         if (result == null || result.getFingerprint() != fingerprint)
+            return null;
+         used.put(id, result);
+      }
+      return result;
+   }
+
+   void put(AddonId id, ModuleLayout layout)
+   {
+      used.put(id, layout);
+      modified = true;
+   }
+
+   /**
+    * Compute the fingerprint of the layout of the given addon, from its dependencies as declared in its descriptor,
+    * the {@link AddonId} each of them currently resolves to (<code>null</code> if none), and its resources. Only
+    * information the repository already holds in memory is used, hashed with 64-bit FNV-1a.
+    */
+   static long fingerprint(AddonId id, List<AddonDependencyEntry> dependencies, List<AddonId> resolved,
+            List<File> resources)
+   {
+      long hash = hash(FNV_OFFSET_BASIS, id.toString());
+      for (int i = 0; i < dependencies.size(); i++)
+      {
+         AddonDependencyEntry dependency = dependencies.get(i);
+         hash = hash(hash, dependency.getName());
+         hash = hash(hash, String.valueOf(dependency.getVersionRange()));
+         hash = hash(hash, (dependency.isExported() ? "e" : "") + (dependency.isOptional() ? "o" : ""));
+         hash = hash(hash, resolved.get(i) == null ? null : resolved.get(i).toString());
+      }
+      for (File resource : resources)
+      {
+         hash = hash(hash, resource.getPath());
+      }
+      return hash;
+   }
+
+   private static long hash(long hash, String value)
+   {
+      if (value != null)
+      {
+         for (int i = 0; i < value.length(); i++)
+         {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+         }
+      }
+      // Terminate each value, so that consecutive values cannot run into each other; null gets its own marker
+      return (hash ^ (value == null ? 0xFFFF0000 : 0xFFFF)) * FNV_PRIME;
+   }
+
+   /**
+    * Write the layouts used since this cache was loaded, if any of them is new. The file is replaced atomically where
+    * the file system supports it.
+    */
+   void write()
+   {
+      if (file == null || !modified)
+         return;
+
+      File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+      try
+      {
+         try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))
+         {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+
+            Map<AddonId, ModuleLayout> layouts = new HashMap<>(used);
+            out.writeInt(layouts.size());
+            for (Entry<AddonId, ModuleLayout> entry : layouts.entrySet())
+            {
+               ModuleLayout layout = entry.getValue();
+               writeAddonId(out, entry.getKey());
+               out.writeLong(layout.getFingerprint());
+               writeDependencies(out, layout.getContainerDependencies());
+               writeDependencies(out, layout.getAddonDependencies());
+               out.writeInt(layout.getRoots().size());
+               for (Root root : layout.getRoots())
+               {
+                  out.writeInt(root.getResource());
+                  out.writeByte(root.isDirectory() ? 1 : 0);
+               }
+            }
+         }
+
+         try
+         {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                     StandardCopyOption.ATOMIC_MOVE);
+         }
+         catch (IOException e)
+         {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+         }
+         modified = false;
+      }
+      catch (IOException e)
+      {
+         logger.log(Level.FINE, "Could not write module layouts [" + file + "].", e);
+         temp.delete();
+      }
+   }
+
+   private void read()
+   {
+      if (!file.isFile())
+         return;
+
+      try
+      {
+         ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+         if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION)
+         {
+            logger.log(Level.FINE, "Ignoring module layouts [" + file + "] with unknown format.");
+            return;
+         }
+
+         Map<AddonId, ModuleLayout> layouts = new HashMap<>();
+         int count = readCount(buffer, LAYOUT_SIZE);
+         for (int i = 0; i < count; i++)
+         {
+            AddonId id = readAddonId(buffer);
+            long fingerprint = buffer.getLong();
+            List<Dependency> containerDependencies = readDependencies(buffer);
+            List<Dependency> addonDependencies = readDependencies(buffer);
+            int rootCount = readCount(buffer, ROOT_SIZE);
+            List<Root> roots = new ArrayList<>(rootCount);
+            for (int j = 0; j < rootCount; j++)
+            {
+               int resource = buffer.getInt();
+               if (resource < 0)
+                  throw new IllegalArgumentException("Invalid resource index " + resource + " of [" + id + "]");
+               roots.add(new Root(resource, buffer.get() != 0));
+            }
+            layouts.put(id, new ModuleLayout(fingerprint, containerDependencies, addonDependencies, roots));
+         }
+
+         synchronized (stored)
+         {
+            stored.putAll(layouts);
+         }
+      }
+      catch (IOException | RuntimeException e)
+      {
+         /*
+          * Includes the BufferUnderflowException of a truncated file, the IllegalArgumentException of invalid counts,
+          * lengths and indexes, and the VersionException of an invalid version. Every layout is resolved instead.
+          */
+         logger.log(Level.FINE, "Could not read module layouts [" + file + "].", e);
+      }
+   }
+
+   private static void writeDependencies(DataOutputStream out, List<Dependency> dependencies) throws IOException
+   {
+      out.writeInt(dependencies.size());
+      for (Dependency dependency : dependencies)
+      {
+         writeAddonId(out, dependency.getId());
+         out.writeByte(dependency.isExported() ? 1 : 0);
+         out.writeByte(dependency.isOptional() ? 1 : 0);
+      }
+   }
+
+   private static List<Dependency> readDependencies(ByteBuffer buffer)
+   {
+      int count = readCount(buffer, DEPENDENCY_SIZE);
+      List<Dependency> result = new ArrayList<>(count);
+      for (int i = 0; i < count; i++)
+      {
+         AddonId id = readAddonId(buffer);
+         boolean exported = buffer.get() != 0;
+         boolean optional = buffer.get() != 0;
+         result.add(new Dependency(id, exported, optional));
+      }
+      return result;
+   }
+
+   private static void writeAddonId(DataOutputStream out, AddonId id) throws IOException
+   {
+      writeString(out, id.getName());
+      writeString(out, id.getVersion() == null ? null : id.getVersion().toString());
+      writeString(out, id.getApiVersion() == null ? null : id.getApiVersion().toString());
+   }
+
+   private static AddonId readAddonId(ByteBuffer buffer)
+   {
+      String name = readString(buffer);
+      String version = readString(buffer);
+      String apiVersion = readString(buffer);
+      return AddonId.from(name, version, apiVersion);
+   }
+
+   private static void writeString(DataOutputStream out, String value) throws IOException
+   {
+      if (value == null)
+      {
+         out.writeInt(-1);
+      }
+      else
+      {
+         byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+         out.writeInt(bytes.length);
+         out.write(bytes);
+      }
+   }
+
+   /**
+    * Read the number of elements of a list, each taking at least the given number of bytes.
+    */
+   private static int readCount(ByteBuffer buffer, int minimumSize)
+   {
+      int count = buffer.getInt();
+      if (count < 0 || (long) count * minimumSize > buffer.remaining())
+         throw new IllegalArgumentException("Invalid element count " + count + " at offset " + buffer.position());
+      return count;
+   }
+
+   private static String readString(ByteBuffer buffer)
+   {
+      int length = buffer.getInt();
+      if (length == -1)
+         return null;
+      if (length < 0 || length > buffer.remaining())
+         throw new IllegalArgumentException("Invalid string length " + length + " at offset " + buffer.position());
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+}
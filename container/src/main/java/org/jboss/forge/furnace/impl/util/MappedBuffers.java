@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Releases memory mappings without waiting for their buffers to be garbage collected, so the mapped files are no
+ * longer held open (and may be deleted or replaced on Windows.) The JDK has no public API for this, so
+ * <code>sun.misc.Unsafe.invokeCleaner</code> is used where available, and the cleaner of the buffer otherwise.
+ */
+public final class MappedBuffers
+{
+   private static final Logger logger = Logger.getLogger(MappedBuffers.class.getName());
+
+   private MappedBuffers()
+   {
+   }
+
+   /**
+    * Unmap the given buffer, which must have been returned by <code>FileChannel.map</code>, and must not be accessed
+    * anymore, nor any of its duplicates and slices. Returns <code>false</code> if the buffer could not be unmapped,
+    * in which case it is released once it is garbage collected.
+    */
+   public static boolean unmap(ByteBuffer buffer)
+   {
+      if (!buffer.isDirect())
+         return false;
+
+      try
+      {
+         Class<?> unsafeType = Class.forName("sun.misc.Unsafe");
+         Method invokeCleaner = unsafeType.getMethod("invokeCleaner", ByteBuffer.class);
+         Field field = unsafeType.getDeclaredField("theUnsafe");
+         field.setAccessible(true);
+         invokeCleaner.invoke(field.get(null), buffer);
+         return true;
+      }
+      catch (NoSuchMethodException e)
+      {
+         // Java 8, where Unsafe has no invokeCleaner
+      }
+      catch (Exception e)
+      {
+         logger.log(Level.FINE, "Could not unmap buffer with Unsafe.invokeCleaner", e);
+         return false;
+      }
+
+      try
+      {
+         Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+         cleanerMethod.setAccessible(true);
+         Object cleaner = cleanerMethod.invoke(buffer);
+         if (cleaner == null)
+            return false;
+         cleaner.getClass().getMethod("clean").invoke(cleaner);
+         return true;
+      }
+      catch (Exception e)
+      {
+         logger.log(Level.FINE, "Could not unmap buffer with its cleaner", e);
+         return false;
+      }
+   }
+}
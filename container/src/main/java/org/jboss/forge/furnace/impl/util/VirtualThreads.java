@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates virtual threads on Java runtimes that support them. Furnace is compiled for older runtimes, so the
+ * <code>Thread.ofVirtual()</code> builder API is accessed reflectively.
+ */
+public final class VirtualThreads
+{
+   private static final Logger logger = Logger.getLogger(VirtualThreads.class.getName());
+
+   private static final Method OF_VIRTUAL = findOfVirtual();
+
+   private VirtualThreads()
+   {
+   }
+
+   /**
+    * Returns <code>true</code> if the current Java runtime supports virtual threads.
+    */
+   public static boolean isSupported()
+   {
+      return OF_VIRTUAL != null;
+   }
+
+   /**
+    * Returns a {@link ThreadFactory} creating virtual threads named with the given prefix followed by a counter.
+    *
+    * @throws UnsupportedOperationException if virtual threads are not supported by the current Java runtime.
+    */
+   public static ThreadFactory newThreadFactory(String prefix)
+   {
+      if (OF_VIRTUAL == null)
+         throw new UnsupportedOperationException("Virtual threads are not supported by this Java runtime.");
+
+      try
+      {
+         Object builder = OF_VIRTUAL.invoke(null);
+         Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+         builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+         return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+      }
+      catch (Exception e)
+      {
+         throw new UnsupportedOperationException("Could not create a virtual thread factory.", e);
+      }
+   }
+
+   private static Method findOfVirtual()
+   {
+      try
+      {
+         Method method = Thread.class.getMethod("ofVirtual");
+         // Fails on runtimes where virtual threads are a disabled preview feature
+         method.invoke(null);
+         return method;
+      }
+      catch (NoSuchMethodException e)
+      {
+         return null;
+      }
+      catch (Exception e)
+      {
+         logger.log(Level.FINE, "Virtual threads are not available.", e);
+         return null;
+      }
+   }
+}
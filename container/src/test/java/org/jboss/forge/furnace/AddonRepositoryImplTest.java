@@ -157,6 +157,65 @@ public class AddonRepositoryImplTest
       Assert.assertTrue(repository.getAddonDependencies(addon).contains(dependency1));
    }
 
+   @Test
+   public void testRedeployAddonEntryUpdatesDependencies() throws Exception
+   {
+      File temp = File.createTempFile("addonDir", "test");
+      temp.deleteOnExit();
+      MutableAddonRepository repository = AddonRepositoryImpl.forDirectory(new FurnaceImpl(), temp);
+
+      AddonId addon = AddonId.from("1", "2");
+      AddonDependencyEntry dependency0 = AddonDependencyEntry.create("nm1", "ver");
+      AddonDependencyEntry dependency1 = AddonDependencyEntry.create("nm2", "ver");
+
+      repository.deploy(addon, Arrays.asList(dependency0), new ArrayList<File>());
+      Assert.assertEquals(1, repository.getAddonDependencies(addon).size());
+      Assert.assertTrue(repository.getAddonResources(addon).isEmpty());
+
+      File tempJar = File.createTempFile("addon" + addon.getName(), ".jar");
+      tempJar.deleteOnExit();
+      repository.deploy(addon, Arrays.asList(dependency1), Arrays.asList(tempJar));
+      Assert.assertEquals(2, repository.getAddonDependencies(addon).size());
+      Assert.assertTrue(repository.getAddonDependencies(addon).contains(dependency1));
+      Assert.assertEquals(1, repository.getAddonResources(addon).size());
+
+      repository.undeploy(addon);
+      Assert.assertTrue(repository.getAddonResources(addon).isEmpty());
+   }
+
+   @Test
+   public void testRepositorySnapshotSurvivesRestart() throws Exception
+   {
+      File temp = OperatingSystemUtils.createTempDir();
+      temp.deleteOnExit();
+      MutableAddonRepository repository = AddonRepositoryImpl.forDirectory(new FurnaceImpl(), temp);
+
+      AddonId addon = AddonId.from("1", "2");
+      AddonDependencyEntry dependency = AddonDependencyEntry.create("nm1", "[1.0,2.0)", true, false);
+      File tempJar = File.createTempFile("addon" + addon.getName(), ".jar");
+      tempJar.deleteOnExit();
+
+      repository.deploy(addon, Arrays.asList(dependency), Arrays.asList(tempJar));
+      repository.enable(addon);
+      Assert.assertTrue(new File(temp, "installed.bin").isFile());
+
+      MutableAddonRepository restarted = AddonRepositoryImpl.forDirectory(new FurnaceImpl(), temp);
+      Assert.assertEquals(repository.listAll(), restarted.listAll());
+      Assert.assertTrue(restarted.isEnabled(addon));
+      Assert.assertEquals(repository.getAddonDependencies(addon), restarted.getAddonDependencies(addon));
+      Assert.assertEquals(repository.getAddonResources(addon), restarted.getAddonResources(addon));
+
+      repository.disable(addon);
+      Assert.assertFalse(AddonRepositoryImpl.forDirectory(new FurnaceImpl(), temp).isEnabled(addon));
+
+      File moved = new File(temp.getParentFile(), temp.getName() + "-moved");
+      Assert.assertTrue(temp.renameTo(moved));
+      MutableAddonRepository relocated = AddonRepositoryImpl.forDirectory(new FurnaceImpl(), moved);
+      Assert.assertEquals(1, relocated.getAddonResources(addon).size());
+      Assert.assertTrue(relocated.getAddonResources(addon).get(0).toPath().startsWith(moved.toPath()));
+      Files.delete(moved, true);
+   }
+
    @Test
    public void testPluggableStateRepository() throws Exception
    {
@@ -14,6 +14,7 @@ import java.util.Set;
 
 import org.jboss.forge.furnace.addons.AddonId;
 import org.jboss.forge.furnace.impl.FurnaceImpl;
+import org.jboss.forge.furnace.impl.util.VirtualThreads;
 import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
 import org.jboss.forge.furnace.repositories.AddonRepository;
 import org.jboss.forge.furnace.repositories.AddonRepositoryMode;
@@ -96,6 +97,18 @@ public class FurnaceImplTest
       }
    }
 
+   @Test
+   public void shouldUseSupportedThreadingMode() throws Exception
+   {
+      try (Furnace f = new FurnaceImpl())
+      {
+         Assert.assertEquals(ThreadingMode.PLATFORM, f.getThreadingMode());
+         f.setThreadingMode(ThreadingMode.VIRTUAL);
+         Assert.assertEquals(VirtualThreads.isSupported() ? ThreadingMode.VIRTUAL : ThreadingMode.PLATFORM,
+                  f.getThreadingMode());
+      }
+   }
+
    private static class TestAddonRepository implements AddonRepository
    {
       private final Date modified;
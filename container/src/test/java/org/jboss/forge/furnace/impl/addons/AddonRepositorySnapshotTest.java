@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddonRepositorySnapshotTest
+{
+   @Test
+   public void testOversizedCountsAreRejected() throws Exception
+   {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = header(bytes);
+      out.writeInt(Integer.MAX_VALUE);
+      Assert.assertNull(read(bytes));
+
+      bytes = new ByteArrayOutputStream();
+      out = header(bytes);
+      out.writeInt(-2);
+      Assert.assertNull(read(bytes));
+   }
+
+   @Test
+   public void testOversizedAndNegativeStringLengthsAreRejected() throws Exception
+   {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = header(bytes);
+      out.writeInt(1);
+      out.writeInt(Integer.MAX_VALUE - 8);
+      out.write(new byte[16]);
+      Assert.assertNull(read(bytes));
+
+      bytes = new ByteArrayOutputStream();
+      out = header(bytes);
+      out.writeInt(1);
+      out.writeInt(-5);
+      out.write(new byte[16]);
+      Assert.assertNull(read(bytes));
+   }
+
+   @Test
+   public void testInvalidVersionRangesAreRejected() throws Exception
+   {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = header(bytes);
+      out.writeInt(0);
+      out.writeInt(1);
+      writeString(out, "org.example:addon");
+      writeString(out, "1.0");
+      writeString(out, null);
+      out.writeLong(-1);
+      out.writeLong(-1);
+      out.writeInt(1);
+      writeString(out, "org.example:dependency");
+      writeString(out, "[2.0,1.0]");
+      out.writeByte(0);
+      out.writeByte(0);
+      out.writeLong(-1);
+      out.writeLong(-1);
+      out.writeInt(0);
+      Assert.assertNull(read(bytes));
+   }
+
+   private static DataOutputStream header(ByteArrayOutputStream bytes) throws IOException
+   {
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(0x46524e53);
+      out.writeInt(2);
+      out.writeLong(-1);
+      out.writeLong(-1);
+      return out;
+   }
+
+   private static void writeString(DataOutputStream out, String value) throws IOException
+   {
+      if (value == null)
+      {
+         out.writeInt(-1);
+      }
+      else
+      {
+         byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+         out.writeInt(bytes.length);
+         out.write(bytes);
+      }
+   }
+
+   private static AddonRepositorySnapshot read(ByteArrayOutputStream bytes) throws IOException
+   {
+      File file = File.createTempFile("installed", ".bin", new File("target"));
+      file.deleteOnExit();
+      Files.write(file.toPath(), bytes.toByteArray());
+      return AddonRepositorySnapshot.read(file);
+   }
+}
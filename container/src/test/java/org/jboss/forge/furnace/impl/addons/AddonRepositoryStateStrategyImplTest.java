@@ -8,7 +8,13 @@
 package org.jboss.forge.furnace.impl.addons;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
 
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.impl.FurnaceImpl;
+import org.jboss.forge.furnace.util.OperatingSystemUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -18,6 +24,9 @@ import org.junit.Test;
  */
 public class AddonRepositoryStateStrategyImplTest
 {
+   private static final byte[] SECOND_INSTALLED = ("<installed>"
+            + "<addon name=\"second\" version=\"1.0.0.Final\" api-version=\"\"/>"
+            + "</installed>").getBytes(StandardCharsets.UTF_8);
 
    /**
     * Test method for
@@ -30,4 +39,81 @@ public class AddonRepositoryStateStrategyImplTest
       Assert.assertNotNull(AddonRepositoryStateStrategyImpl.getXmlRoot(registryFile));
    }
 
+   @Test
+   public void testRegistryChangesAreDetected() throws Exception
+   {
+      File temp = OperatingSystemUtils.createTempDir();
+      temp.deleteOnExit();
+      AddonRepositoryStateStrategyImpl strategy = new AddonRepositoryStateStrategyImpl(new FurnaceImpl(), temp);
+
+      AddonId first = AddonId.from("first", "1.0.0.Final");
+      AddonId second = AddonId.from("second", "1.0.0.Final");
+
+      Assert.assertTrue(strategy.listAll().isEmpty());
+      strategy.enable(first);
+      Assert.assertTrue(strategy.isEnabled(first));
+      Assert.assertEquals(Arrays.asList(first), strategy.listEnabled());
+      Assert.assertEquals(Arrays.asList(first), strategy.listEnabled("first"));
+
+      // Simulate another process modifying the registry
+      File registryFile = new File(temp, "installed.xml");
+      Files.write(registryFile.toPath(), SECOND_INSTALLED);
+
+      Assert.assertFalse(strategy.isEnabled(first));
+      Assert.assertTrue(strategy.isEnabled(second));
+      Assert.assertEquals(Arrays.asList(second), strategy.listEnabled());
+      Assert.assertEquals(Arrays.asList(second), strategy.listEnabled("second"));
+      Assert.assertTrue(strategy.listEnabled("first").isEmpty());
+
+      strategy.disable(second);
+      Assert.assertTrue(strategy.listAll().isEmpty());
+   }
+
+   @Test
+   public void testMissingRegistryIsRememberedUntilTheWatchSignals() throws Exception
+   {
+      File temp = OperatingSystemUtils.createTempDir();
+      temp.deleteOnExit();
+      AddonRepositoryStateStrategyImpl strategy = new AddonRepositoryStateStrategyImpl(new FurnaceImpl(), temp);
+      final Runnable[] listener = new Runnable[1];
+      DirtyChecker watch = strategy.watchRegistry(new DirtyChecker()
+      {
+         @Override
+         public boolean isDirty()
+         {
+            return false;
+         }
+
+         @Override
+         public boolean setChangeListener(Runnable changeListener)
+         {
+            listener[0] = changeListener;
+            return true;
+         }
+      });
+      watch.setChangeListener(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+         }
+      });
+
+      File registryFile = new File(temp, "installed.xml");
+      Assert.assertTrue(strategy.listAll().isEmpty());
+      Assert.assertFalse(registryFile.exists());
+
+      AddonId second = AddonId.from("second", "1.0.0.Final");
+      Files.write(registryFile.toPath(), SECOND_INSTALLED);
+      Assert.assertTrue(strategy.listAll().isEmpty());
+
+      listener[0].run();
+      Assert.assertEquals(Arrays.asList(second), strategy.listAll());
+
+      Files.delete(registryFile.toPath());
+      watch.close();
+      Assert.assertTrue(strategy.listAll().isEmpty());
+      Files.write(registryFile.toPath(), SECOND_INSTALLED);
+      Assert.assertEquals(Arrays.asList(second), strategy.listAll());
+   }
 }
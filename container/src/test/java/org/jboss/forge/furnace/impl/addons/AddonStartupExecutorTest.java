@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddonStartupExecutorTest
+{
+   @Test
+   public void testWaitingTasksRunInPriorityOrder() throws Exception
+   {
+      AddonStartupExecutor executor = new AddonStartupExecutor(1);
+      try
+      {
+         final CountDownLatch gate = new CountDownLatch(1);
+         final List<Integer> order = new CopyOnWriteArrayList<>();
+         executor.execute(new Task(Integer.MAX_VALUE)
+         {
+            @Override
+            public void run()
+            {
+               await(gate);
+            }
+         });
+         for (final int priority : new int[] { 1, 3, 2 })
+         {
+            executor.execute(new Task(priority)
+            {
+               @Override
+               public void run()
+               {
+                  order.add(priority);
+               }
+            });
+         }
+         gate.countDown();
+
+         executor.shutdown();
+         Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+         Assert.assertEquals(Arrays.asList(3, 2, 1), order);
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   @Test
+   public void testBlockedTaskGetsACompensatingThread() throws Exception
+   {
+      final AddonStartupExecutor executor = new AddonStartupExecutor(1);
+      try
+      {
+         final CountDownLatch blocking = new CountDownLatch(1);
+         final CountDownLatch released = new CountDownLatch(1);
+         final CountDownLatch finished = new CountDownLatch(1);
+         final boolean[] result = new boolean[1];
+         executor.execute(new Task(0)
+         {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  result[0] = AddonStartupExecutor.managedBlock(new Callable<Boolean>()
+                  {
+                     @Override
+                     public Boolean call() throws Exception
+                     {
+                        blocking.countDown();
+                        return released.await(10, TimeUnit.SECONDS);
+                     }
+                  });
+               }
+               catch (Exception e)
+               {
+                  throw new RuntimeException(e);
+               }
+               finished.countDown();
+            }
+         });
+         await(blocking);
+         Assert.assertEquals(1, executor.getBlockedCount());
+
+         // Only runs if the blocked task was compensated, since the pool is bounded to one thread
+         executor.execute(new Task(0)
+         {
+            @Override
+            public void run()
+            {
+               released.countDown();
+            }
+         });
+
+         Assert.assertTrue(finished.await(10, TimeUnit.SECONDS));
+         Assert.assertTrue(result[0]);
+         Assert.assertEquals(0, executor.getBlockedCount());
+         Assert.assertEquals(1, executor.getMaximumPoolSize());
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   private static void await(CountDownLatch latch)
+   {
+      try
+      {
+         latch.await(10, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   private abstract static class Task implements Runnable, Comparable<Task>
+   {
+      private final int priority;
+
+      Task(int priority)
+      {
+         this.priority = priority;
+      }
+
+      @Override
+      public int compareTo(Task other)
+      {
+         return Integer.compare(other.priority, priority);
+      }
+   }
+}
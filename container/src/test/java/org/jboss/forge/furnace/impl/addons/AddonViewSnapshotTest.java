@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonDependency;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonStatus;
+import org.jboss.forge.furnace.event.EventException;
+import org.jboss.forge.furnace.event.EventManager;
+import org.jboss.forge.furnace.impl.lock.LockManagerImpl;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+import org.jboss.forge.furnace.spi.ServiceRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddonViewSnapshotTest
+{
+   @Test
+   public void testOnlyObservingAddonsAreNotified() throws Exception
+   {
+      StubEventManager observing = new StubEventManager(String.class);
+      StubEventManager other = new StubEventManager(Integer.class);
+      StubEventManager stopped = new StubEventManager(String.class);
+      AddonViewSnapshot snapshot = AddonViewSnapshot.capture(new LockManagerImpl(), 1,
+               Arrays.<Addon> asList(new StubAddon("observing", AddonStatus.STARTED, observing),
+                        new StubAddon("other", AddonStatus.STARTED, other),
+                        new StubAddon("stopped", AddonStatus.LOADED, stopped)),
+               null);
+
+      List<EventManager> observers = snapshot.getObservers(String.class);
+      Assert.assertEquals(Collections.<EventManager> singletonList(observing), observers);
+      Assert.assertSame(observers, snapshot.getObservers(String.class));
+      Assert.assertEquals(Collections.<EventManager> singletonList(other), snapshot.getObservers(Integer.class));
+      Assert.assertTrue(snapshot.getObservers(Long.class).isEmpty());
+   }
+
+   private static class StubEventManager implements EventManager
+   {
+      private final Class<?> observed;
+
+      StubEventManager(Class<?> observed)
+      {
+         this.observed = observed;
+      }
+
+      @Override
+      public void fireEvent(Object event, Annotation... qualifiers) throws EventException
+      {
+      }
+
+      @Override
+      public boolean observes(Class<?> eventType)
+      {
+         return observed.isAssignableFrom(eventType);
+      }
+   }
+
+   private static class StubAddon implements Addon
+   {
+      private final AddonId id;
+      private final AddonStatus status;
+      private final EventManager eventManager;
+
+      StubAddon(String name, AddonStatus status, EventManager eventManager)
+      {
+         this.id = AddonId.from(name, "1");
+         this.status = status;
+         this.eventManager = eventManager;
+      }
+
+      @Override
+      public AddonId getId()
+      {
+         return id;
+      }
+
+      @Override
+      public ClassLoader getClassLoader()
+      {
+         return null;
+      }
+
+      @Override
+      public EventManager getEventManager()
+      {
+         return eventManager;
+      }
+
+      @Override
+      public ServiceRegistry getServiceRegistry()
+      {
+         return null;
+      }
+
+      @Override
+      public AddonRepository getRepository()
+      {
+         return null;
+      }
+
+      @Override
+      public AddonStatus getStatus()
+      {
+         return status;
+      }
+
+      @Override
+      public Set<AddonDependency> getDependencies()
+      {
+         return Collections.emptySet();
+      }
+
+      @Override
+      public Future<Void> getFuture()
+      {
+         return null;
+      }
+   }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.jboss.forge.furnace.impl.lock.LockManagerImpl;
+import org.jboss.forge.furnace.spi.ExportedInstance;
+import org.jboss.forge.furnace.spi.ServiceRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ServiceIndexTest
+{
+   @Test
+   public void testOnlyNewRegistriesAreQueried() throws Exception
+   {
+      CountingRegistry first = new CountingRegistry(Runnable.class);
+      CountingRegistry second = new CountingRegistry(Runnable.class);
+      ServiceIndex index = new ServiceIndex(new LockManagerImpl());
+
+      index.update(1, Arrays.<ServiceRegistry> asList(first));
+      Assert.assertEquals(1, index.getExportedTypes(Runnable.class).size());
+      Assert.assertEquals(1, index.getExportedTypes(Runnable.class).size());
+      Assert.assertEquals(1, first.queries);
+
+      index.update(2, Arrays.<ServiceRegistry> asList(first, second));
+      Assert.assertTrue(index.hasService(Runnable.class));
+      Assert.assertEquals(1, first.queries);
+      Assert.assertEquals(1, second.queries);
+   }
+
+   @Test
+   public void testStoppedRegistriesAreEvicted() throws Exception
+   {
+      CountingRegistry first = new CountingRegistry(Runnable.class);
+      CountingRegistry second = new CountingRegistry(Runnable.class);
+      ServiceIndex index = new ServiceIndex(new LockManagerImpl());
+
+      index.update(1, Arrays.<ServiceRegistry> asList(first, second));
+      Assert.assertTrue(index.hasService(Runnable.class));
+
+      index.update(2, Arrays.<ServiceRegistry> asList(second));
+      Assert.assertEquals(Collections.singleton(Runnable.class), index.getExportedTypes(Runnable.class));
+      Assert.assertEquals(2, second.queries);
+
+      index.update(3, Collections.<ServiceRegistry> emptyList());
+      Assert.assertFalse(index.hasService(Runnable.class));
+
+      index.update(2, Arrays.<ServiceRegistry> asList(first));
+      Assert.assertFalse("Outdated updates must be ignored", index.hasService(Runnable.class));
+   }
+
+   private static class CountingRegistry implements ServiceRegistry
+   {
+      private final Class<?> type;
+      private int queries;
+
+      CountingRegistry(Class<?> type)
+      {
+         this.type = type;
+      }
+
+      @Override
+      public <T> Set<ExportedInstance<T>> getExportedInstances(Class<T> clazz)
+      {
+         return Collections.emptySet();
+      }
+
+      @Override
+      public <T> Set<ExportedInstance<T>> getExportedInstances(String clazz)
+      {
+         return Collections.emptySet();
+      }
+
+      @Override
+      public <T> ExportedInstance<T> getExportedInstance(Class<T> type)
+      {
+         return null;
+      }
+
+      @Override
+      public <T> ExportedInstance<T> getExportedInstance(String type)
+      {
+         return null;
+      }
+
+      @Override
+      public Set<Class<?>> getExportedTypes()
+      {
+         return Collections.<Class<?>> singleton(type);
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public <T> Set<Class<T>> getExportedTypes(Class<T> requested)
+      {
+         queries++;
+         if (requested.isAssignableFrom(type))
+            return Collections.singleton((Class<T>) type);
+         return Collections.emptySet();
+      }
+
+      @Override
+      public boolean hasService(Class<?> clazz)
+      {
+         return clazz.isAssignableFrom(type);
+      }
+
+      @Override
+      public boolean hasService(String clazz)
+      {
+         return type.getName().equals(clazz);
+      }
+
+      @Override
+      public void close()
+      {
+      }
+   }
+}
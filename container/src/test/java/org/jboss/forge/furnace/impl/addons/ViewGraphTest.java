@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonFilter;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.impl.addons.ViewGraph.RepositoryState;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+import org.jboss.forge.furnace.util.OperatingSystemUtils;
+import org.jboss.forge.furnace.versions.Version;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ViewGraphTest
+{
+   private static final AddonId A = AddonId.from("a", "1");
+   private static final AddonId B = AddonId.from("b", "1");
+
+   @Test
+   public void testOnlyChangedRepositoriesAreInspected() throws Exception
+   {
+      File root = OperatingSystemUtils.createTempDir();
+      root.deleteOnExit();
+      StubRepository repository = new StubRepository(root);
+      repository.enable(A);
+      StubView view = new StubView(repository);
+      Map<AddonRepository, RepositoryState> states = new HashMap<>();
+      ViewGraph graph = ViewGraph.build(view, states);
+
+      int inspections = repository.inspections;
+      Assert.assertTrue(graph.update(view, states).isEmpty());
+      Assert.assertEquals(inspections, repository.inspections);
+
+      repository.enable(B);
+      Assert.assertEquals(Collections.singleton("b"), graph.update(view, states));
+      Assert.assertTrue(graph.update(view, states).isEmpty());
+
+      // A repository whose DirtyChecker saw a change is dropped from the states and inspected again
+      inspections = repository.inspections;
+      states.remove(repository);
+      Assert.assertTrue(graph.update(view, states).isEmpty());
+      Assert.assertTrue(repository.inspections > inspections);
+   }
+
+   private static class StubRepository implements AddonRepository
+   {
+      private final File root;
+      private final Set<AddonId> enabled = new LinkedHashSet<>();
+      private int version;
+      private int inspections;
+
+      StubRepository(File root)
+      {
+         this.root = root;
+      }
+
+      void enable(AddonId addon) throws Exception
+      {
+         getAddonDescriptor(addon).createNewFile();
+         enabled.add(addon);
+         version++;
+      }
+
+      @Override
+      public File getAddonBaseDir(AddonId addon)
+      {
+         return root;
+      }
+
+      @Override
+      public Set<AddonDependencyEntry> getAddonDependencies(AddonId addon)
+      {
+         return Collections.emptySet();
+      }
+
+      @Override
+      public File getAddonDescriptor(AddonId addon)
+      {
+         return new File(root, addon.getName() + ".xml");
+      }
+
+      @Override
+      public List<File> getAddonResources(AddonId addon)
+      {
+         return Collections.emptyList();
+      }
+
+      @Override
+      public File getRootDirectory()
+      {
+         return root;
+      }
+
+      @Override
+      public boolean isDeployed(AddonId addon)
+      {
+         return enabled.contains(addon);
+      }
+
+      @Override
+      public boolean isEnabled(AddonId addon)
+      {
+         return enabled.contains(addon);
+      }
+
+      @Override
+      public List<AddonId> listAll()
+      {
+         return listEnabled();
+      }
+
+      @Override
+      public List<AddonId> listEnabled()
+      {
+         inspections++;
+         return new ArrayList<>(enabled);
+      }
+
+      @Override
+      public List<AddonId> listEnabledCompatibleWithVersion(Version version)
+      {
+         return listEnabled();
+      }
+
+      @Override
+      public Date getLastModified()
+      {
+         return null;
+      }
+
+      @Override
+      public int getVersion()
+      {
+         return version;
+      }
+   }
+
+   private static class StubView implements AddonView
+   {
+      private final Set<AddonRepository> repositories;
+
+      StubView(AddonRepository repository)
+      {
+         this.repositories = Collections.singleton(repository);
+      }
+
+      @Override
+      public String getName()
+      {
+         return "view";
+      }
+
+      @Override
+      public void dispose()
+      {
+      }
+
+      @Override
+      public Addon getAddon(AddonId id)
+      {
+         return null;
+      }
+
+      @Override
+      public Set<Addon> getAddons()
+      {
+         return Collections.emptySet();
+      }
+
+      @Override
+      public Set<Addon> getAddons(AddonFilter filter)
+      {
+         return Collections.emptySet();
+      }
+
+      @Override
+      public Set<AddonRepository> getRepositories()
+      {
+         return repositories;
+      }
+   }
+}
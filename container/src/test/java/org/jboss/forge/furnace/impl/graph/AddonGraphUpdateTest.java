@@ -0,0 +1,374 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.graph;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonFilter;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+import org.jboss.forge.furnace.versions.Version;
+import org.jgrapht.DirectedGraph;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddonGraphUpdateTest
+{
+   private static final AddonId A = AddonId.from("a", "1");
+   private static final AddonId B1 = AddonId.from("b", "1");
+   private static final AddonId B2 = AddonId.from("b", "2");
+   private static final AddonId C = AddonId.from("c", "1");
+   private static final AddonId D = AddonId.from("d", "1");
+   private static final AddonId E = AddonId.from("e", "1");
+   private static final AddonId F = AddonId.from("f", "1");
+   private static final AddonId G = AddonId.from("g", "1");
+   private static final AddonId H = AddonId.from("h", "1");
+   private static final AddonId I = AddonId.from("i", "1");
+   private static final AddonId X = AddonId.from("x", "1");
+
+   @Test
+   public void testUpdatedGraphsMatchRebuiltGraphs() throws Exception
+   {
+      StubRepository shared = new StubRepository();
+      shared.enable(A, AddonDependencyEntry.create("b", "[1,)", true));
+      shared.enable(B1, AddonDependencyEntry.create("c", "[1,)"));
+      shared.enable(C);
+      shared.enable(D, AddonDependencyEntry.create("x", "[1,)"));
+      shared.enable(E, AddonDependencyEntry.create("f", "[1,)", false, true));
+      shared.enable(H);
+      shared.enable(I, AddonDependencyEntry.create("h", "[1,)"));
+      StubRepository other = new StubRepository();
+      other.enable(G, AddonDependencyEntry.create("a", "[1,)"), AddonDependencyEntry.create("d", "[1,)"));
+
+      List<AddonView> views = Arrays.<AddonView> asList(new StubView("first", shared),
+               new StubView("second", shared, other));
+      List<CompleteAddonGraph> completeGraphs = new ArrayList<>();
+      List<OptimizedAddonGraph> graphs = new ArrayList<>();
+      MasterGraph master = build(views, completeGraphs, graphs);
+
+      shared.enable(B2);
+      shared.enable(B1, AddonDependencyEntry.create("h", "[1,)"));
+      shared.enable(F);
+      shared.enable(X);
+      shared.disable(C);
+      Set<AddonId> changed = new LinkedHashSet<>(Arrays.asList(B1, B2, C, F, X));
+
+      Set<String> names = update(views, completeGraphs, graphs, changed);
+      Assert.assertTrue(names.contains("x"));
+      Assert.assertFalse(names.contains("h"));
+
+      Set<String> affected = master.getAffectedNames(names, graphs);
+      Assert.assertTrue(affected.contains("h"));
+      Assert.assertFalse(affected.contains("i"));
+      patch(master, affected, graphs);
+   }
+
+   @Test
+   public void testRemovingADependencyUpdatesItsDependents() throws Exception
+   {
+      StubRepository repository = new StubRepository();
+      repository.enable(A, AddonDependencyEntry.create("b", "[1,)"));
+      repository.enable(B1, AddonDependencyEntry.create("c", "[1,)"));
+      repository.enable(C);
+      repository.enable(D);
+      List<AddonView> views = Arrays.<AddonView> asList(new StubView("first", repository));
+      List<CompleteAddonGraph> completeGraphs = new ArrayList<>();
+      List<OptimizedAddonGraph> graphs = new ArrayList<>();
+      MasterGraph master = build(views, completeGraphs, graphs);
+      Assert.assertTrue(describe(master.getGraph()).contains("[b,1][first] -> [c,1][first]"));
+
+      repository.disable(C);
+      Set<String> names = update(views, completeGraphs, graphs, Collections.singleton(C));
+      Assert.assertTrue(names.contains("c"));
+      Assert.assertFalse(names.contains("d"));
+
+      Set<String> affected = master.getAffectedNames(names, graphs);
+      Assert.assertTrue(affected.containsAll(Arrays.asList("a", "b", "c")));
+      Assert.assertFalse(affected.contains("d"));
+      patch(master, affected, graphs);
+      for (String description : describe(master.getGraph()))
+      {
+         Assert.assertFalse(description, description.contains("[c,1]"));
+      }
+   }
+
+   @Test
+   public void testVersionRangeChangeSelectsAnotherVersion() throws Exception
+   {
+      StubRepository repository = new StubRepository();
+      repository.enable(A, AddonDependencyEntry.create("b", "[1,2)"));
+      repository.enable(B1);
+      repository.enable(B2);
+      List<AddonView> views = Arrays.<AddonView> asList(new StubView("first", repository));
+      List<CompleteAddonGraph> completeGraphs = new ArrayList<>();
+      List<OptimizedAddonGraph> graphs = new ArrayList<>();
+      MasterGraph master = build(views, completeGraphs, graphs);
+      Assert.assertTrue(describe(completeGraphs.get(0).getGraph()).contains("[a,1][] -> [b,1][]"));
+
+      repository.enable(A, AddonDependencyEntry.create("b", "[2,)"));
+      Set<String> names = update(views, completeGraphs, graphs, Collections.singleton(A));
+      Assert.assertTrue(names.contains("a"));
+      Set<String> description = describe(completeGraphs.get(0).getGraph());
+      Assert.assertTrue(description.contains("[a,1][] -> [b,2][]"));
+      Assert.assertFalse(description.contains("[a,1][] -> [b,1][]"));
+
+      patch(master, master.getAffectedNames(names, graphs), graphs);
+   }
+
+   @Test
+   public void testUpdateWithoutChangesChangesNothing() throws Exception
+   {
+      StubRepository repository = new StubRepository();
+      repository.enable(A, AddonDependencyEntry.create("b", "[1,)"));
+      repository.enable(B1);
+      List<AddonView> views = Arrays.<AddonView> asList(new StubView("first", repository));
+      List<CompleteAddonGraph> completeGraphs = new ArrayList<>();
+      List<OptimizedAddonGraph> graphs = new ArrayList<>();
+      MasterGraph master = build(views, completeGraphs, graphs);
+      Set<String> before = describe(master.getGraph());
+
+      Set<String> names = update(views, completeGraphs, graphs, Collections.<AddonId> emptySet());
+      Assert.assertTrue(names.isEmpty());
+      Assert.assertTrue(master.getAffectedNames(names, graphs).isEmpty());
+      Assert.assertEquals(before, describe(merge(graphs).getGraph()));
+   }
+
+   /**
+    * Build the graphs of the given views into the given lists, and return them merged.
+    */
+   private static MasterGraph build(List<AddonView> views, List<CompleteAddonGraph> completeGraphs,
+            List<OptimizedAddonGraph> graphs)
+   {
+      for (AddonView view : views)
+      {
+         CompleteAddonGraph complete = new CompleteAddonGraph(view.getRepositories());
+         completeGraphs.add(complete);
+         graphs.add(new OptimizedAddonGraph(view, complete));
+      }
+      return merge(graphs);
+   }
+
+   /**
+    * Update the given graphs with the given changed addons, check that they match graphs built from scratch, and
+    * return the names of the addons that changed.
+    */
+   private static Set<String> update(List<AddonView> views, List<CompleteAddonGraph> completeGraphs,
+            List<OptimizedAddonGraph> graphs, Set<AddonId> changed)
+   {
+      Set<String> names = new HashSet<>();
+      for (int i = 0; i < views.size(); i++)
+      {
+         AddonView view = views.get(i);
+         Set<String> updated = completeGraphs.get(i).update(view.getRepositories(), changed);
+         graphs.get(i).update(completeGraphs.get(i), updated);
+         names.addAll(updated);
+
+         CompleteAddonGraph complete = new CompleteAddonGraph(view.getRepositories());
+         Assert.assertEquals(describe(complete.getGraph()), describe(completeGraphs.get(i).getGraph()));
+         Assert.assertEquals(describe(new OptimizedAddonGraph(view, complete).getGraph()),
+                  describe(graphs.get(i).getGraph()));
+      }
+      return names;
+   }
+
+   /**
+    * Patch the given {@link MasterGraph} with the affected addons, and check that it matches one merged from scratch.
+    */
+   private static void patch(MasterGraph master, Set<String> affected, List<OptimizedAddonGraph> graphs)
+   {
+      List<OptimizedAddonGraph> subgraphs = new ArrayList<>();
+      for (OptimizedAddonGraph graph : graphs)
+      {
+         subgraphs.add(graph.subgraph(affected));
+      }
+      Assert.assertTrue(master.replace(affected, merge(subgraphs)));
+      Assert.assertEquals(describe(merge(graphs).getGraph()), describe(master.getGraph()));
+   }
+
+   private static MasterGraph merge(List<OptimizedAddonGraph> graphs)
+   {
+      MasterGraph result = new MasterGraph();
+      for (OptimizedAddonGraph graph : graphs)
+      {
+         result.merge(graph);
+      }
+      return result;
+   }
+
+   private static Set<String> describe(DirectedGraph<AddonVertex, AddonDependencyEdge> graph)
+   {
+      Set<String> result = new TreeSet<>();
+      for (AddonVertex vertex : graph.vertexSet())
+      {
+         result.add(describe(vertex));
+      }
+      for (AddonDependencyEdge edge : graph.edgeSet())
+      {
+         result.add(describe(graph.getEdgeSource(edge)) + " -> " + describe(graph.getEdgeTarget(edge))
+                  + (edge.isExported() ? " exported" : ""));
+      }
+      return result;
+   }
+
+   private static String describe(AddonVertex vertex)
+   {
+      Set<String> views = new TreeSet<>();
+      for (AddonView view : vertex.getViews())
+      {
+         views.add(view.getName());
+      }
+      return vertex + views.toString();
+   }
+
+   private static class StubRepository implements AddonRepository
+   {
+      private final Map<AddonId, Set<AddonDependencyEntry>> enabled = new LinkedHashMap<>();
+
+      void enable(AddonId addon, AddonDependencyEntry... dependencies)
+      {
+         enabled.put(addon, new LinkedHashSet<>(Arrays.asList(dependencies)));
+      }
+
+      void disable(AddonId addon)
+      {
+         enabled.remove(addon);
+      }
+
+      @Override
+      public File getAddonBaseDir(AddonId addon)
+      {
+         return null;
+      }
+
+      @Override
+      public Set<AddonDependencyEntry> getAddonDependencies(AddonId addon)
+      {
+         return enabled.get(addon);
+      }
+
+      @Override
+      public File getAddonDescriptor(AddonId addon)
+      {
+         return null;
+      }
+
+      @Override
+      public List<File> getAddonResources(AddonId addon)
+      {
+         return Collections.emptyList();
+      }
+
+      @Override
+      public File getRootDirectory()
+      {
+         return null;
+      }
+
+      @Override
+      public boolean isDeployed(AddonId addon)
+      {
+         return enabled.containsKey(addon);
+      }
+
+      @Override
+      public boolean isEnabled(AddonId addon)
+      {
+         return enabled.containsKey(addon);
+      }
+
+      @Override
+      public List<AddonId> listAll()
+      {
+         return listEnabled();
+      }
+
+      @Override
+      public List<AddonId> listEnabled()
+      {
+         return new ArrayList<>(enabled.keySet());
+      }
+
+      @Override
+      public List<AddonId> listEnabledCompatibleWithVersion(Version version)
+      {
+         return listEnabled();
+      }
+
+      @Override
+      public Date getLastModified()
+      {
+         return null;
+      }
+
+      @Override
+      public int getVersion()
+      {
+         return 0;
+      }
+   }
+
+   private static class StubView implements AddonView
+   {
+      private final String name;
+      private final Set<AddonRepository> repositories;
+
+      StubView(String name, AddonRepository... repositories)
+      {
+         this.name = name;
+         this.repositories = new LinkedHashSet<>(Arrays.asList(repositories));
+      }
+
+      @Override
+      public String getName()
+      {
+         return name;
+      }
+
+      @Override
+      public void dispose()
+      {
+      }
+
+      @Override
+      public Addon getAddon(AddonId id)
+      {
+         return null;
+      }
+
+      @Override
+      public Set<Addon> getAddons()
+      {
+         return Collections.emptySet();
+      }
+
+      @Override
+      public Set<Addon> getAddons(AddonFilter filter)
+      {
+         return Collections.emptySet();
+      }
+
+      @Override
+      public Set<AddonRepository> getRepositories()
+      {
+         return repositories;
+      }
+   }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.lock;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.forge.furnace.lock.LockManager;
+import org.jboss.forge.furnace.lock.LockMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the {@link LockManager} implementations under a mixed load of seven readers per writer. Run from the
+ * <code>container</code> module with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.jboss.forge.furnace.impl.lock.LockManagerBenchmark
+ * </pre>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LockManagerBenchmark
+{
+   @Param({ "fair", "nonfair", "stamped" })
+   public String implementation;
+
+   private LockManager lock;
+
+   private long first;
+   private long second;
+
+   private final Callable<Long> read = new Callable<Long>()
+   {
+      @Override
+      public Long call() throws Exception
+      {
+         return first - second;
+      }
+   };
+
+   private final Callable<Void> write = new Callable<Void>()
+   {
+      @Override
+      public Void call() throws Exception
+      {
+         first++;
+         second++;
+         return null;
+      }
+   };
+
+   @Setup
+   public void setup()
+   {
+      if ("fair".equals(implementation))
+         lock = new LockManagerImpl(true);
+      else if ("nonfair".equals(implementation))
+         lock = new LockManagerImpl(false);
+      else
+         lock = new StampedLockManager();
+   }
+
+   @Benchmark
+   @Group("locked")
+   @GroupThreads(7)
+   public Long lockedRead()
+   {
+      return lock.performLocked(LockMode.READ, read);
+   }
+
+   @Benchmark
+   @Group("locked")
+   @GroupThreads(1)
+   public Void lockedWrite()
+   {
+      return lock.performLocked(LockMode.WRITE, write);
+   }
+
+   @Benchmark
+   @Group("optimistic")
+   @GroupThreads(7)
+   public Long optimisticRead()
+   {
+      return lock.performOptimisticRead(read);
+   }
+
+   @Benchmark
+   @Group("optimistic")
+   @GroupThreads(1)
+   public Void optimisticWrite()
+   {
+      return lock.performLocked(LockMode.WRITE, write);
+   }
+
+   public static void main(String[] args) throws RunnerException
+   {
+      new Runner(new OptionsBuilder().include(LockManagerBenchmark.class.getSimpleName()).build()).run();
+   }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.lock;
+
+import java.util.concurrent.Callable;
+
+import org.jboss.forge.furnace.lock.LockManager;
+import org.jboss.forge.furnace.lock.LockMode;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StampedLockManagerTest
+{
+   @Test
+   public void shouldAllowNestedLocks() throws Exception
+   {
+      final LockManager lock = new StampedLockManager();
+      String result = lock.performLocked(LockMode.WRITE, new Callable<String>()
+      {
+         @Override
+         public String call() throws Exception
+         {
+            return lock.performLocked(LockMode.READ, new Callable<String>()
+            {
+               @Override
+               public String call() throws Exception
+               {
+                  return lock.performOptimisticRead(new Callable<String>()
+                  {
+                     @Override
+                     public String call() throws Exception
+                     {
+                        return "nested";
+                     }
+                  });
+               }
+            });
+         }
+      });
+      Assert.assertEquals("nested", result);
+   }
+
+   @Test(expected = DeadlockError.class)
+   public void shouldNotAllowWriteLockWhileHoldingReadLock() throws Exception
+   {
+      final LockManager lock = new StampedLockManager();
+      lock.performLocked(LockMode.READ, new Callable<Void>()
+      {
+         @Override
+         public Void call() throws Exception
+         {
+            return lock.performLocked(LockMode.WRITE, new Callable<Void>()
+            {
+               @Override
+               public Void call() throws Exception
+               {
+                  return null;
+               }
+            });
+         }
+      });
+   }
+
+   @Test(expected = DeadlockError.class)
+   public void shouldNotAllowWriteLockWhileHoldingNestedReadLock() throws Exception
+   {
+      final LockManager lock = new StampedLockManager();
+      lock.performLocked(LockMode.WRITE, new Callable<Void>()
+      {
+         @Override
+         public Void call() throws Exception
+         {
+            return lock.performLocked(LockMode.READ, new Callable<Void>()
+            {
+               @Override
+               public Void call() throws Exception
+               {
+                  return lock.performLocked(LockMode.WRITE, new Callable<Void>()
+                  {
+                     @Override
+                     public Void call() throws Exception
+                     {
+                        return null;
+                     }
+                  });
+               }
+            });
+         }
+      });
+   }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.modules;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import org.jboss.modules.ClassSpec;
+import org.jboss.modules.Resource;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MappedJarResourceLoaderTest
+{
+   private static final byte[] STORED = "stored contents".getBytes(StandardCharsets.UTF_8);
+   private static final byte[] DEFLATED = new byte[64 * 1024];
+
+   static
+   {
+      for (int i = 0; i < DEFLATED.length; i++)
+         DEFLATED[i] = (byte) (i % 7 == 0 ? i : 'a');
+   }
+
+   @Test
+   public void shouldReadStoredAndDeflatedEntries() throws Exception
+   {
+      File jar = createJar(false);
+      MappedJarResourceLoader loader = MappedJarResourceLoader.open(jar.getName(), jar);
+      Assert.assertNotNull(loader);
+
+      ClassSpec stored = loader.getClassSpec("org/example/Stored.class");
+      ByteBuffer buffer = stored.getByteBuffer();
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      Assert.assertArrayEquals(STORED, bytes);
+
+      ClassSpec deflated = loader.getClassSpec("org/example/Deflated.class");
+      Assert.assertArrayEquals(DEFLATED, deflated.getBytes());
+      Assert.assertNull(loader.getClassSpec("org/example/Missing.class"));
+
+      Resource resource = loader.getResource("/org/example/Deflated.class");
+      Assert.assertEquals(DEFLATED.length, resource.getSize());
+      Assert.assertArrayEquals(DEFLATED, read(resource.openStream()));
+      Assert.assertArrayEquals(STORED, read(loader.getResource("org/example/Stored.class").openStream()));
+
+      Assert.assertTrue(loader.getPaths().containsAll(Arrays.asList("", "org/example", "META-INF")));
+      Assert.assertEquals("1.0", loader.getPackageSpec("org.example").getSpecVersion());
+   }
+
+   @Test
+   public void shouldNotMapSignedJars() throws Exception
+   {
+      File jar = createJar(true);
+      Assert.assertNull(MappedJarResourceLoader.open(jar.getName(), jar));
+   }
+
+   @Test
+   public void shouldFailReadsAfterClose() throws Exception
+   {
+      File jar = createJar(false);
+      MappedJarResourceLoader loader = MappedJarResourceLoader.open(jar.getName(), jar);
+      InputStream stream = loader.getResource("org/example/Stored.class").openStream();
+      Resource resource = loader.getResource("org/example/Deflated.class");
+      loader.close();
+      loader.close();
+
+      try
+      {
+         stream.read();
+         Assert.fail("Expected an IOException");
+      }
+      catch (IOException e)
+      {
+      }
+      try
+      {
+         resource.openStream();
+         Assert.fail("Expected an IOException");
+      }
+      catch (IOException e)
+      {
+      }
+   }
+
+   @Test(expected = ZipException.class)
+   public void shouldRejectInvalidCentralDirectoryOffsets() throws Exception
+   {
+      File jar = createJar(false);
+      try (RandomAccessFile file = new RandomAccessFile(jar, "rw"))
+      {
+         // The end of central directory record has no comment, so is the last 22 bytes of the file
+         file.seek(file.length() - 22 + 16);
+         file.write(new byte[] { (byte) 0xF0, (byte) 0xFF, (byte) 0xFF, 0x7F });
+      }
+      MappedJarResourceLoader.open(jar.getName(), jar);
+   }
+
+   private File createJar(boolean signed) throws Exception
+   {
+      File jar = File.createTempFile("mapped", ".jar", new File("target"));
+      jar.deleteOnExit();
+
+      Manifest manifest = new Manifest();
+      manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+      manifest.getMainAttributes().put(Attributes.Name.SPECIFICATION_VERSION, "1.0");
+      try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest))
+      {
+         JarEntry stored = new JarEntry("org/example/Stored.class");
+         CRC32 crc = new CRC32();
+         crc.update(STORED);
+         stored.setMethod(ZipEntry.STORED);
+         stored.setSize(STORED.length);
+         stored.setCrc(crc.getValue());
+         out.putNextEntry(stored);
+         out.write(STORED);
+         out.closeEntry();
+
+         out.putNextEntry(new JarEntry("org/example/Deflated.class"));
+         out.write(DEFLATED);
+         out.closeEntry();
+
+         if (signed)
+         {
+            out.putNextEntry(new JarEntry("META-INF/SIGNER.SF"));
+            out.closeEntry();
+         }
+      }
+      return jar;
+   }
+
+   private byte[] read(InputStream stream) throws Exception
+   {
+      try (InputStream in = stream)
+      {
+         ByteArrayOutputStream out = new ByteArrayOutputStream();
+         byte[] buffer = new byte[1024];
+         int count;
+         while ((count = in.read(buffer)) != -1)
+            out.write(buffer, 0, count);
+         return out.toByteArray();
+      }
+   }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.modules;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.impl.modules.ModuleLayout.Dependency;
+import org.jboss.forge.furnace.impl.modules.ModuleLayout.Root;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.util.OperatingSystemUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ModuleLayoutCacheTest
+{
+   private static final AddonId ADDON = AddonId.from("org.example:addon", "1.0.0.Final");
+   private static final AddonId CONTAINER = AddonId.from("org.jboss.forge.furnace.container:cdi", "2.0.0.Final");
+   private static final AddonId DEPENDENCY = AddonId.from("org.example:dependency", "1.1.0.Final", "1.0.0.Final");
+
+   @Test
+   public void testLayoutsSurviveARestart() throws Exception
+   {
+      File file = createCacheFile();
+      ModuleLayout layout = new ModuleLayout(42L, Arrays.asList(new Dependency(CONTAINER, true, false)),
+               Arrays.asList(new Dependency(DEPENDENCY, false, true)),
+               Arrays.asList(new Root(0, false), new Root(2, true)));
+      ModuleLayoutCache cache = new ModuleLayoutCache(file);
+      cache.put(ADDON, layout);
+      cache.write();
+
+      ModuleLayoutCache restarted = new ModuleLayoutCache(file);
+      Assert.assertNull(restarted.get(ADDON, 43L));
+      ModuleLayout result = restarted.get(ADDON, 42L);
+      Assert.assertNotNull(result);
+      Assert.assertEquals(CONTAINER, result.getContainerDependencies().get(0).getId());
+      Assert.assertTrue(result.getContainerDependencies().get(0).isExported());
+      Dependency dependency = result.getAddonDependencies().get(0);
+      Assert.assertEquals(DEPENDENCY, dependency.getId());
+      Assert.assertEquals(DEPENDENCY.getApiVersion(), dependency.getId().getApiVersion());
+      Assert.assertFalse(dependency.isExported());
+      Assert.assertTrue(dependency.isOptional());
+      Assert.assertEquals(2, result.getRoots().size());
+      Assert.assertEquals(2, result.getRoots().get(1).getResource());
+      Assert.assertTrue(result.getRoots().get(1).isDirectory());
+      Assert.assertTrue(result.hasRootsWithin(3));
+      Assert.assertFalse(result.hasRootsWithin(2));
+   }
+
+   @Test
+   public void testOnlyUsedLayoutsAreWrittenBack() throws Exception
+   {
+      File file = createCacheFile();
+      AddonId removed = AddonId.from("org.example:removed", "1.0.0.Final");
+      ModuleLayoutCache cache = new ModuleLayoutCache(file);
+      cache.put(ADDON, emptyLayout(1L));
+      cache.put(removed, emptyLayout(1L));
+      cache.write();
+
+      ModuleLayoutCache restarted = new ModuleLayoutCache(file);
+      Assert.assertNotNull(restarted.get(ADDON, 1L));
+      restarted.put(DEPENDENCY, emptyLayout(2L));
+      restarted.write();
+
+      ModuleLayoutCache result = new ModuleLayoutCache(file);
+      Assert.assertNotNull(result.get(ADDON, 1L));
+      Assert.assertNotNull(result.get(DEPENDENCY, 2L));
+      Assert.assertNull(result.get(removed, 1L));
+   }
+
+   @Test
+   public void testInvalidFilesAreIgnored() throws Exception
+   {
+      File file = createCacheFile();
+      ModuleLayoutCache cache = new ModuleLayoutCache(file);
+      cache.put(ADDON, new ModuleLayout(1L, Collections.<Dependency> emptyList(),
+               Arrays.asList(new Dependency(DEPENDENCY, false, false)), Arrays.asList(new Root(0, false))));
+      cache.write();
+      byte[] contents = Files.readAllBytes(file.toPath());
+
+      // Truncated
+      Files.write(file.toPath(), Arrays.copyOf(contents, contents.length - 3));
+      Assert.assertNull(new ModuleLayoutCache(file).get(ADDON, 1L));
+
+      // A layout count the file cannot hold
+      byte[] counted = contents.clone();
+      ByteBuffer.wrap(counted).putInt(8, Integer.MAX_VALUE);
+      Files.write(file.toPath(), counted);
+      Assert.assertNull(new ModuleLayoutCache(file).get(ADDON, 1L));
+
+      // A negative string length
+      byte[] negative = contents.clone();
+      ByteBuffer.wrap(negative).putInt(12, -2);
+      Files.write(file.toPath(), negative);
+      Assert.assertNull(new ModuleLayoutCache(file).get(ADDON, 1L));
+
+      // Another format
+      Files.write(file.toPath(), new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+      Assert.assertNull(new ModuleLayoutCache(file).get(ADDON, 1L));
+
+      Files.write(file.toPath(), contents);
+      Assert.assertNotNull(new ModuleLayoutCache(file).get(ADDON, 1L));
+   }
+
+   @Test
+   public void testFingerprintCoversDependenciesAndResources()
+   {
+      List<AddonDependencyEntry> entries = Arrays.asList(AddonDependencyEntry.create("org.example:dependency",
+               "[1,2)"));
+      List<AddonId> resolved = Arrays.asList(DEPENDENCY);
+      List<File> resources = Arrays.asList(new File("addon.jar"));
+      long fingerprint = ModuleLayoutCache.fingerprint(ADDON, entries, resolved, resources);
+
+      Assert.assertEquals(fingerprint, ModuleLayoutCache.fingerprint(ADDON, entries, resolved, resources));
+      Assert.assertNotEquals(fingerprint, ModuleLayoutCache.fingerprint(AddonId.from("org.example:addon", "1.0.1"),
+               entries, resolved, resources));
+      Assert.assertNotEquals(fingerprint, ModuleLayoutCache.fingerprint(ADDON, entries, resolved,
+               Arrays.asList(new File("addon.jar"), new File("library.jar"))));
+      Assert.assertNotEquals(fingerprint, ModuleLayoutCache.fingerprint(ADDON,
+               Arrays.asList(AddonDependencyEntry.create("org.example:dependency", "[1,2)", true, false)),
+               resolved, resources));
+      Assert.assertNotEquals(fingerprint, ModuleLayoutCache.fingerprint(ADDON,
+               Arrays.asList(AddonDependencyEntry.create("org.example:dependency", "[1,3)")), resolved, resources));
+      Assert.assertNotEquals(fingerprint, ModuleLayoutCache.fingerprint(ADDON, entries,
+               Arrays.asList(AddonId.from("org.example:dependency", "1.2.0.Final")), resources));
+      Assert.assertNotEquals(fingerprint, ModuleLayoutCache.fingerprint(ADDON, entries,
+               Collections.<AddonId> singletonList(null), resources));
+   }
+
+   private static ModuleLayout emptyLayout(long fingerprint)
+   {
+      return new ModuleLayout(fingerprint, Collections.<Dependency> emptyList(),
+               Collections.<Dependency> emptyList(), Collections.<Root> emptyList());
+   }
+
+   private static File createCacheFile()
+   {
+      File root = OperatingSystemUtils.createTempDir();
+      root.deleteOnExit();
+      File file = new File(root, AddonModuleLoader.MODULE_LAYOUTS_FILENAME);
+      file.deleteOnExit();
+      return file;
+   }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+/**
+ * How the proxies created by {@link ClassLoaderAdapterBuilder} are generated.
+ */
+public enum ClassLoaderAdapterBackend
+{
+   /**
+    * Proxies are created by javassist's {@link javassist.util.proxy.ProxyFactory}; every call is passed to the
+    * {@link ClassLoaderAdapterCallback} with the reflective {@link java.lang.reflect.Method} being invoked.
+    */
+   JAVASSIST,
+
+   /**
+    * Proxies are generated with one typed method per proxied method, calling a slot that caches how it is dispatched
+    * to the delegate. Used for proxies of interfaces only; any other proxy falls back to {@link #JAVASSIST}.
+    */
+   DIRECT;
+}
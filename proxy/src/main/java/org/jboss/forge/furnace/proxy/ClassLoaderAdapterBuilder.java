@@ -22,6 +22,7 @@ public class ClassLoaderAdapterBuilder implements ClassLoaderAdapterBuilderCalli
    private ClassLoader callingLoader;
    private ClassLoader delegateLoader;
    private Callable<Set<ClassLoader>> whitelist = Callables.returning((Set<ClassLoader>) new HashSet<ClassLoader>());
+   private ClassLoaderAdapterBackend backend = ClassLoaderAdapterBackend.JAVASSIST;
 
    public static ClassLoaderAdapterBuilderCallingLoader callingLoader(ClassLoader callingLoader)
    {
@@ -51,16 +52,23 @@ public class ClassLoaderAdapterBuilder implements ClassLoaderAdapterBuilderCalli
       return this;
    }
 
+   @Override
+   public ClassLoaderAdapterBuilderWhitelist backend(ClassLoaderAdapterBackend backend)
+   {
+      this.backend = backend;
+      return this;
+   }
+
    @Override
    public <T> T enhance(T delegate)
    {
-      return ClassLoaderAdapterCallback.enhance(whitelist, callingLoader, delegateLoader, delegate);
+      return ClassLoaderAdapterCallback.enhance(whitelist, backend, callingLoader, delegateLoader, delegate);
    }
 
    @Override
    public <T> T enhance(T delegate, Class<?>... types)
    {
-      return ClassLoaderAdapterCallback.enhance(whitelist, callingLoader, delegateLoader, delegate, types);
+      return ClassLoaderAdapterCallback.enhance(whitelist, backend, callingLoader, delegateLoader, delegate, types);
    }
 
 }
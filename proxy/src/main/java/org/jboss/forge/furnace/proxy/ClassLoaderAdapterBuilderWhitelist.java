@@ -12,6 +12,18 @@ package org.jboss.forge.furnace.proxy;
  */
 public interface ClassLoaderAdapterBuilderWhitelist
 {
+   /**
+    * Select the {@link ClassLoaderAdapterBackend} generating the proxies, {@link ClassLoaderAdapterBackend#JAVASSIST}
+    * by default. Proxies of values passed through these proxies use the same backend.
+    * <p>
+    * The default implementation ignores the selection, so implementations that predate backends keep generating
+    * {@link ClassLoaderAdapterBackend#JAVASSIST} proxies.
+    */
+   default ClassLoaderAdapterBuilderWhitelist backend(ClassLoaderAdapterBackend backend)
+   {
+      return this;
+   }
+
    <T> T enhance(T delegate);
 
    <T> T enhance(T delegate, Class<?>... types);
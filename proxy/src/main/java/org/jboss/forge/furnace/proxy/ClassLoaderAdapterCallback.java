@@ -14,12 +14,13 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -39,16 +40,37 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
 {
    private static final Logger log = Logger.getLogger(ClassLoaderAdapterCallback.class.getName());
    private static final ClassLoader JAVASSIST_LOADER = ProxyObject.class.getClassLoader();
-   private static final Map<String, Map<String, WeakReference<Class<?>>>> classCache = new ConcurrentHashMap<>();
-   private static final Map<String, Boolean> returnTypeNeedsEnhancementCache = new ConcurrentHashMap<>();
-   private static final Map<String, List<WeakReference<Class<?>>>> resultHierarchyCache = new ConcurrentHashMap<>();
-   private static final Map<String, List<WeakReference<Class<?>>>> returnTypeHierarchyCache = new ConcurrentHashMap<>();
+   private static final ClassLoaderCache<ClassLoaderCache<TypeCache<WeakReference<Class<?>>>>> classCache =
+            new ClassLoaderCache<ClassLoaderCache<TypeCache<WeakReference<Class<?>>>>>()
+   {
+      @Override
+      protected ClassLoaderCache<TypeCache<WeakReference<Class<?>>>> computeValue(ClassLoader callingLoader)
+      {
+         return ClassLoaderCache.ofTypeCaches();
+      }
+   };
+   private static final ClassLoaderCache<TypeCache<TypeCache<Boolean>>> returnTypeNeedsEnhancementCache =
+            ClassLoaderCache.ofNestedTypeCaches();
+   private static final ClassLoaderCache<TypeCache<TypeCache<List<WeakReference<Class<?>>>>>> resultHierarchyCache =
+            ClassLoaderCache.ofNestedTypeCaches();
+   private static final ClassLoaderCache<TypeCache<List<WeakReference<Class<?>>>>> returnTypeHierarchyCache =
+            ClassLoaderCache.ofTypeCaches();
+   private static final ClassValue<Map<Method, DispatchPlan>> dispatchPlans =
+            new ClassValue<Map<Method, DispatchPlan>>()
+   {
+      @Override
+      protected Map<Method, DispatchPlan> computeValue(Class<?> delegateType)
+      {
+         return Collections.synchronizedMap(new WeakHashMap<Method, DispatchPlan>());
+      }
+   };
 
    private final Object delegate;
 
    private final ClassLoader initialCallingLoader;
    private final ClassLoader delegateLoader;
    private final Callable<Set<ClassLoader>> whitelist;
+   private final ClassLoaderAdapterBackend backend;
    private final ClassLoader nullClassLoader = new ClassLoader()
    {
    };
@@ -63,13 +85,21 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
 
    public ClassLoaderAdapterCallback(Callable<Set<ClassLoader>> whitelist, ClassLoader callingLoader,
             ClassLoader delegateLoader, Object delegate)
+   {
+      this(whitelist, ClassLoaderAdapterBackend.JAVASSIST, callingLoader, delegateLoader, delegate);
+   }
+
+   ClassLoaderAdapterCallback(Callable<Set<ClassLoader>> whitelist, ClassLoaderAdapterBackend backend,
+            ClassLoader callingLoader, ClassLoader delegateLoader, Object delegate)
    {
       Assert.notNull(whitelist, "ClassLoader whitelist must not be null");
+      Assert.notNull(backend, "Proxy backend must not be null.");
       Assert.notNull(callingLoader, "Calling loader must not be null.");
       Assert.notNull(delegateLoader, "Delegate loader must not be null.");
       Assert.notNull(delegate, "Delegate must not be null.");
 
       this.whitelist = whitelist;
+      this.backend = backend;
       this.initialCallingLoader = callingLoader;
 
       if (delegateLoader == callingLoader)
@@ -94,98 +124,189 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
          throw new ContainerException("Thread.interrupt() requested.");
       }
 
-      Object result = ClassLoaders.executeIn(delegateLoader, new Callable<Object>()
+      try
       {
-         @Override
-         public Object call() throws Exception
+         if (thisMethod.getDeclaringClass().getName().equals(ForgeProxy.class.getName()))
          {
-            try
-            {
-               if (thisMethod.getDeclaringClass().getName().equals(ForgeProxy.class.getName()))
-               {
-                  if (thisMethod.getName().equals("getDelegate"))
-                     return ClassLoaderAdapterCallback.this.getDelegate();
-                  if (thisMethod.getName().equals("getHandler"))
-                     return ClassLoaderAdapterCallback.this.getHandler();
-               }
-            }
-            catch (final Exception e)
+            if (thisMethod.getName().equals("getDelegate"))
+               return getDelegate();
+            if (thisMethod.getName().equals("getHandler"))
+               return getHandler();
+         }
+      }
+      catch (final Exception e)
+      {
+      }
+
+      Object result;
+      if (ClassLoaders.isContextClassLoader(delegateLoader))
+      {
+         try
+         {
+            result = invokeDelegate(thisMethod, getDispatchPlan(thisMethod), args);
+         }
+         finally
+         {
+            ClassLoaders.restoreContextClassLoader(delegateLoader);
+         }
+      }
+      else
+      {
+         result = ClassLoaders.executeIn(delegateLoader, new Callable<Object>()
+         {
+            @Override
+            public Object call() throws Exception
             {
+               return invokeDelegate(thisMethod, getDispatchPlan(thisMethod), args);
             }
+         });
+      }
 
-            final Method delegateMethod = getDelegateMethod(thisMethod);
+      if (Thread.currentThread().isInterrupted())
+      {
+         throw new ContainerException("Thread.interrupt() requested.");
+      }
 
-            final List<Object> parameterValues = enhanceParameterValues(args, delegateMethod);
+      return result;
+   }
 
-            AccessibleObject.setAccessible(new AccessibleObject[] { delegateMethod }, true);
-            try
-            {
-               final Object[] parameterValueArray = parameterValues.toArray();
-               final Object result = delegateMethod.invoke(delegate, parameterValueArray);
-               return enhanceResult(thisMethod, result);
-            }
-            catch (final InvocationTargetException e)
-            {
-               if (e.getCause() instanceof Exception)
-                  throw enhanceException(delegateMethod, (Exception) e.getCause());
-               throw enhanceException(delegateMethod, e);
-            }
+   /**
+    * Invoke the delegate for a method of a {@link ClassLoaderAdapterBackend#DIRECT} proxy, using the plan cached by
+    * its slot if it was resolved for the type of this delegate.
+    */
+   Object dispatch(final DirectDispatchSlot slot, final Object[] args) throws Throwable
+   {
+      if (Thread.currentThread().isInterrupted())
+      {
+         throw new ContainerException("Thread.interrupt() requested.");
+      }
 
+      Object result;
+      if (ClassLoaders.isContextClassLoader(delegateLoader))
+      {
+         try
+         {
+            result = invokeDelegate(slot, args);
          }
-
-         private Method getDelegateMethod(final Method proxy) throws ClassNotFoundException, NoSuchMethodException
+         finally
          {
-
-            Method delegateMethod = null;
-            try
+            ClassLoaders.restoreContextClassLoader(delegateLoader);
+         }
+      }
+      else
+      {
+         result = ClassLoaders.executeIn(delegateLoader, new Callable<Object>()
+         {
+            @Override
+            public Object call() throws Exception
             {
-               final List<Class<?>> parameterTypes = translateParameterTypes(proxy);
-               delegateMethod = delegate.getClass().getMethod(proxy.getName(),
-                        parameterTypes.toArray(new Class<?>[parameterTypes.size()]));
+               return invokeDelegate(slot, args);
             }
-            catch (final ClassNotFoundException e)
+         });
+      }
+
+      if (Thread.currentThread().isInterrupted())
+      {
+         throw new ContainerException("Thread.interrupt() requested.");
+      }
+
+      return result;
+   }
+
+   private Object invokeDelegate(final DirectDispatchSlot slot, final Object[] args) throws Exception
+   {
+      DispatchPlan plan = slot.getPlan(delegate.getClass());
+      if (plan == null)
+      {
+         plan = getDispatchPlan(slot.getMethod());
+         slot.setPlan(plan);
+      }
+      return invokeDelegate(slot.getMethod(), plan, args);
+   }
+
+   private Object invokeDelegate(final Method thisMethod, final DispatchPlan plan, final Object[] args)
+            throws Exception
+   {
+      final Method delegateMethod = plan.delegateMethod;
+
+      final Object[] parameterValues = enhanceParameterValues(args, plan);
+
+      final Object result;
+      try
+      {
+         result = plan.invoker.invoke(delegate, parameterValues);
+      }
+      catch (final Exception e)
+      {
+         throw enhanceException(delegateMethod, e);
+      }
+      catch (final Throwable e)
+      {
+         throw enhanceException(delegateMethod, new InvocationTargetException(e));
+      }
+
+      if (plan.passthroughResult)
+         return result;
+      return enhanceResult(thisMethod, result);
+   }
+
+   private DispatchPlan getDispatchPlan(final Method proxy)
+            throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException
+   {
+      final Map<Method, DispatchPlan> plans = dispatchPlans.get(delegate.getClass());
+      DispatchPlan plan = plans.get(proxy);
+      if (plan == null)
+      {
+         plan = new DispatchPlan(delegate.getClass(), getDelegateMethod(proxy), proxy.getReturnType().isPrimitive());
+         plans.put(proxy, plan);
+      }
+      return plan;
+   }
+
+   private Method getDelegateMethod(final Method proxy) throws ClassNotFoundException, NoSuchMethodException
+   {
+
+      Method delegateMethod = null;
+      try
+      {
+         final List<Class<?>> parameterTypes = translateParameterTypes(proxy);
+         delegateMethod = delegate.getClass().getMethod(proxy.getName(),
+                  parameterTypes.toArray(new Class<?>[parameterTypes.size()]));
+      }
+      catch (final ClassNotFoundException e)
+      {
+         method: for (final Method m : delegate.getClass().getMethods())
+         {
+            final String methodName = proxy.getName();
+            final String delegateMethodName = m.getName();
+            if (methodName.equals(delegateMethodName))
             {
-               method: for (final Method m : delegate.getClass().getMethods())
+               final Class<?>[] methodParameterTypes = proxy.getParameterTypes();
+               final Class<?>[] delegateParameterTypes = m.getParameterTypes();
+
+               if (methodParameterTypes.length == delegateParameterTypes.length)
                {
-                  final String methodName = proxy.getName();
-                  final String delegateMethodName = m.getName();
-                  if (methodName.equals(delegateMethodName))
+                  for (int i = 0; i < methodParameterTypes.length; i++)
                   {
-                     final Class<?>[] methodParameterTypes = proxy.getParameterTypes();
-                     final Class<?>[] delegateParameterTypes = m.getParameterTypes();
+                     final Class<?> methodType = methodParameterTypes[i];
+                     final Class<?> delegateType = delegateParameterTypes[i];
 
-                     if (methodParameterTypes.length == delegateParameterTypes.length)
+                     if (!methodType.getName().equals(delegateType.getName()))
                      {
-                        for (int i = 0; i < methodParameterTypes.length; i++)
-                        {
-                           final Class<?> methodType = methodParameterTypes[i];
-                           final Class<?> delegateType = delegateParameterTypes[i];
-
-                           if (!methodType.getName().equals(delegateType.getName()))
-                           {
-                              continue method;
-                           }
-                        }
-
-                        delegateMethod = m;
-                        break;
+                        continue method;
                      }
                   }
+
+                  delegateMethod = m;
+                  break;
                }
-               if (delegateMethod == null)
-                  throw e;
             }
-
-            return delegateMethod;
          }
-      });
-
-      if (Thread.currentThread().isInterrupted())
-      {
-         throw new ContainerException("Thread.interrupt() requested.");
+         if (delegateMethod == null)
+            throw e;
       }
 
-      return result;
+      return delegateMethod;
    }
 
    private Object enhanceResult(final Method method, Object result) throws Exception
@@ -249,7 +370,8 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
                         callingLoader);
                if (Object.class.equals(returnType) && !Object.class.equals(result))
                {
-                  result = enhance(whitelist, callingLoader, resultInstanceLoader, method, result, resultHierarchy);
+                  result = enhance(whitelist, backend, callingLoader, resultInstanceLoader, method, result,
+                           resultHierarchy);
                }
                else
                {
@@ -274,7 +396,7 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
                      }
                   }
 
-                  result = enhance(whitelist, callingLoader, resultInstanceLoader, method, delegateObject,
+                  result = enhance(whitelist, backend, callingLoader, resultInstanceLoader, method, delegateObject,
                            mergeHierarchies(returnTypeHierarchy, resultHierarchy));
                }
             }
@@ -301,7 +423,7 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
                                     Proxies.unwrapProxyTypes(resultClass, getCallingLoader(), delegateLoader,
                                              resultInstanceLoader));
                            result = Optional
-                                    .of(enhance(whitelist, getCallingLoader(), resultInstanceLoader, method,
+                                    .of(enhance(whitelist, backend, getCallingLoader(), resultInstanceLoader, method,
                                              nestedResult,
                                              resultHierarchy));
                         }
@@ -312,7 +434,8 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
                      Class<?>[] returnTypeHierarchy = calculateReturnTypeHierarchy(callingLoader, returnType);
                      if (returnTypeHierarchy.length > 0)
                      {
-                        result = enhance(whitelist, callingLoader, resultInstanceLoader, method, returnTypeHierarchy);
+                        result = enhance(whitelist, backend, callingLoader, resultInstanceLoader, method,
+                                 returnTypeHierarchy);
                      }
                   }
                }
@@ -328,59 +451,26 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
 
    private Class<?>[] calculateReturnTypeHierarchy(ClassLoader callingLoader, final Class<?> returnType)
    {
-      String key = getReturnTypeHierarchyCacheKey(callingLoader, returnType);
+      TypeCache<List<WeakReference<Class<?>>>> cache = returnTypeHierarchyCache.get(callingLoader);
 
-      Class<?>[] returnTypeHierarchy = getCachedReturnTypeHierarchy(key);
+      Class<?>[] returnTypeHierarchy = toTypes(cache.getValue(returnType));
       if (returnTypeHierarchy == null)
       {
          returnTypeHierarchy = removeProxyTypes(ProxyTypeInspector.getCompatibleClassHierarchy(
                   callingLoader, returnType));
 
-         setCachedReturnTypeHierarchy(key, returnTypeHierarchy);
+         cache.setValue(returnType, toReferences(returnTypeHierarchy));
       }
       return returnTypeHierarchy;
    }
 
-   private void setCachedReturnTypeHierarchy(String key, Class<?>[] returnTypeHierarchy)
-   {
-      List<WeakReference<Class<?>>> list = new ArrayList<>();
-      for (Class<?> type : returnTypeHierarchy)
-      {
-         list.add(new WeakReference<Class<?>>(type));
-      }
-      returnTypeHierarchyCache.put(key, list);
-   }
-
-   private Class<?>[] getCachedReturnTypeHierarchy(String key)
-   {
-      List<Class<?>> result = null;
-      List<WeakReference<Class<?>>> list = returnTypeHierarchyCache.get(key);
-      if (list != null)
-      {
-         result = new ArrayList<>();
-         for (WeakReference<Class<?>> ref : list)
-         {
-            Class<?> type = ref.get();
-            if (type == null)
-               return null;
-            result.add(type);
-         }
-         return result.toArray(new Class<?>[result.size()]);
-      }
-      return null;
-   }
-
-   private String getReturnTypeHierarchyCacheKey(ClassLoader callingLoader, Class<?> returnType)
-   {
-      return callingLoader + "" + returnType.getName();
-   }
-
    private Class<?>[] calculateResultHierarchy(Class<?> resultType, final Class<?> unwrappedResultType,
             ClassLoader callingLoader)
    {
-      String key = getResultHierarchyCacheKey(callingLoader, unwrappedResultType, resultType);
+      TypeCache<List<WeakReference<Class<?>>>> cache = resultHierarchyCache.get(callingLoader).getValue(
+               unwrappedResultType);
 
-      Class<?>[] resultHierarchy = getCachedResultHierarchy(key);
+      Class<?>[] resultHierarchy = toTypes(cache.getValue(resultType));
       if (resultHierarchy == null)
       {
          Class<?>[] resultTypeHierarchy = removeProxyTypes(ProxyTypeInspector.getCompatibleClassHierarchy(
@@ -388,45 +478,37 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
          Class<?>[] unwrappedResultHierarchy = calculateReturnTypeHierarchy(callingLoader, unwrappedResultType);
 
          resultHierarchy = mergeHierarchies(resultTypeHierarchy, unwrappedResultHierarchy);
-         setCachedResultHierarchy(key, resultHierarchy);
+         cache.setValue(resultType, toReferences(resultHierarchy));
       }
       return resultHierarchy;
    }
 
-   private void setCachedResultHierarchy(String key, Class<?>[] resultHierarchy)
+   private static List<WeakReference<Class<?>>> toReferences(Class<?>[] types)
    {
-      List<WeakReference<Class<?>>> list = new ArrayList<>();
-      for (Class<?> type : resultHierarchy)
+      List<WeakReference<Class<?>>> list = new ArrayList<>(types.length);
+      for (Class<?> type : types)
       {
          list.add(new WeakReference<Class<?>>(type));
       }
-      resultHierarchyCache.put(key, list);
+      return list;
    }
 
-   private Class<?>[] getCachedResultHierarchy(String key)
+   /**
+    * The types of the given references, or <code>null</code> if there are none or any of them was collected.
+    */
+   private static Class<?>[] toTypes(List<WeakReference<Class<?>>> list)
    {
-      List<Class<?>> result = null;
-      List<WeakReference<Class<?>>> list = resultHierarchyCache.get(key);
-      if (list != null)
+      if (list == null)
+         return null;
+
+      Class<?>[] result = new Class<?>[list.size()];
+      for (int i = 0; i < result.length; i++)
       {
-         result = new ArrayList<>();
-         for (WeakReference<Class<?>> ref : list)
-         {
-            Class<?> type = ref.get();
-            if (type == null)
-               return null;
-            result.add(type);
-         }
-         return result.toArray(new Class<?>[result.size()]);
+         result[i] = list.get(i).get();
+         if (result[i] == null)
+            return null;
       }
-      return null;
-   }
-
-   private String getResultHierarchyCacheKey(ClassLoader callingLoader, Class<?> unwrappedResultType,
-            Class<?> resultType)
-   {
-      return callingLoader + "" + unwrappedResultType.getClassLoader() + "" + unwrappedResultType.getName()
-               + resultType.getClassLoader() + resultType.getName();
+      return result;
    }
 
    private Class<?>[] removeProxyTypes(Class<?>[] types)
@@ -501,7 +583,7 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
 
                if (!Modifier.isFinal(unwrappedExceptionType.getModifiers()))
                {
-                  result = enhance(whitelist, getCallingLoader(), exceptionLoader, method, exception,
+                  result = enhance(whitelist, backend, getCallingLoader(), exceptionLoader, method, exception,
                            exceptionHierarchy);
                }
             }
@@ -585,8 +667,8 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
             Class<?> unwrappedReturnValueType)
    {
 
-      String key = getReturnTypeNeedsEnhancementCacheKey(methodReturnType, unwrappedReturnValueType);
-      Boolean result = returnTypeNeedsEnhancementCache.get(key);
+      TypeCache<Boolean> cache = returnTypeNeedsEnhancementCache.get(getCallingLoader()).getValue(methodReturnType);
+      Boolean result = cache.getValue(unwrappedReturnValueType);
 
       if (result == null)
       {
@@ -608,19 +690,13 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
                result = false;
             }
          }
-         returnTypeNeedsEnhancementCache.put(key, result);
+         cache.setValue(unwrappedReturnValueType, result);
       }
 
       return result;
 
    }
 
-   private String getReturnTypeNeedsEnhancementCacheKey(Class<?> methodReturnType, Class<?> unwrappedReturnValueType)
-   {
-      return getCallingLoader() + "-" + methodReturnType.getClassLoader() + "-" + methodReturnType.getName()
-               + unwrappedReturnValueType.getClassLoader() + "" + unwrappedReturnValueType.getName();
-   }
-
    private static boolean whitelistContainsAll(Callable<Set<ClassLoader>> whitelist, ClassLoader... classLoaders)
    {
       try
@@ -669,17 +745,20 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
       throw new ClassNotFoundException(typeName);
    }
 
-   private List<Object> enhanceParameterValues(final Object[] args, Method delegateMethod) throws Exception
+   private Object[] enhanceParameterValues(final Object[] args, DispatchPlan plan) throws Exception
    {
-      final List<Object> parameterValues = new ArrayList<>();
-      for (int i = 0; i < delegateMethod.getParameterTypes().length; i++)
+      final Object[] parameterValues = new Object[plan.parameterTypes.length];
+      for (int i = 0; i < plan.parameterTypes.length; i++)
       {
-         final Class<?> delegateParameterType = delegateMethod.getParameterTypes()[i];
-         final Object parameterValue = args[i];
-
-         final Object enhancedParameterValue = enhanceSingleParameterValue(delegateMethod, delegateParameterType,
-                  stripClassLoaderAdapters(parameterValue));
-         parameterValues.add(enhancedParameterValue);
+         if (plan.passthroughParameters[i])
+         {
+            parameterValues[i] = args[i];
+         }
+         else
+         {
+            parameterValues[i] = enhanceSingleParameterValue(plan.delegateMethod, plan.parameterTypes[i],
+                     stripClassLoaderAdapters(args[i]));
+         }
       }
       return parameterValues;
    }
@@ -786,7 +865,7 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
                         Class<?>[] compatibleClassHierarchy = ProxyTypeInspector.getCompatibleClassHierarchy(
                                  delegateLoader,
                                  Proxies.unwrapProxyTypes(parameterClass, getCallingLoader(), delegateLoader));
-                        nestedResult = enhance(whitelist, valueDelegateLoader, valueCallingLoader,
+                        nestedResult = enhance(whitelist, backend, valueDelegateLoader, valueCallingLoader,
                                  nestedResult,
                                  compatibleClassHierarchy);
                      }
@@ -830,8 +909,8 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
                         }
                      }
 
-                     final Object delegateParameterValue = enhance(whitelist, valueDelegateLoader, valueCallingLoader,
-                              delegateObject,
+                     final Object delegateParameterValue = enhance(whitelist, backend, valueDelegateLoader,
+                              valueCallingLoader, delegateObject,
                               compatibleClassHierarchy);
 
                      return delegateParameterValue;
@@ -897,49 +976,38 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
 
    private static Class<?> getCachedProxyType(ClassLoader callingLoader, ClassLoader delegateLoader, Class<?> type)
    {
-      Class<?> proxyType = null;
-      Map<String, WeakReference<Class<?>>> cache = classCache.get(getClassCacheKey(callingLoader, delegateLoader));
-      if (cache != null)
-      {
-         WeakReference<Class<?>> ref = cache.get(type.getName());
-         if (ref != null)
-         {
-            proxyType = ref.get();
-         }
-      }
-      return proxyType;
+      WeakReference<Class<?>> ref = classCache.get(callingLoader).get(delegateLoader).getValue(type);
+      return ref == null ? null : ref.get();
    }
 
    private static void setCachedProxyType(ClassLoader callingLoader, ClassLoader delegateLoader, Class<?> type,
             Class<?> proxyType)
    {
-      String key = getClassCacheKey(callingLoader, delegateLoader);
-      Map<String, WeakReference<Class<?>>> cache = classCache.get(key);
-      if (cache == null)
-      {
-         cache = new ConcurrentHashMap<>();
-
-         classCache.put(key, cache);
-      }
-      cache.put(type.getName(), new WeakReference<Class<?>>(proxyType));
+      classCache.get(callingLoader).get(delegateLoader).setValue(type, new WeakReference<Class<?>>(proxyType));
    }
 
-   private static String getClassCacheKey(ClassLoader callingLoader, ClassLoader delegateLoader)
+   static <T> T enhance(Callable<Set<ClassLoader>> whitelist, final ClassLoader callingLoader,
+            final ClassLoader delegateLoader,
+            final Object delegate,
+            final Class<?>... types)
    {
-      return callingLoader.toString() + delegateLoader.toString();
+      return enhance(whitelist, ClassLoaderAdapterBackend.JAVASSIST, callingLoader, delegateLoader, null, delegate,
+               types);
    }
 
-   static <T> T enhance(Callable<Set<ClassLoader>> whitelist, final ClassLoader callingLoader,
+   static <T> T enhance(Callable<Set<ClassLoader>> whitelist, ClassLoaderAdapterBackend backend,
+            final ClassLoader callingLoader,
             final ClassLoader delegateLoader,
             final Object delegate,
             final Class<?>... types)
    {
-      return enhance(whitelist, callingLoader, delegateLoader, null, delegate, types);
+      return enhance(whitelist, backend, callingLoader, delegateLoader, null, delegate, types);
    }
 
    @SuppressWarnings("unchecked")
    private static <T> T enhance(
             final Callable<Set<ClassLoader>> whitelist,
+            final ClassLoaderAdapterBackend backend,
             final ClassLoader callingLoader,
             final ClassLoader delegateLoader,
             final Method sourceMethod,
@@ -961,6 +1029,19 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
             {
                try
                {
+                  if (backend == ClassLoaderAdapterBackend.DIRECT)
+                  {
+                     Class<?> directType = DirectProxyFactory.getProxyClass(callingLoader, delegateLoader,
+                              delegateType, types);
+                     if (directType != null)
+                     {
+                        Object enhancedResult = directType.newInstance();
+                        ((Proxy) enhancedResult).setHandler(new ClassLoaderAdapterCallback(whitelist, backend,
+                                 callingLoader, delegateLoader, delegate));
+                        return (T) enhancedResult;
+                     }
+                  }
+
                   Class<?> proxyType = getCachedProxyType(callingLoader, delegateLoader, delegateType);
                   if (proxyType == null)
                   {
@@ -1051,8 +1132,8 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
                   try
                   {
                      ((ProxyObject) enhancedResult)
-                              .setHandler(new ClassLoaderAdapterCallback(whitelist, callingLoader, delegateLoader,
-                                       delegate));
+                              .setHandler(new ClassLoaderAdapterCallback(whitelist, backend, callingLoader,
+                                       delegateLoader, delegate));
                   }
                   catch (final ClassCastException e)
                   {
@@ -1114,4 +1195,37 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
    {
       return initialCallingLoader;
    }
+
+   /**
+    * How calls to one proxy {@link Method} are dispatched to one delegate type: the delegate method, made accessible
+    * and bound to a {@link MethodInvoker}, which of its parameters need no enhancement, and whether the result does.
+    * Plans are computed on the first call and held per delegate type, weakly keyed by the proxy method; they reference
+    * nothing from the calling side, so they do not keep the calling {@link ClassLoader} from being collected.
+    */
+   static final class DispatchPlan
+   {
+      final Class<?> delegateType;
+      private final Method delegateMethod;
+      private final MethodInvoker invoker;
+      private final Class<?>[] parameterTypes;
+      private final boolean[] passthroughParameters;
+      private final boolean passthroughResult;
+
+      DispatchPlan(Class<?> delegateType, Method delegateMethod, boolean passthroughResult)
+               throws IllegalAccessException
+      {
+         this.delegateType = delegateType;
+         AccessibleObject.setAccessible(new AccessibleObject[] { delegateMethod }, true);
+         this.delegateMethod = delegateMethod;
+         this.invoker = new MethodInvoker(delegateMethod);
+         this.parameterTypes = delegateMethod.getParameterTypes();
+         this.passthroughParameters = new boolean[parameterTypes.length];
+         for (int i = 0; i < parameterTypes.length; i++)
+         {
+            // Boxed primitives are returned as they are by enhanceSingleParameterValue
+            passthroughParameters[i] = parameterTypes[i].isPrimitive();
+         }
+         this.passthroughResult = passthroughResult;
+      }
+   }
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A value computed once per {@link ClassLoader}, like {@link ClassValue} is per {@link Class}. Loaders are held weakly,
+ * so a value is released once its loader, such as the one of an unloaded addon module, is collected. Values must not
+ * reference their loader strongly, or it is never released. {@link ClassLoader} does not override
+ * {@link Object#equals(Object)}, so loaders are compared by identity.
+ */
+abstract class ClassLoaderCache<V>
+{
+   private final Map<ClassLoader, V> values = Collections.synchronizedMap(new WeakHashMap<ClassLoader, V>());
+
+   protected abstract V computeValue(ClassLoader loader);
+
+   V get(ClassLoader loader)
+   {
+      V value = values.get(loader);
+      if (value == null)
+      {
+         synchronized (values)
+         {
+            value = values.get(loader);
+            if (value == null)
+            {
+               value = computeValue(loader);
+               values.put(loader, value);
+            }
+         }
+      }
+      return value;
+   }
+
+   /**
+    * Create a cache holding a {@link TypeCache} per {@link ClassLoader}.
+    */
+   static <V> ClassLoaderCache<TypeCache<V>> ofTypeCaches()
+   {
+      return new ClassLoaderCache<TypeCache<V>>()
+      {
+         @Override
+         protected TypeCache<V> computeValue(ClassLoader loader)
+         {
+            return new TypeCache<>();
+         }
+      };
+   }
+
+   /**
+    * Create a cache holding a {@link TypeCache} per {@link ClassLoader}, itself holding a {@link TypeCache} per type,
+    * for values depending on a loader and two types.
+    */
+   static <V> ClassLoaderCache<TypeCache<TypeCache<V>>> ofNestedTypeCaches()
+   {
+      return new ClassLoaderCache<TypeCache<TypeCache<V>>>()
+      {
+         @Override
+         protected TypeCache<TypeCache<V>> computeValue(ClassLoader loader)
+         {
+            return new TypeCache<TypeCache<V>>()
+            {
+               @Override
+               protected TypeCache<V> initialValue(Class<?> type)
+               {
+                  return new TypeCache<>();
+               }
+            };
+         }
+      };
+   }
+}
@@ -8,7 +8,9 @@ package org.jboss.forge.furnace.proxy;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jboss.forge.furnace.exception.ContainerException;
 import org.jboss.forge.furnace.util.ClassLoaders;
@@ -34,6 +36,18 @@ public class ClassLoaderInterceptor implements ForgeProxy
 
    private static final ThreadLocal<ClassLoader> currentLoader = new ThreadLocal<>();
 
+   /**
+    * The {@link MethodInvoker} of each intercepted method, held by the class declaring it.
+    */
+   private static final ClassValue<Map<Method, MethodInvoker>> invokers = new ClassValue<Map<Method, MethodInvoker>>()
+   {
+      @Override
+      protected Map<Method, MethodInvoker> computeValue(Class<?> declaringType)
+      {
+         return new ConcurrentHashMap<>();
+      }
+   };
+
    private final ClassLoader loader;
    private final Object delegate;
 
@@ -52,55 +66,52 @@ public class ClassLoaderInterceptor implements ForgeProxy
          throw new ContainerException("Thread.interrupt() requested.");
       }
 
-      Callable<Object> task = new Callable<Object>()
+      try
       {
-         @Override
-         public Object call() throws Exception
+         if (thisMethod.getDeclaringClass().getName().equals(ForgeProxy.class.getName()))
          {
-            try
+            if (thisMethod.getName().equals("getDelegate"))
+               return getDelegate();
+            if (thisMethod.getName().equals("getHandler"))
+               return getHandler();
+         }
+      }
+      catch (Exception e)
+      {
+      }
+
+      Object result;
+      if (currentLoader.get() == loader && ClassLoaders.isContextClassLoader(loader))
+      {
+         // Nested call into the same loader, which an outer frame already switched to
+         try
+         {
+            result = invokeDelegate(thisMethod, args);
+         }
+         finally
+         {
+            ClassLoaders.restoreContextClassLoader(loader);
+         }
+      }
+      else
+      {
+         result = ClassLoaders.executeIn(loader, new Callable<Object>()
+         {
+            @Override
+            public Object call() throws Exception
             {
-               if (thisMethod.getDeclaringClass().getName().equals(ForgeProxy.class.getName()))
+               ClassLoader previousLoader = setCurrentLoader(loader);
+               try
                {
-                  if (thisMethod.getName().equals("getDelegate"))
-                     return ClassLoaderInterceptor.this.getDelegate();
-                  if (thisMethod.getName().equals("getHandler"))
-                     return ClassLoaderInterceptor.this.getHandler();
+                  return invokeDelegate(thisMethod, args);
                }
-            }
-            catch (Exception e)
-            {
-            }
-
-            ClassLoader previousLoader = null;
-            Object result;
-            try
-            {
-               previousLoader = setCurrentLoader(loader);
-
-               if (thisMethod.equals(EQUALS_METHOD))
+               finally
                {
-                  Object object = args[0];
-                  Object unwrapped = Proxies.unwrap(object);
-                  args[0] = unwrapped;
+                  setCurrentLoader(previousLoader);
                }
-
-               result = thisMethod.invoke(delegate, args);
             }
-            catch (InvocationTargetException e)
-            {
-               if (e.getCause() instanceof Exception)
-                  throw (Exception) e.getCause();
-               throw e;
-            }
-            finally
-            {
-               setCurrentLoader(previousLoader);
-            }
-            return result;
-         }
-      };
-
-      Object result = ClassLoaders.executeIn(loader, task);
+         });
+      }
 
       if (Thread.currentThread().isInterrupted())
       {
@@ -110,6 +121,41 @@ public class ClassLoaderInterceptor implements ForgeProxy
       return result;
    }
 
+   private Object invokeDelegate(Method thisMethod, Object[] args) throws Exception
+   {
+      try
+      {
+         if (thisMethod.equals(EQUALS_METHOD))
+         {
+            Object object = args[0];
+            Object unwrapped = Proxies.unwrap(object);
+            args[0] = unwrapped;
+         }
+
+         return getInvoker(thisMethod).invoke(delegate, args);
+      }
+      catch (Exception e)
+      {
+         throw e;
+      }
+      catch (Throwable e)
+      {
+         throw new InvocationTargetException(e);
+      }
+   }
+
+   private static MethodInvoker getInvoker(Method method) throws IllegalAccessException
+   {
+      Map<Method, MethodInvoker> cache = invokers.get(method.getDeclaringClass());
+      MethodInvoker invoker = cache.get(method);
+      if (invoker == null)
+      {
+         invoker = new MethodInvoker(method);
+         cache.put(method, invoker);
+      }
+      return invoker;
+   }
+
    public static ClassLoader getCurrentloader()
    {
       return currentLoader.get();
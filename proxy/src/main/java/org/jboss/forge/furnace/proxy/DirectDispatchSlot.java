@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+
+import javassist.util.proxy.MethodHandler;
+
+/**
+ * One proxied method of a proxy class generated for {@link ClassLoaderAdapterBackend#DIRECT}. The generated method
+ * calls its slot, which remembers how the last delegate type it was called for is dispatched to, instead of looking it
+ * up by {@link Method} on every call. Public only so generated classes in other packages can call it.
+ */
+public final class DirectDispatchSlot
+{
+   private final Method method;
+   private volatile WeakReference<ClassLoaderAdapterCallback.DispatchPlan> plan;
+
+   DirectDispatchSlot(Method method)
+   {
+      this.method = method;
+   }
+
+   public Object dispatch(MethodHandler handler, Object self, Object[] args) throws Throwable
+   {
+      if (handler instanceof ClassLoaderAdapterCallback)
+         return ((ClassLoaderAdapterCallback) handler).dispatch(this, args);
+      return handler.invoke(self, method, null, args);
+   }
+
+   Method getMethod()
+   {
+      return method;
+   }
+
+   /**
+    * Return the cached plan if it was resolved for the given delegate type, or <code>null</code>.
+    */
+   ClassLoaderAdapterCallback.DispatchPlan getPlan(Class<?> delegateType)
+   {
+      WeakReference<ClassLoaderAdapterCallback.DispatchPlan> ref = plan;
+      if (ref != null)
+      {
+         ClassLoaderAdapterCallback.DispatchPlan result = ref.get();
+         if (result != null && result.delegateType == delegateType)
+            return result;
+      }
+      return null;
+   }
+
+   /**
+    * Cache the given plan. It is held weakly, so the slot does not keep the delegate type loaded; the plan itself is
+    * held by the delegate type for as long as this slot's method is reachable.
+    */
+   void setPlan(ClassLoaderAdapterCallback.DispatchPlan plan)
+   {
+      this.plan = new WeakReference<>(plan);
+   }
+}
@@ -0,0 +1,534 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javassist.util.proxy.FactoryHelper;
+import javassist.util.proxy.MethodHandler;
+import javassist.util.proxy.Proxy;
+import javassist.util.proxy.ProxyObject;
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.Bytecode;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.FieldInfo;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.Opcode;
+import org.jboss.forge.furnace.util.ClassLoaders;
+
+/**
+ * Generates the proxy classes of {@link ClassLoaderAdapterBackend#DIRECT}: one class per calling loader, delegate
+ * loader, delegate type and requested types, implementing the proxied interfaces with a typed method for each, which
+ * passes its arguments to a {@link DirectDispatchSlot}. Generated classes implement {@link Proxy} and
+ * {@link ForgeProxy}, and are named like javassist proxies, so the rest of {@link Proxies} treats them as such.
+ */
+final class DirectProxyFactory
+{
+   private static final Logger log = Logger.getLogger(DirectProxyFactory.class.getName());
+
+   private static final String SLOTS_FIELD = "_slots_";
+   private static final String HANDLER_FIELD = "handler";
+   private static final String SLOTS_DESCRIPTOR = "[" + descriptor(DirectDispatchSlot.class);
+   private static final String HANDLER_DESCRIPTOR = descriptor(MethodHandler.class);
+   private static final String DISPATCH_DESCRIPTOR = "(" + HANDLER_DESCRIPTOR + descriptor(Object.class)
+            + descriptor(Object[].class) + ")" + descriptor(Object.class);
+
+   private static final AtomicInteger counter = new AtomicInteger();
+   private static final ClassLoaderCache<ClassLoaderCache<TypeCache<List<CachedClass>>>> classCache =
+            new ClassLoaderCache<ClassLoaderCache<TypeCache<List<CachedClass>>>>()
+   {
+      @Override
+      protected ClassLoaderCache<TypeCache<List<CachedClass>>> computeValue(ClassLoader callingLoader)
+      {
+         return new ClassLoaderCache<TypeCache<List<CachedClass>>>()
+         {
+            @Override
+            protected TypeCache<List<CachedClass>> computeValue(ClassLoader delegateLoader)
+            {
+               return new TypeCache<List<CachedClass>>()
+               {
+                  @Override
+                  protected List<CachedClass> initialValue(Class<?> delegateType)
+                  {
+                     return new CopyOnWriteArrayList<>();
+                  }
+               };
+            }
+         };
+      }
+   };
+
+   private DirectProxyFactory()
+   {
+   }
+
+   /**
+    * Return the proxy class for the given delegate type, implementing the given types or, if there are none, the
+    * compatible types of the delegate type. Return <code>null</code> if they cannot be proxied this way: if one of
+    * them is a class, is not public, or is not visible from the calling {@link ClassLoader}.
+    */
+   static Class<?> getProxyClass(ClassLoader callingLoader, ClassLoader delegateLoader, Class<?> delegateType,
+            Class<?>[] types)
+   {
+      List<CachedClass> cached = classCache.get(callingLoader).get(delegateLoader).getValue(delegateType);
+      for (CachedClass entry : cached)
+      {
+         if (entry.isCollected())
+            cached.remove(entry);
+         else if (entry.matches(types))
+            return entry.proxyClass.get();
+      }
+
+      Class<?>[] hierarchy = types;
+      if (hierarchy == null || hierarchy.length == 0)
+         hierarchy = ProxyTypeInspector.getCompatibleClassHierarchy(callingLoader, delegateType);
+
+      List<Class<?>> interfaces = new ArrayList<>();
+      if (hierarchy != null)
+      {
+         for (Class<?> type : hierarchy)
+         {
+            if (!ProxyObject.class.equals(type) && !interfaces.contains(type))
+               interfaces.add(type);
+         }
+      }
+
+      Class<?> result = createProxyClass(callingLoader, interfaces);
+      cached.add(new CachedClass(types, result));
+      return result;
+   }
+
+   private static Class<?> createProxyClass(ClassLoader callingLoader, List<Class<?>> interfaces)
+   {
+      if (interfaces.isEmpty() || !ClassLoaders.containsClass(callingLoader, DirectDispatchSlot.class)
+               || !ClassLoaders.containsClass(callingLoader, Proxy.class))
+         return null;
+
+      for (Class<?> type : interfaces)
+      {
+         if (!type.isInterface() || !Modifier.isPublic(type.getModifiers()) || Proxies.isProxyType(type)
+                  || !ClassLoaders.containsClass(callingLoader, type))
+            return null;
+      }
+      Class<?> first = interfaces.get(0);
+      if (!interfaces.contains(ForgeProxy.class))
+         interfaces.add(ForgeProxy.class);
+
+      Map<String, List<Method>> signatures = new LinkedHashMap<>();
+      for (Class<?> type : interfaces)
+      {
+         for (Method method : type.getMethods())
+         {
+            if (!Modifier.isStatic(method.getModifiers()))
+               addSignature(signatures, method);
+         }
+      }
+      try
+      {
+         addSignature(signatures, Object.class.getMethod("toString"));
+         addSignature(signatures, Object.class.getMethod("equals", Object.class));
+         addSignature(signatures, Object.class.getMethod("hashCode"));
+      }
+      catch (NoSuchMethodException e)
+      {
+         throw new IllegalStateException("Could not reflect java.lang.Object methods", e);
+      }
+
+      String name = first.getName();
+      if (name.startsWith("java."))
+         name = "org.javassist.tmp." + name;
+      name = name + "_$$_jvstdd" + Integer.toHexString(counter.incrementAndGet());
+
+      ClassFile file = new ClassFile(false, name, Object.class.getName());
+      file.setAccessFlags(AccessFlag.PUBLIC | AccessFlag.SUPER);
+      List<String> interfaceNames = new ArrayList<>();
+      for (Class<?> type : interfaces)
+      {
+         interfaceNames.add(type.getName());
+      }
+      interfaceNames.add(Proxy.class.getName());
+      file.setInterfaces(interfaceNames.toArray(new String[interfaceNames.size()]));
+
+      ConstPool pool = file.getConstPool();
+      try
+      {
+         FieldInfo handler = new FieldInfo(pool, HANDLER_FIELD, HANDLER_DESCRIPTOR);
+         handler.setAccessFlags(AccessFlag.PRIVATE);
+         file.addField(handler);
+         FieldInfo slots = new FieldInfo(pool, SLOTS_FIELD, SLOTS_DESCRIPTOR);
+         slots.setAccessFlags(AccessFlag.PRIVATE | AccessFlag.STATIC);
+         file.addField(slots);
+
+         file.addMethod(createConstructor(pool));
+         file.addMethod(createSetHandler(pool, name));
+
+         List<DirectDispatchSlot> slotList = new ArrayList<>();
+         for (List<Method> methods : signatures.values())
+         {
+            Method method = getMostSpecific(methods);
+            if (method == null)
+               return null;
+
+            List<Class<?>> returnTypes = new ArrayList<>();
+            for (Method candidate : methods)
+            {
+               if (!returnTypes.contains(candidate.getReturnType()))
+                  returnTypes.add(candidate.getReturnType());
+            }
+
+            if (isForgeProxyAccessor(methods))
+            {
+               if (returnTypes.size() > 1 || !Object.class.equals(method.getReturnType()))
+                  return null;
+               file.addMethod(createForgeProxyAccessor(pool, name, method.getName()));
+            }
+            else
+            {
+               if (!isVisible(callingLoader, method))
+                  return null;
+               for (Class<?> returnType : returnTypes)
+               {
+                  file.addMethod(createDispatchMethod(pool, name, slotList.size(), method.getName(),
+                           method.getParameterTypes(), returnType));
+               }
+               slotList.add(new DirectDispatchSlot(method));
+            }
+         }
+
+         Class<?> result = FactoryHelper.toClass(file, callingLoader);
+         Field field = result.getDeclaredField(SLOTS_FIELD);
+         field.setAccessible(true);
+         field.set(null, slotList.toArray(new DirectDispatchSlot[slotList.size()]));
+         return result;
+      }
+      catch (Exception | LinkageError e)
+      {
+         log.log(Level.FINE, "Could not generate direct proxy class [" + name + "], using javassist instead.", e);
+         return null;
+      }
+   }
+
+   private static void addSignature(Map<String, List<Method>> signatures, Method method)
+   {
+      StringBuilder key = new StringBuilder(method.getName()).append('(');
+      for (Class<?> type : method.getParameterTypes())
+      {
+         key.append(descriptor(type));
+      }
+      List<Method> methods = signatures.get(key.toString());
+      if (methods == null)
+      {
+         methods = new ArrayList<>();
+         signatures.put(key.toString(), methods);
+      }
+      methods.add(method);
+   }
+
+   /**
+    * The method whose return type is assignable to the return types of all others, or <code>null</code> if there is
+    * none, in which case no single implementation can satisfy all of them.
+    */
+   private static Method getMostSpecific(List<Method> methods)
+   {
+      candidates: for (Method candidate : methods)
+      {
+         for (Method other : methods)
+         {
+            if (!other.getReturnType().isAssignableFrom(candidate.getReturnType()))
+               continue candidates;
+         }
+         return candidate;
+      }
+      return null;
+   }
+
+   /**
+    * Whether the given methods of the same signature include one of {@link ForgeProxy}, which the proxy class answers
+    * itself. Methods of the same name declared by the proxied types are only dispatched if {@link ForgeProxy} does not
+    * declare them.
+    */
+   private static boolean isForgeProxyAccessor(List<Method> methods)
+   {
+      for (Method method : methods)
+      {
+         if (method.getDeclaringClass() == ForgeProxy.class)
+            return true;
+      }
+      return false;
+   }
+
+   /**
+    * Whether the types a generated method refers to resolve to the same classes from the calling {@link ClassLoader},
+    * in which the proxy class is defined.
+    */
+   private static boolean isVisible(ClassLoader callingLoader, Method method)
+   {
+      List<Class<?>> types = new ArrayList<>();
+      types.add(method.getReturnType());
+      for (Class<?> type : method.getParameterTypes())
+      {
+         types.add(type);
+      }
+      for (Class<?> type : types)
+      {
+         while (type.isArray())
+            type = type.getComponentType();
+         if (!type.isPrimitive() && !ClassLoaders.containsClass(callingLoader, type))
+            return false;
+      }
+      return true;
+   }
+
+   private static MethodInfo createConstructor(ConstPool pool)
+   {
+      MethodInfo method = new MethodInfo(pool, MethodInfo.nameInit, "()V");
+      method.setAccessFlags(AccessFlag.PUBLIC);
+      Bytecode code = new Bytecode(pool, 1, 1);
+      code.addAload(0);
+      code.addInvokespecial(Object.class.getName(), MethodInfo.nameInit, "()V");
+      code.addOpcode(Opcode.RETURN);
+      method.setCodeAttribute(code.toCodeAttribute());
+      return method;
+   }
+
+   private static MethodInfo createSetHandler(ConstPool pool, String className)
+   {
+      MethodInfo method = new MethodInfo(pool, "setHandler", "(" + HANDLER_DESCRIPTOR + ")V");
+      method.setAccessFlags(AccessFlag.PUBLIC);
+      Bytecode code = new Bytecode(pool, 2, 2);
+      code.addAload(0);
+      code.addAload(1);
+      code.addPutfield(className, HANDLER_FIELD, HANDLER_DESCRIPTOR);
+      code.addOpcode(Opcode.RETURN);
+      method.setCodeAttribute(code.toCodeAttribute());
+      return method;
+   }
+
+   /**
+    * {@link ForgeProxy#getHandler()} returns the handler, and {@link ForgeProxy#getDelegate()} asks the handler for
+    * its delegate, without crossing into the delegate {@link ClassLoader}.
+    */
+   private static MethodInfo createForgeProxyAccessor(ConstPool pool, String className, String name)
+   {
+      MethodInfo method = new MethodInfo(pool, name, "()" + descriptor(Object.class));
+      method.setAccessFlags(AccessFlag.PUBLIC);
+      Bytecode code = new Bytecode(pool, 1, 1);
+      code.addAload(0);
+      code.addGetfield(className, HANDLER_FIELD, HANDLER_DESCRIPTOR);
+      if ("getDelegate".equals(name))
+      {
+         code.addCheckcast(ForgeProxy.class.getName());
+         code.addInvokeinterface(ForgeProxy.class.getName(), name, "()" + descriptor(Object.class), 1);
+      }
+      code.addOpcode(Opcode.ARETURN);
+      method.setCodeAttribute(code.toCodeAttribute());
+      return method;
+   }
+
+   /**
+    * Create a method boxing its arguments into an array and passing them to its slot, along with the handler and the
+    * proxy, then converting the result to its return type.
+    */
+   private static MethodInfo createDispatchMethod(ConstPool pool, String className, int slot, String name,
+            Class<?>[] parameterTypes, Class<?> returnType)
+   {
+      StringBuilder methodDescriptor = new StringBuilder("(");
+      for (Class<?> type : parameterTypes)
+      {
+         methodDescriptor.append(descriptor(type));
+      }
+      methodDescriptor.append(')').append(descriptor(returnType));
+
+      MethodInfo method = new MethodInfo(pool, name, methodDescriptor.toString());
+      method.setAccessFlags(AccessFlag.PUBLIC);
+      Bytecode code = new Bytecode(pool, 0, 0);
+      code.addGetstatic(className, SLOTS_FIELD, SLOTS_DESCRIPTOR);
+      code.addIconst(slot);
+      code.addOpcode(Opcode.AALOAD);
+      code.addAload(0);
+      code.addGetfield(className, HANDLER_FIELD, HANDLER_DESCRIPTOR);
+      code.addAload(0);
+      code.addIconst(parameterTypes.length);
+      code.addAnewarray(Object.class.getName());
+
+      int local = 1;
+      for (int i = 0; i < parameterTypes.length; i++)
+      {
+         code.addOpcode(Opcode.DUP);
+         code.addIconst(i);
+         local += addLoadBoxed(code, parameterTypes[i], local);
+         code.addOpcode(Opcode.AASTORE);
+      }
+
+      code.addInvokevirtual(DirectDispatchSlot.class.getName(), "dispatch", DISPATCH_DESCRIPTOR);
+      addReturn(code, returnType);
+
+      code.setMaxLocals(local);
+      code.setMaxStack(8);
+      method.setCodeAttribute(code.toCodeAttribute());
+      return method;
+   }
+
+   private static int addLoadBoxed(Bytecode code, Class<?> type, int local)
+   {
+      if (!type.isPrimitive())
+      {
+         code.addAload(local);
+         return 1;
+      }
+
+      if (long.class.equals(type))
+         code.addLload(local);
+      else if (double.class.equals(type))
+         code.addDload(local);
+      else if (float.class.equals(type))
+         code.addFload(local);
+      else
+         code.addIload(local);
+
+      Class<?> wrapper = wrapper(type);
+      code.addInvokestatic(wrapper.getName(), "valueOf", "(" + descriptor(type) + ")" + descriptor(wrapper));
+      return long.class.equals(type) || double.class.equals(type) ? 2 : 1;
+   }
+
+   private static void addReturn(Bytecode code, Class<?> type)
+   {
+      if (void.class.equals(type))
+      {
+         code.addOpcode(Opcode.POP);
+         code.addOpcode(Opcode.RETURN);
+      }
+      else if (type.isPrimitive())
+      {
+         Class<?> wrapper = wrapper(type);
+         code.addCheckcast(wrapper.getName());
+         code.addInvokevirtual(wrapper.getName(), type.getName() + "Value", "()" + descriptor(type));
+         if (long.class.equals(type))
+            code.addOpcode(Opcode.LRETURN);
+         else if (double.class.equals(type))
+            code.addOpcode(Opcode.DRETURN);
+         else if (float.class.equals(type))
+            code.addOpcode(Opcode.FRETURN);
+         else
+            code.addOpcode(Opcode.IRETURN);
+      }
+      else
+      {
+         if (!Object.class.equals(type))
+            code.addCheckcast(type.getName());
+         code.addOpcode(Opcode.ARETURN);
+      }
+   }
+
+   private static Class<?> wrapper(Class<?> type)
+   {
+      if (boolean.class.equals(type))
+         return Boolean.class;
+      if (byte.class.equals(type))
+         return Byte.class;
+      if (char.class.equals(type))
+         return Character.class;
+      if (short.class.equals(type))
+         return Short.class;
+      if (int.class.equals(type))
+         return Integer.class;
+      if (long.class.equals(type))
+         return Long.class;
+      if (float.class.equals(type))
+         return Float.class;
+      return Double.class;
+   }
+
+   private static String descriptor(Class<?> type)
+   {
+      if (type.isArray())
+         return type.getName().replace('.', '/');
+      if (void.class.equals(type))
+         return "V";
+      if (boolean.class.equals(type))
+         return "Z";
+      if (byte.class.equals(type))
+         return "B";
+      if (char.class.equals(type))
+         return "C";
+      if (short.class.equals(type))
+         return "S";
+      if (int.class.equals(type))
+         return "I";
+      if (long.class.equals(type))
+         return "J";
+      if (float.class.equals(type))
+         return "F";
+      if (double.class.equals(type))
+         return "D";
+      return "L" + type.getName().replace('.', '/') + ";";
+   }
+
+   /**
+    * A proxy class generated for the requested types, or the fact that none could be. Everything is held weakly, since
+    * the types come from other loaders than the one of the delegate type the entry is cached with.
+    */
+   private static final class CachedClass
+   {
+      private final List<WeakReference<Class<?>>> types = new ArrayList<>();
+      private final WeakReference<Class<?>> proxyClass;
+      private final boolean unsupported;
+
+      CachedClass(Class<?>[] types, Class<?> proxyClass)
+      {
+         if (types != null)
+         {
+            for (Class<?> type : types)
+            {
+               this.types.add(new WeakReference<Class<?>>(type));
+            }
+         }
+         this.proxyClass = new WeakReference<Class<?>>(proxyClass);
+         this.unsupported = proxyClass == null;
+      }
+
+      /**
+       * Whether the proxy class or any of the requested types was collected, so the entry can never be used again.
+       */
+      boolean isCollected()
+      {
+         if (!unsupported && proxyClass.get() == null)
+            return true;
+         for (WeakReference<Class<?>> type : types)
+         {
+            if (type.get() == null)
+               return true;
+         }
+         return false;
+      }
+
+      boolean matches(Class<?>[] requested)
+      {
+         int length = requested == null ? 0 : requested.length;
+         if (types.size() != length)
+            return false;
+         for (int i = 0; i < length; i++)
+         {
+            if (types.get(i).get() != requested[i])
+               return false;
+         }
+         return true;
+      }
+   }
+}
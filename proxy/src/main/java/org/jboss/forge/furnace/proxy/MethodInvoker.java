@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Invokes a {@link Method} through a {@link MethodHandle} adapted once to take the target and an argument array, as
+ * {@link Method#invoke(Object, Object...)} does. Exceptions thrown by the method are rethrown as they are, instead of
+ * being wrapped in an {@link java.lang.reflect.InvocationTargetException}.
+ */
+final class MethodInvoker
+{
+   private final MethodHandle handle;
+
+   /**
+    * Create an invoker for the given method, which must be accessible from this package or made accessible.
+    */
+   MethodInvoker(Method method) throws IllegalAccessException
+   {
+      int parameterCount = method.getParameterTypes().length;
+      MethodHandle target = MethodHandles.lookup().unreflect(method).asFixedArity();
+      if (Modifier.isStatic(method.getModifiers()))
+         target = MethodHandles.dropArguments(target, 0, Object.class);
+      this.handle = target.asType(MethodType.genericMethodType(parameterCount + 1))
+               .asSpreader(Object[].class, parameterCount);
+   }
+
+   Object invoke(Object target, Object[] args) throws Throwable
+   {
+      return handle.invokeExact(target, args);
+   }
+}
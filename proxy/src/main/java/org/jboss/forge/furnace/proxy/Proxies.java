@@ -10,8 +10,6 @@ import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Collection;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import javassist.util.proxy.MethodFilter;
@@ -36,7 +34,8 @@ public class Proxies
 
    private static MethodFilter filter = new ForgeProxyMethodFilter();
 
-   private static Map<String, Map<String, WeakReference<Class<?>>>> classCache = new ConcurrentHashMap<>();
+   private static final ClassLoaderCache<TypeCache<WeakReference<Class<?>>>> classCache = ClassLoaderCache
+            .ofTypeCaches();
 
    /**
     * Create a proxy for the given {@link Class} type, {@link Object} instance, and {@link ForgeProxy} handler. If
@@ -141,27 +140,17 @@ public class Proxies
    private static Class<?> getCachedProxyType(ClassLoader loader, Class<?> type)
    {
       Class<?> proxyType = null;
-      Map<String, WeakReference<Class<?>>> cache = classCache.get(loader.toString());
-      if (cache != null)
+      WeakReference<Class<?>> ref = classCache.get(loader).getValue(type);
+      if (ref != null)
       {
-         WeakReference<Class<?>> ref = cache.get(type.getName());
-         if (ref != null)
-         {
-            proxyType = ref.get();
-         }
+         proxyType = ref.get();
       }
       return proxyType;
    }
 
    private static void setCachedProxyType(ClassLoader classLoader, Class<?> type, Class<?> proxyType)
    {
-      Map<String, WeakReference<Class<?>>> cache = classCache.get(classLoader.toString());
-      if (cache == null)
-      {
-         cache = new ConcurrentHashMap<>();
-         classCache.put(classLoader.toString(), cache);
-      }
-      cache.put(type.getName(), new WeakReference<Class<?>>(proxyType));
+      classCache.get(classLoader).setValue(type, new WeakReference<Class<?>>(proxyType));
    }
 
    /**
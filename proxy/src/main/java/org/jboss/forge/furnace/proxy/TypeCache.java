@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A value cached per {@link Class}, stored with the class through {@link ClassValue} so it is released along with the
+ * class or with this cache. Unlike {@link ClassValue}, values can be replaced. Values referencing other class loaders
+ * than the one of their class should be held weakly, or they keep those loaders from being collected.
+ */
+class TypeCache<V> extends ClassValue<AtomicReference<V>>
+{
+   @Override
+   protected AtomicReference<V> computeValue(Class<?> type)
+   {
+      return new AtomicReference<>(initialValue(type));
+   }
+
+   /**
+    * The value of a type before any is stored, <code>null</code> by default.
+    */
+   protected V initialValue(Class<?> type)
+   {
+      return null;
+   }
+
+   V getValue(Class<?> type)
+   {
+      return get(type).get();
+   }
+
+   void setValue(Class<?> type, V value)
+   {
+      get(type).set(value);
+   }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClassLoaderAdapterBackendTest
+{
+   public interface Calculator
+   {
+      int add(int left, int right);
+
+      long twice(long value);
+
+      String greet(String name);
+
+      void fail() throws IOException;
+   }
+
+   public static class SimpleCalculator implements Calculator
+   {
+      @Override
+      public int add(int left, int right)
+      {
+         return left + right;
+      }
+
+      @Override
+      public long twice(long value)
+      {
+         return value * 2;
+      }
+
+      @Override
+      public String greet(String name)
+      {
+         return "Hello " + name;
+      }
+
+      @Override
+      public void fail() throws IOException
+      {
+         throw new IOException("expected");
+      }
+   }
+
+   @Test
+   public void testDirectBackendDispatchesToDelegate() throws Exception
+   {
+      ClassLoader loader = getClass().getClassLoader();
+      SimpleCalculator delegate = new SimpleCalculator();
+      Calculator enhanced = ClassLoaderAdapterBuilder.callingLoader(loader).delegateLoader(loader)
+               .backend(ClassLoaderAdapterBackend.DIRECT).enhance(delegate, Calculator.class);
+
+      Assert.assertTrue(enhanced.getClass().getName().contains("_jvstdd"));
+      Assert.assertTrue(Proxies.isForgeProxy(enhanced));
+      Assert.assertTrue(Proxies.isProxyType(enhanced.getClass()));
+      Assert.assertSame(delegate, Proxies.unwrap(enhanced));
+
+      for (int i = 0; i < 3; i++)
+      {
+         Assert.assertEquals(5, enhanced.add(2, 3));
+         Assert.assertEquals(Long.MAX_VALUE - 1, enhanced.twice(Long.MAX_VALUE / 2));
+         Assert.assertEquals("Hello Furnace", enhanced.greet("Furnace"));
+      }
+      Assert.assertEquals(delegate.hashCode(), enhanced.hashCode());
+
+      try
+      {
+         enhanced.fail();
+         Assert.fail("Should have thrown an IOException");
+      }
+      catch (IOException e)
+      {
+         Assert.assertEquals("expected", e.getMessage());
+      }
+   }
+
+   @Test
+   public void testDirectBackendFallsBackForClasses() throws Exception
+   {
+      ClassLoader loader = getClass().getClassLoader();
+      SimpleCalculator enhanced = ClassLoaderAdapterBuilder.callingLoader(loader).delegateLoader(loader)
+               .backend(ClassLoaderAdapterBackend.DIRECT).enhance(new SimpleCalculator(), SimpleCalculator.class);
+
+      Assert.assertFalse(enhanced.getClass().getName().contains("_jvstdd"));
+      Assert.assertEquals(5, enhanced.add(2, 3));
+   }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MethodInvokerTest
+{
+   private static final IOException CHECKED = new IOException("expected");
+   private static final AssertionError ERROR = new AssertionError("expected");
+
+   public static class Target
+   {
+      private int calls;
+
+      public int add(int left, int right)
+      {
+         return left + right;
+      }
+
+      public boolean isEven(long value)
+      {
+         return value % 2 == 0;
+      }
+
+      public char first(String value)
+      {
+         return value.charAt(0);
+      }
+
+      public void call()
+      {
+         calls++;
+      }
+
+      public String join(String... values)
+      {
+         return String.join(",", values);
+      }
+
+      public static long multiply(long left, int right)
+      {
+         return left * right;
+      }
+
+      public void failChecked() throws IOException
+      {
+         throw CHECKED;
+      }
+
+      public void failError()
+      {
+         throw ERROR;
+      }
+   }
+
+   @Test
+   public void testPrimitiveAndVoidResultsAreBoxed() throws Throwable
+   {
+      Target target = new Target();
+      Assert.assertEquals(Integer.valueOf(5),
+               invoker("add", int.class, int.class).invoke(target, new Object[] { 2, 3 }));
+      Assert.assertEquals(Boolean.TRUE, invoker("isEven", long.class).invoke(target, new Object[] { 4L }));
+      Assert.assertEquals(Character.valueOf('f'), invoker("first", String.class).invoke(target, new Object[] { "f" }));
+
+      Assert.assertNull(invoker("call").invoke(target, new Object[0]));
+      Assert.assertEquals(1, target.calls);
+   }
+
+   @Test
+   public void testVarargsMethodsTakeTheirArrayAsIs() throws Throwable
+   {
+      Object[] args = new Object[] { new String[] { "a", "b" } };
+      Assert.assertEquals("a,b", invoker("join", String[].class).invoke(new Target(), args));
+   }
+
+   @Test
+   public void testStaticMethodsIgnoreTheTarget() throws Throwable
+   {
+      MethodInvoker invoker = invoker("multiply", long.class, int.class);
+      Assert.assertEquals(Long.valueOf(42), invoker.invoke(null, new Object[] { 6L, 7 }));
+      Assert.assertEquals(Long.valueOf(42), invoker.invoke(new Target(), new Object[] { 6L, 7 }));
+   }
+
+   @Test
+   public void testCheckedExceptionsAreNotWrapped() throws Throwable
+   {
+      try
+      {
+         invoker("failChecked").invoke(new Target(), new Object[0]);
+         Assert.fail("Should have thrown an IOException");
+      }
+      catch (IOException e)
+      {
+         Assert.assertSame(CHECKED, e);
+      }
+   }
+
+   @Test
+   public void testErrorsAreNotWrapped() throws Throwable
+   {
+      try
+      {
+         invoker("failError").invoke(new Target(), new Object[0]);
+         Assert.fail("Should have thrown an AssertionError");
+      }
+      catch (AssertionError e)
+      {
+         Assert.assertSame(ERROR, e);
+      }
+   }
+
+   @Test
+   public void testInterceptorWrapsErrorsInInvocationTargetException() throws Throwable
+   {
+      Method method = Target.class.getMethod("failError");
+      ClassLoaderInterceptor interceptor = new ClassLoaderInterceptor(getClass().getClassLoader(), new Target());
+      try
+      {
+         interceptor.invoke(null, method, null, new Object[0]);
+         Assert.fail("Should have thrown an InvocationTargetException");
+      }
+      catch (InvocationTargetException e)
+      {
+         Assert.assertSame(ERROR, e.getCause());
+      }
+
+      try
+      {
+         interceptor.invoke(null, Target.class.getMethod("failChecked"), null, new Object[0]);
+         Assert.fail("Should have thrown an IOException");
+      }
+      catch (IOException e)
+      {
+         Assert.assertSame(CHECKED, e);
+      }
+   }
+
+   private static MethodInvoker invoker(String name, Class<?>... parameterTypes) throws Exception
+   {
+      return new MethodInvoker(Target.class.getMethod(name, parameterTypes));
+   }
+}
@@ -40,4 +40,15 @@ public class LazyServiceRegistryEventManager implements EventManager
       }
    }
 
+   /**
+    * Events are only delivered to an {@link EventManager} exported by the addon, so an addon without one observes
+    * nothing.
+    */
+   @Override
+   public boolean observes(Class<?> eventType)
+   {
+      ServiceRegistry registry = addon.getServiceRegistry();
+      return registry != null && registry.hasService(EventManager.class);
+   }
+
 }